@@ -3,22 +3,32 @@ package shx.cotacaodolar;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
 
 import java.text.ParseException;
+import java.time.Clock;
+import java.time.ZoneId;
 import java.util.Arrays;
 
 @SpringBootApplication
 @EnableTransactionManagement
+@EnableScheduling
 public class CotacaoDolarApplication {
 
     public static void main(String[] args) throws ParseException {
         SpringApplication.run(CotacaoDolarApplication.class, args);
     }
 
+    // Relógio no fuso de Brasília, o mesmo em que o BCB publica a PTAX.
+    @Bean
+    public Clock clock() {
+        return Clock.system(ZoneId.of("America/Sao_Paulo"));
+    }
+
     @Bean
     public CorsFilter corsFilter() {
         CorsConfiguration corsConfiguration = new CorsConfiguration();
@@ -0,0 +1,296 @@
+package shx.cotacaodolar.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import shx.cotacaodolar.dto.MoedaDto;
+import shx.cotacaodolar.model.Intervalo;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Cliente HTTP da API PTAX do Banco Central do Brasil.
+ * Usa um único HttpClient (HTTP/2 com fallback para HTTP/1.1), que mantém as conexões abertas e as reaproveita entre
+ * requisições. As respostas são pedidas compactadas em gzip, as requisições têm timeout de conexão e de leitura e falhas
+ * transitórias são repetidas com espera exponencial e jitter.
+ * Períodos longos são divididos em blocos alinhados ao calendário (anos, trimestres...) buscados em paralelo, com
+ * paralelismo limitado, e cada bloco é paginado com $top/$skip. A URL base é configurável para que testes e testes de
+ * carga apontem para um servidor local.
+ */
+@Component
+public class PtaxClient {
+    private static final DateTimeFormatter FORMATO_DATA_API = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final Duration timeoutLeitura;
+    private final int tentativas;
+    private final long esperaBaseMs;
+    private final int mesesPorBloco;
+    private final int paralelismo;
+    private final int tamanhoPagina;
+    private final ExecutorService executorBlocos;
+
+    public PtaxClient(@Value("${ptax.base-url:https://olinda.bcb.gov.br/olinda/servico/PTAX/versao/v1/odata}") String baseUrl,
+                      @Value("${ptax.http.timeout-conexao-ms:5000}") long timeoutConexaoMs,
+                      @Value("${ptax.http.timeout-leitura-ms:15000}") long timeoutLeituraMs,
+                      @Value("${ptax.http.tentativas:3}") int tentativas,
+                      @Value("${ptax.http.espera-base-ms:200}") long esperaBaseMs,
+                      @Value("${ptax.particionamento.meses-por-bloco:12}") int mesesPorBloco,
+                      @Value("${ptax.particionamento.paralelismo:4}") int paralelismo,
+                      @Value("${ptax.paginacao.tamanho-pagina:1000}") int tamanhoPagina) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.timeoutLeitura = Duration.ofMillis(timeoutLeituraMs);
+        this.tentativas = Math.max(1, tentativas);
+        this.esperaBaseMs = esperaBaseMs;
+        this.mesesPorBloco = Math.max(1, mesesPorBloco);
+        this.paralelismo = Math.max(1, paralelismo);
+        this.tamanhoPagina = Math.max(1, tamanhoPagina);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(timeoutConexaoMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+
+        AtomicInteger contadorThreads = new AtomicInteger();
+        this.executorBlocos = Executors.newFixedThreadPool(this.paralelismo, tarefa -> {
+            Thread thread = new Thread(tarefa, "ptax-bloco-" + contadorThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executorBlocos.shutdownNow();
+    }
+
+    /**
+     * Busca as cotações de um intervalo de datas no recurso CotacaoDolarPeriodo.
+     *
+     * @param intervalo Intervalo a ser consultado.
+     * @return Lista de MoedaDto retornada pela API, em ordem cronológica.
+     * @throws IOException Se a API não responder com sucesso após todas as tentativas.
+     */
+    public List<MoedaDto> buscarCotacoesPeriodo(Intervalo intervalo) throws IOException {
+        List<MoedaDto> moedasLista = new ArrayList<MoedaDto>((int) Math.min(intervalo.dias(), 1024));
+        buscarCotacoesPeriodo(intervalo, moedasLista::add);
+        return moedasLista;
+    }
+
+    /**
+     * Busca as cotações de um intervalo de datas, entregando cada uma ao consumidor em ordem cronológica.
+     * Intervalos que abrangem mais de um bloco são buscados em paralelo; no máximo "paralelismo" blocos ficam em
+     * andamento ou aguardando entrega ao mesmo tempo, então a memória usada não depende do tamanho do período.
+     *
+     * @param intervalo  Intervalo a ser consultado.
+     * @param consumidor Destino de cada MoedaDto, em ordem cronológica.
+     * @return Quantidade de cotações recebidas.
+     * @throws IOException Se algum bloco não puder ser obtido após todas as tentativas.
+     */
+    public int buscarCotacoesPeriodo(Intervalo intervalo, Consumer<MoedaDto> consumidor) throws IOException {
+        List<Intervalo> blocos = particionar(intervalo);
+        if (blocos.size() == 1) {
+            return buscarBloco(blocos.get(0), consumidor);
+        }
+
+        Iterator<Intervalo> proximosBlocos = blocos.iterator();
+        Deque<Future<List<MoedaDto>>> emAndamento = new ArrayDeque<>();
+        int quantidade = 0;
+        try {
+            while (emAndamento.size() < paralelismo && proximosBlocos.hasNext()) {
+                emAndamento.add(submeter(proximosBlocos.next()));
+            }
+            while (!emAndamento.isEmpty()) {
+                List<MoedaDto> cotacoesDoBloco = aguardar(emAndamento.poll());
+                if (proximosBlocos.hasNext()) {
+                    emAndamento.add(submeter(proximosBlocos.next()));
+                }
+                cotacoesDoBloco.forEach(consumidor);
+                quantidade += cotacoesDoBloco.size();
+            }
+            return quantidade;
+        } finally {
+            emAndamento.forEach(bloco -> bloco.cancel(true));
+        }
+    }
+
+    /**
+     * Divide o intervalo em blocos alinhados ao calendário, cada um com "mesesPorBloco" meses contados a partir de janeiro.
+     * Com 12 meses os blocos são anos civis; com 3, trimestres.
+     */
+    List<Intervalo> particionar(Intervalo intervalo) {
+        List<Intervalo> blocos = new ArrayList<>();
+        LocalDate cursor = intervalo.inicio();
+        while (!cursor.isAfter(intervalo.fim())) {
+            int mesNoAno = cursor.getMonthValue() - 1;
+            int primeiroMesDoBloco = mesNoAno - mesNoAno % mesesPorBloco;
+            LocalDate fimDoBloco = LocalDate.of(cursor.getYear(), 1, 1).plusMonths(primeiroMesDoBloco + mesesPorBloco).minusDays(1);
+            if (fimDoBloco.isAfter(intervalo.fim())) {
+                fimDoBloco = intervalo.fim();
+            }
+            blocos.add(new Intervalo(cursor, fimDoBloco));
+            cursor = fimDoBloco.plusDays(1);
+        }
+        return blocos;
+    }
+
+    private Future<List<MoedaDto>> submeter(Intervalo bloco) {
+        return executorBlocos.submit(() -> {
+            List<MoedaDto> cotacoes = new ArrayList<>();
+            buscarBloco(bloco, cotacoes::add);
+            return cotacoes;
+        });
+    }
+
+    private List<MoedaDto> aguardar(Future<List<MoedaDto>> bloco) throws IOException {
+        try {
+            return bloco.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Consulta à API do BCB interrompida");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Busca um bloco página a página. Como $top nunca passa do número de dias do bloco, uma página incompleta (ou o
+     * total de registros chegando ao número de dias) indica que não há mais cotações.
+     */
+    private int buscarBloco(Intervalo bloco, Consumer<MoedaDto> consumidor) throws IOException {
+        int top = (int) Math.min(bloco.dias(), tamanhoPagina);
+        int skip = 0;
+        while (true) {
+            String url = baseUrl + "/CotacaoDolarPeriodo(dataInicial=@dataInicial,dataFinalCotacao=@dataFinalCotacao)?%40dataInicial='"
+                    + bloco.inicio().format(FORMATO_DATA_API) + "'&%40dataFinalCotacao='" + bloco.fim().format(FORMATO_DATA_API)
+                    + "'&%24format=json&%24skip=" + skip + "&%24top=" + top;
+
+            int recebidas = buscarPagina(url, consumidor);
+            skip += recebidas;
+            if (recebidas < top || skip >= bloco.dias()) {
+                return skip;
+            }
+        }
+    }
+
+    /**
+     * Busca uma página com as tentativas configuradas. A página é decodificada por completo antes de ser entregue, então
+     * uma falha no meio da leitura do corpo também pode ser repetida sem duplicar cotações.
+     */
+    private int buscarPagina(String url, Consumer<MoedaDto> consumidor) throws IOException {
+        IOException ultimaFalha = null;
+        for (int tentativa = 1; tentativa <= tentativas; tentativa++) {
+            if (tentativa > 1) {
+                aguardarAntesDeNovaTentativa(tentativa - 1);
+            }
+
+            List<MoedaDto> pagina = new ArrayList<>();
+            try (Reader reader = abrir(url)) {
+                PtaxJsonDecoder.decodificar(reader, pagina::add);
+            } catch (RespostaNaoRetentavelException e) {
+                throw e;
+            } catch (IOException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                // Falhas de rede, timeouts e respostas truncadas são transitórias.
+                ultimaFalha = e;
+                continue;
+            }
+
+            pagina.forEach(consumidor);
+            return pagina.size();
+        }
+        throw ultimaFalha;
+    }
+
+    /**
+     * Executa uma requisição e devolve o corpo da resposta já descompactado.
+     */
+    private Reader abrir(String url) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeoutLeitura)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Consulta à API do BCB interrompida");
+        }
+
+        int status = response.statusCode();
+        if (status == 200) {
+            return new InputStreamReader(descompactar(response), StandardCharsets.UTF_8);
+        }
+        response.body().close();
+
+        String mensagem = "A API do BCB respondeu com o status HTTP " + status;
+        // Erros do cliente (exceto excesso de requisições) não se resolvem com uma nova tentativa.
+        if (status < 500 && status != 429) {
+            throw new RespostaNaoRetentavelException(mensagem);
+        }
+        throw new IOException(mensagem);
+    }
+
+    private InputStream descompactar(HttpResponse<InputStream> response) throws IOException {
+        boolean gzip = response.headers().firstValue("Content-Encoding")
+                .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        return gzip ? new GZIPInputStream(response.body()) : response.body();
+    }
+
+    // Espera exponencial com jitter completo: um valor aleatório entre zero e base * 2^(tentativa - 1).
+    private void aguardarAntesDeNovaTentativa(int tentativa) throws InterruptedIOException {
+        long limite = esperaBaseMs << (tentativa - 1);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(limite + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Consulta à API do BCB interrompida");
+        }
+    }
+
+    private static class RespostaNaoRetentavelException extends IOException {
+        RespostaNaoRetentavelException(String message) {
+            super(message);
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package shx.cotacaodolar.client;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import shx.cotacaodolar.dto.MoedaDto;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.function.Consumer;
+
+/**
+ * Decodificador em streaming das respostas OData da API PTAX.
+ * Lê o array "value" token a token com o JsonReader do Gson e entrega cada cotação ao consumidor assim que ela é lida,
+ * sem montar a árvore de JsonElement da resposta inteira. A data e a hora são recortadas diretamente do texto de
+ * "dataHoraCotacao" (formato "yyyy-MM-dd HH:mm:ss.SSS"), sem SimpleDateFormat por registro.
+ */
+public class PtaxJsonDecoder {
+    private static final String CAMPO_VALORES = "value";
+    private static final String CAMPO_DATA_HORA = "dataHoraCotacao";
+    private static final String CAMPO_PRECO = "cotacaoCompra";
+
+    private PtaxJsonDecoder() {
+    }
+
+    /**
+     * Decodifica a resposta, entregando cada cotação ao consumidor na ordem em que aparece.
+     *
+     * @param reader     Corpo da resposta da API.
+     * @param consumidor Destino de cada MoedaDto decodificada.
+     * @return Quantidade de cotações decodificadas.
+     * @throws IOException Se a resposta não estiver no formato esperado.
+     */
+    public static int decodificar(Reader reader, Consumer<MoedaDto> consumidor) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        int quantidade = 0;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            if (!json.nextName().equals(CAMPO_VALORES)) {
+                json.skipValue();
+                continue;
+            }
+
+            json.beginArray();
+            while (json.hasNext()) {
+                consumidor.accept(lerCotacao(json));
+                quantidade++;
+            }
+            json.endArray();
+        }
+        json.endObject();
+
+        return quantidade;
+    }
+
+    private static MoedaDto lerCotacao(JsonReader json) throws IOException {
+        String dataHora = null;
+        BigDecimal preco = null;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            String campo = json.nextName();
+            if (campo.equals(CAMPO_DATA_HORA) && json.peek() == JsonToken.STRING) {
+                dataHora = json.nextString();
+            } else if (campo.equals(CAMPO_PRECO) && json.peek() == JsonToken.NUMBER) {
+                // nextString preserva o literal do número, mantendo a escala original do preço.
+                preco = new BigDecimal(json.nextString());
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+
+        if (dataHora == null || preco == null || dataHora.length() < 19) {
+            throw new IOException("Cotação em formato inesperado na resposta da API do BCB: " + json.getPath());
+        }
+        return new MoedaDto(preco, converterData(dataHora), dataHora.substring(11, 19));
+    }
+
+    // "yyyy-MM-dd ..." -> "dd/MM/yyyy"
+    private static String converterData(String dataHora) {
+        char[] data = {
+                dataHora.charAt(8), dataHora.charAt(9), '/',
+                dataHora.charAt(5), dataHora.charAt(6), '/',
+                dataHora.charAt(0), dataHora.charAt(1), dataHora.charAt(2), dataHora.charAt(3)
+        };
+        return new String(data);
+    }
+
+}
@@ -1,60 +1,223 @@
 package shx.cotacaodolar.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import shx.cotacaodolar.dto.CandleDto;
+import shx.cotacaodolar.dto.ComparacaoDto;
+import shx.cotacaodolar.dto.ConversaoDto;
+import shx.cotacaodolar.dto.ConversaoSolicitadaDto;
+import shx.cotacaodolar.dto.CotacaoPorDataDto;
 import shx.cotacaodolar.dto.MoedaDto;
+import shx.cotacaodolar.dto.PosicaoPrecoDto;
+import shx.cotacaodolar.dto.ResultadoIngestaoDto;
+import shx.cotacaodolar.dto.VerificacaoResumosDto;
+import shx.cotacaodolar.infra.PoliticaCacheHttp;
+import shx.cotacaodolar.service.ConversaoService;
+import shx.cotacaodolar.service.IngestaoService;
 import shx.cotacaodolar.service.MoedaService;
+import shx.cotacaodolar.service.RespostasCache;
+import shx.cotacaodolar.service.ResumoCotacaoService;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.text.ParseException;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 
 @RestController
 @RequestMapping(value = "/")
 public class MoedaController {
+    private static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+
     @Autowired
     private MoedaService moedaService;
+    @Autowired
+    private IngestaoService ingestaoService;
+    @Autowired
+    private ResumoCotacaoService resumoCotacaoService;
+    @Autowired
+    private ConversaoService conversaoService;
+    @Autowired
+    private PoliticaCacheHttp politicaCacheHttp;
+    @Autowired
+    private RespostasCache respostasCache;
+    @Autowired
+    private ObjectMapper objectMapper;
 
 
     // Obtém a cotação de moeda atual ou a última disponível.
     @GetMapping("/moeda/atual")
     public ResponseEntity<MoedaDto> getCotacaoAtual() throws IOException, MalformedURLException, ParseException {
         MoedaDto moedaDto = moedaService.getCotacaoAtual();
-        return ResponseEntity.ok().body(moedaDto);
+        return politicaCacheHttp.recente().ok().body(moedaDto);
     }
 
     // Obtém uma lista de cotações de moeda no período especificado.
     @GetMapping("/moeda/{data1}&{data2}")
-    public ResponseEntity<List<MoedaDto>> getCotacoesPeriodo(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate) throws IOException, MalformedURLException, ParseException {
-        List<MoedaDto> moedaDtoList = moedaService.getCotacoesPeriodo(startDate, endDate);
-        return ResponseEntity.ok().body(moedaDtoList);
+    public ResponseEntity<byte[]> getCotacoesPeriodo(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate, WebRequest request) throws IOException, MalformedURLException, ParseException {
+        moedaService.validarPeriodo(startDate, endDate);
+        PoliticaCacheHttp.Cabecalhos cache = politicaCacheHttp.periodo("periodo-json", startDate, endDate);
+        RespostasCache.Chave chave = RespostasCache.Chave.de("periodo", startDate, endDate, null);
+        return json(cache, chave, () -> moedaService.getCotacoesPeriodo(startDate, endDate), request);
     }
 
     // Obtém uma lista de cotações de moeda no período especificado, incluindo apenas as cotações menores que a cotação atual ou a última disponível.
     @GetMapping("/moeda/{data1}&{data2}/cotacoes-menores-atual")
     public ResponseEntity<List<MoedaDto>> getCotacoesMenoresAtual(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate) throws IOException, MalformedURLException, ParseException {
         List<MoedaDto> moedaDtoList = moedaService.getCotacoesMenoresAtual(startDate, endDate);
-        return ResponseEntity.ok().body(moedaDtoList);
+        return politicaCacheHttp.recente().ok().body(moedaDtoList);
     }
 
     // Obtém uma lista de cotações de moeda no período especificado, incluindo apenas as cotações maiores que a cotação atual ou a última disponível.
     @GetMapping("/moeda/{data1}&{data2}/cotacoes-maiores-atual")
     public ResponseEntity<List<MoedaDto>> getCotacoesMaioresAtual(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate) throws IOException, MalformedURLException, ParseException {
         List<MoedaDto> moedaDtoList = moedaService.getCotacoesMaioresAtual(startDate, endDate);
-        return ResponseEntity.ok().body(moedaDtoList);
+        return politicaCacheHttp.recente().ok().body(moedaDtoList);
+    }
+
+    // Obtém as cotações do período separadas em menores, iguais e maiores que a cotação atual ou a última disponível.
+    @GetMapping("/moeda/{data1}&{data2}/comparacao-atual")
+    public ResponseEntity<ComparacaoDto> getComparacaoCotacaoAtual(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate) {
+        ComparacaoDto comparacaoDto = moedaService.getComparacaoCotacaoAtual(startDate, endDate);
+        return politicaCacheHttp.recente().ok().body(comparacaoDto);
+    }
+
+    // Obtém as cotações do período menores que o preço informado.
+    @GetMapping("/moeda/{data1}&{data2}/cotacoes-abaixo/{preco}")
+    public ResponseEntity<byte[]> getCotacoesAbaixoDe(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate, @PathVariable("preco") String preco, WebRequest request) {
+        moedaService.validarPeriodo(startDate, endDate);
+        PoliticaCacheHttp.Cabecalhos cache = politicaCacheHttp.periodo("cotacoes-abaixo", startDate, endDate, preco);
+        RespostasCache.Chave chave = RespostasCache.Chave.de("cotacoes-abaixo", startDate, endDate, preco);
+        return json(cache, chave, () -> moedaService.getCotacoesAbaixoDe(startDate, endDate, preco), request);
+    }
+
+    // Obtém as cotações do período maiores que o preço informado.
+    @GetMapping("/moeda/{data1}&{data2}/cotacoes-acima/{preco}")
+    public ResponseEntity<byte[]> getCotacoesAcimaDe(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate, @PathVariable("preco") String preco, WebRequest request) {
+        moedaService.validarPeriodo(startDate, endDate);
+        PoliticaCacheHttp.Cabecalhos cache = politicaCacheHttp.periodo("cotacoes-acima", startDate, endDate, preco);
+        RespostasCache.Chave chave = RespostasCache.Chave.de("cotacoes-acima", startDate, endDate, preco);
+        return json(cache, chave, () -> moedaService.getCotacoesAcimaDe(startDate, endDate, preco), request);
+    }
+
+    // Obtém quantos dias do período ficaram abaixo, iguais e acima do preço informado, e o percentil desse preço.
+    @GetMapping("/moeda/{data1}&{data2}/posicao/{preco}")
+    public ResponseEntity<byte[]> getPosicaoPreco(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate, @PathVariable("preco") String preco, WebRequest request) {
+        moedaService.validarPeriodo(startDate, endDate);
+        PoliticaCacheHttp.Cabecalhos cache = politicaCacheHttp.periodo("posicao", startDate, endDate, preco);
+        RespostasCache.Chave chave = RespostasCache.Chave.de("posicao", startDate, endDate, preco);
+        return json(cache, chave, () -> moedaService.getPosicaoPreco(startDate, endDate, preco), request);
+    }
+
+    // Obtém o percentil da cotação atual ou da última disponível entre as cotações do período.
+    @GetMapping("/moeda/{data1}&{data2}/posicao-atual")
+    public ResponseEntity<PosicaoPrecoDto> getPosicaoCotacaoAtual(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate) {
+        PosicaoPrecoDto posicaoPrecoDto = moedaService.getPosicaoCotacaoAtual(startDate, endDate);
+        return politicaCacheHttp.recente().ok().body(posicaoPrecoDto);
+    }
+
+    // Obtém a mínima, a máxima, a média e o desvio padrão das cotações do período.
+    @GetMapping("/moeda/{data1}&{data2}/estatisticas")
+    public ResponseEntity<byte[]> getEstatisticasPeriodo(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate, WebRequest request) {
+        moedaService.validarPeriodo(startDate, endDate);
+        PoliticaCacheHttp.Cabecalhos cache = politicaCacheHttp.periodo("estatisticas", startDate, endDate);
+        RespostasCache.Chave chave = RespostasCache.Chave.de("estatisticas", startDate, endDate, null);
+        return json(cache, chave, () -> moedaService.getEstatisticasPeriodo(startDate, endDate), request);
+    }
+
+    // Agrupa as cotações do período em candles por semana, mês, trimestre ou ano.
+    @GetMapping("/moeda/{data1}&{data2}/candles/{agrupamento}")
+    public ResponseEntity<byte[]> getCandles(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate, @PathVariable("agrupamento") String agrupamento, WebRequest request) {
+        moedaService.validarPeriodo(startDate, endDate);
+        PoliticaCacheHttp.Cabecalhos cache = politicaCacheHttp.periodo("candles", startDate, endDate, agrupamento);
+        RespostasCache.Chave chave = RespostasCache.Chave.de("candles", startDate, endDate, agrupamento);
+        return json(cache, chave, () -> moedaService.getCandles(startDate, endDate, agrupamento), request);
+    }
+
+    // Obtém os resumos mensais ou anuais do período, lidos das tabelas de resumo do banco de dados.
+    @GetMapping("/moeda/{data1}&{data2}/resumos/{agrupamento}")
+    public ResponseEntity<List<CandleDto>> getResumos(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate, @PathVariable("agrupamento") String agrupamento) {
+        List<CandleDto> resumos = resumoCotacaoService.getResumos(startDate, endDate, agrupamento);
+        return ResponseEntity.ok().body(resumos);
+    }
+
+    // Transmite em NDJSON (uma cotação JSON por linha) as cotações do período, à medida que ficam disponíveis.
+    @GetMapping(value = "/moeda/{data1}&{data2}", produces = MEDIA_TYPE_NDJSON)
+    public ResponseEntity<StreamingResponseBody> transmitirCotacoesPeriodo(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate, WebRequest request) {
+        moedaService.validarPeriodo(startDate, endDate);
+        // O status e os cabeçalhos saem antes da primeira linha. Um trecho lido do banco ou da API durante a transmissão
+        // pode falhar no meio e truncar o corpo, então os validadores e o cache longo só valem com o período já em memória.
+        PoliticaCacheHttp.Cabecalhos cache = moedaService.periodoEmMemoria(startDate, endDate)
+                ? politicaCacheHttp.periodo("periodo-ndjson", startDate, endDate)
+                : politicaCacheHttp.recente();
+        if (cache.clienteAtualizado(request)) return cache.respostaNaoModificada();
+        return this.<MoedaDto>ndjson(consumidor -> moedaService.transmitirCotacoesPeriodo(startDate, endDate, consumidor), cache.ok());
+    }
+
+    // Transmite em NDJSON as cotações do período menores que a cotação atual ou a última disponível.
+    @GetMapping(value = "/moeda/{data1}&{data2}/cotacoes-menores-atual", produces = MEDIA_TYPE_NDJSON)
+    public ResponseEntity<StreamingResponseBody> transmitirCotacoesMenoresAtual(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate) {
+        moedaService.validarPeriodo(startDate, endDate);
+        return this.<MoedaDto>ndjson(consumidor -> moedaService.transmitirCotacoesMenoresAtual(startDate, endDate, consumidor), politicaCacheHttp.recente().ok());
+    }
+
+    // Transmite em NDJSON as cotações do período maiores que a cotação atual ou a última disponível.
+    @GetMapping(value = "/moeda/{data1}&{data2}/cotacoes-maiores-atual", produces = MEDIA_TYPE_NDJSON)
+    public ResponseEntity<StreamingResponseBody> transmitirCotacoesMaioresAtual(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate) {
+        moedaService.validarPeriodo(startDate, endDate);
+        return this.<MoedaDto>ndjson(consumidor -> moedaService.transmitirCotacoesMaioresAtual(startDate, endDate, consumidor), politicaCacheHttp.recente().ok());
     }
 
     // Obtém uma lista de cotações de moeda no período especificado, salvando-as no banco de dados.
     @GetMapping("/moeda/{data1}&{data2}/salvar")
-    public ResponseEntity<String> getCotacoesPeriodoESalvarNoBanco(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate) throws IOException, MalformedURLException, ParseException {
-        String mensagem = moedaService.salvarNoBdCotacoesDeDolarPorPeriodo(startDate, endDate);
-        return ResponseEntity.ok().body(mensagem);
+    public ResponseEntity<ResultadoIngestaoDto> getCotacoesPeriodoESalvarNoBanco(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate) throws IOException, MalformedURLException, ParseException {
+        ResultadoIngestaoDto resultado = ingestaoService.salvarPeriodo(startDate, endDate);
+        return ResponseEntity.ok().body(resultado);
+    }
+
+    // Compara os resumos mensais e anuais com as cotações salvas.
+    @GetMapping("/moeda/resumos/verificar")
+    public ResponseEntity<VerificacaoResumosDto> verificarResumos() {
+        VerificacaoResumosDto verificacao = resumoCotacaoService.verificar();
+        return ResponseEntity.ok().body(verificacao);
+    }
+
+    // Recalcula os resumos mensais e anuais a partir das cotações salvas.
+    @PostMapping("/moeda/resumos/reconstruir")
+    public ResponseEntity<ResultadoIngestaoDto> reconstruirResumos() {
+        ResultadoIngestaoDto resultado = resumoCotacaoService.reconstruir();
+        return ResponseEntity.ok().body(resultado);
+    }
+
+    // Regrava com 4 casas o próximo bloco de cotações que o banco ainda tem arredondadas para 2 casas.
+    @PostMapping("/moeda/cotacoes/corrigir")
+    public ResponseEntity<ResultadoIngestaoDto> corrigirCotacoes() {
+        ResultadoIngestaoDto resultado = ingestaoService.corrigirProximoBloco();
+        return ResponseEntity.ok().body(resultado);
+    }
+
+    // Grava no banco de dados apenas as cotações do período que ainda não estão salvas.
+    @GetMapping("/moeda/{data1}&{data2}/sincronizar")
+    public ResponseEntity<ResultadoIngestaoDto> sincronizarCotacoesPeriodoNoBanco(@PathVariable("data1") String startDate, @PathVariable("data2") String endDate) {
+        ResultadoIngestaoDto resultado = ingestaoService.sincronizarPeriodo(startDate, endDate);
+        return ResponseEntity.ok().body(resultado);
     }
 
     // Busca no banco de dados a cotação de determinada data.
@@ -64,4 +227,106 @@ public class MoedaController {
         return ResponseEntity.ok().body(moedaDto);
     }
 
+    // Busca no banco de dados a cotação de determinada data ou, se ela não for dia útil, a do último dia útil anterior.
+    @GetMapping("/moeda/cotacao-data/{data}/ultimo-dia-util")
+    public ResponseEntity<MoedaDto> retornaCotacaoJaSalvaAteData(@PathVariable("data") String data) {
+        MoedaDto moedaDto = moedaService.retornaCotacaoJaSalvaPorData(data, true);
+        return ResponseEntity.ok().body(moedaDto);
+    }
+
+    // Busca no banco de dados as cotações de uma lista de datas, com uma única consulta por faixa.
+    @PostMapping("/moeda/cotacao-data")
+    public ResponseEntity<List<CotacaoPorDataDto>> getCotacoesPorDatas(@RequestBody List<String> datas) {
+        List<CotacaoPorDataDto> cotacoes = moedaService.getCotacoesPorDatas(datas, false);
+        return ResponseEntity.ok().body(cotacoes);
+    }
+
+    // Busca no banco de dados as cotações de uma lista de datas, trocando as que não são dias úteis pelo último dia útil anterior.
+    @PostMapping("/moeda/cotacao-data/ultimo-dia-util")
+    public ResponseEntity<List<CotacaoPorDataDto>> getCotacoesAteDatas(@RequestBody List<String> datas) {
+        List<CotacaoPorDataDto> cotacoes = moedaService.getCotacoesPorDatas(datas, true);
+        return ResponseEntity.ok().body(cotacoes);
+    }
+
+    // Converte valores entre dólares e reais pela cotação salva de cada data.
+    @PostMapping(value = "/moeda/conversao", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ConversaoDto>> converter(@RequestBody List<ConversaoSolicitadaDto> solicitacoes) {
+        List<ConversaoDto> convertidas = conversaoService.converter(solicitacoes, false);
+        return ResponseEntity.ok().body(convertidas);
+    }
+
+    // Converte valores entre dólares e reais, usando o último dia útil anterior para datas que não são dias úteis.
+    @PostMapping(value = "/moeda/conversao/ultimo-dia-util", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ConversaoDto>> converterAteDiaUtil(@RequestBody List<ConversaoSolicitadaDto> solicitacoes) {
+        List<ConversaoDto> convertidas = conversaoService.converter(solicitacoes, true);
+        return ResponseEntity.ok().body(convertidas);
+    }
+
+    // Lê em NDJSON os valores a converter e transmite em NDJSON cada conversão assim que a linha correspondente é lida.
+    @PostMapping(value = "/moeda/conversao", consumes = MEDIA_TYPE_NDJSON, produces = MEDIA_TYPE_NDJSON)
+    public ResponseEntity<StreamingResponseBody> transmitirConversao(InputStream entrada) {
+        return ndjsonConversao(entrada, false);
+    }
+
+    // Igual à anterior, usando o último dia útil anterior para datas que não são dias úteis.
+    @PostMapping(value = "/moeda/conversao/ultimo-dia-util", consumes = MEDIA_TYPE_NDJSON, produces = MEDIA_TYPE_NDJSON)
+    public ResponseEntity<StreamingResponseBody> transmitirConversaoAteDiaUtil(InputStream entrada) {
+        return ndjsonConversao(entrada, true);
+    }
+
+    // Converte cada linha NDJSON da entrada e escreve o resultado antes de ler a próxima.
+    private ResponseEntity<StreamingResponseBody> ndjsonConversao(InputStream entrada, boolean diaUtilAnterior) {
+        return this.<ConversaoDto>ndjson(consumidor -> {
+            try (MappingIterator<ConversaoSolicitadaDto> solicitacoes = objectMapper.readerFor(ConversaoSolicitadaDto.class).readValues(entrada)) {
+                conversaoService.converter(solicitacoes, diaUtilAnterior, consumidor);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, ResponseEntity.ok());
+    }
+
+    // Responde em JSON. A resposta de um período definitivo sai do RespostasCache já serializada, comprimida em gzip se o
+    // cliente aceitar; as demais são serializadas a cada requisição.
+    private ResponseEntity<byte[]> json(PoliticaCacheHttp.Cabecalhos cache, RespostasCache.Chave chave, Supplier<Object> fonte, WebRequest request) {
+        boolean gzip = cache.definitivo() && respostasCache.gzipHabilitado() && PoliticaCacheHttp.aceitaGzip(request);
+        if (gzip) {
+            cache = cache.emGzip();
+        }
+        if (cache.clienteAtualizado(request)) return cache.respostaNaoModificada();
+
+        byte[] corpo = cache.definitivo()
+                ? respostasCache.obter(chave, gzip, () -> serializar(fonte.get()))
+                : serializar(fonte.get());
+        ResponseEntity.BodyBuilder resposta = cache.ok().contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            resposta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return resposta.body(corpo);
+    }
+
+    private byte[] serializar(Object corpo) {
+        try {
+            return objectMapper.writeValueAsBytes(corpo);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Monta uma resposta NDJSON que escreve cada item no socket assim que a fonte o entrega.
+    private <T> ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<T>> fonte, ResponseEntity.BodyBuilder resposta) {
+        StreamingResponseBody corpo = outputStream -> {
+            BufferedOutputStream saida = new BufferedOutputStream(outputStream);
+            fonte.accept(item -> {
+                try {
+                    saida.write(objectMapper.writeValueAsBytes(item));
+                    saida.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            saida.flush();
+        };
+        return resposta.contentType(MediaType.parseMediaType(MEDIA_TYPE_NDJSON)).body(corpo);
+    }
+
 }
@@ -0,0 +1,21 @@
+package shx.cotacaodolar.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Candle das cotações de um grupo de dias (semana, mês, trimestre ou ano).
+ * inicio e fim são os limites do grupo no formato "dd/MM/yyyy"; a abertura e o fechamento são a primeira e a última cotação
+ * do grupo, e a média tem 4 casas decimais.
+ *
+ * @param inicio
+ * @param fim
+ * @param abertura
+ * @param maxima
+ * @param minima
+ * @param fechamento
+ * @param media
+ * @param dias
+ */
+public record CandleDto(String inicio, String fim, BigDecimal abertura, BigDecimal maxima, BigDecimal minima,
+                        BigDecimal fechamento, BigDecimal media, int dias) {
+}
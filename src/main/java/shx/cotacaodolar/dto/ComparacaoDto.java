@@ -0,0 +1,14 @@
+package shx.cotacaodolar.dto;
+
+import java.util.List;
+
+/**
+ * Cotações de um período separadas em relação à cotação atual, obtidas em uma única passada.
+ *
+ * @param cotacaoAtual
+ * @param menores
+ * @param iguais
+ * @param maiores
+ */
+public record ComparacaoDto(MoedaDto cotacaoAtual, List<MoedaDto> menores, List<MoedaDto> iguais, List<MoedaDto> maiores) {
+}
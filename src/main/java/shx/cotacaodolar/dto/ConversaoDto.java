@@ -0,0 +1,19 @@
+package shx.cotacaodolar.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Resultado da conversão de um valor. Os três primeiros campos repetem a solicitação; se ela não puder ser convertida,
+ * os campos da cotação e o valor convertido ficam nulos e o erro explica o motivo.
+ *
+ * @param data
+ * @param valor
+ * @param direcao
+ * @param dataCotacao     Data da cotação usada, no formato "dd/MM/yyyy".
+ * @param cotacao
+ * @param valorConvertido Valor na moeda de destino, com 2 casas decimais.
+ * @param erro
+ */
+public record ConversaoDto(String data, BigDecimal valor, String direcao, String dataCotacao, BigDecimal cotacao,
+                           BigDecimal valorConvertido, String erro) {
+}
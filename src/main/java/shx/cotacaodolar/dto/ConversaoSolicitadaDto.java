@@ -0,0 +1,13 @@
+package shx.cotacaodolar.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Valor a ser convertido pela cotação salva de uma data.
+ *
+ * @param data    Data da cotação no formato "MM-dd-yyyy".
+ * @param valor   Valor na moeda de origem.
+ * @param direcao "usd-brl" ou "brl-usd".
+ */
+public record ConversaoSolicitadaDto(String data, BigDecimal valor, String direcao) {
+}
@@ -0,0 +1,11 @@
+package shx.cotacaodolar.dto;
+
+/**
+ * Resultado da busca em lote de uma data: a data como foi solicitada e a cotação salva encontrada para ela, ou nula se
+ * não houver cotação salva.
+ *
+ * @param data
+ * @param cotacao
+ */
+public record CotacaoPorDataDto(String data, MoedaDto cotacao) {
+}
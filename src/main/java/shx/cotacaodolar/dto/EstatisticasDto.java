@@ -0,0 +1,17 @@
+package shx.cotacaodolar.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Estatísticas das cotações de um período.
+ * A média e o desvio padrão (populacional) têm 4 casas decimais; todos os campos exceto totalDias são nulos se o período
+ * não tiver cotações.
+ *
+ * @param totalDias
+ * @param minima
+ * @param maxima
+ * @param media
+ * @param desvioPadrao
+ */
+public record EstatisticasDto(int totalDias, MoedaDto minima, MoedaDto maxima, BigDecimal media, BigDecimal desvioPadrao) {
+}
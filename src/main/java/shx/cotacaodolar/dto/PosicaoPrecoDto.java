@@ -0,0 +1,17 @@
+package shx.cotacaodolar.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Posição de um preço entre as cotações de um período.
+ * O percentil considera os dias abaixo do preço mais metade dos dias iguais a ele, e é nulo se o período não tiver cotações.
+ *
+ * @param preco
+ * @param diasAbaixo
+ * @param diasIguais
+ * @param diasAcima
+ * @param totalDias
+ * @param percentil
+ */
+public record PosicaoPrecoDto(BigDecimal preco, int diasAbaixo, int diasIguais, int diasAcima, int totalDias, BigDecimal percentil) {
+}
@@ -0,0 +1,11 @@
+package shx.cotacaodolar.dto;
+
+/**
+ * Resultado da gravação de um período de cotações no banco de dados.
+ *
+ * @param mensagem
+ * @param inseridas Cotações gravadas nesta operação.
+ * @param ignoradas Cotações que já estavam salvas.
+ */
+public record ResultadoIngestaoDto(String mensagem, int inseridas, int ignoradas) {
+}
@@ -0,0 +1,12 @@
+package shx.cotacaodolar.dto;
+
+import java.util.List;
+
+/**
+ * Resultado da comparação dos resumos mensais e anuais com as cotações salvas.
+ *
+ * @param consistente
+ * @param divergencias
+ */
+public record VerificacaoResumosDto(boolean consistente, List<String> divergencias) {
+}
@@ -0,0 +1,20 @@
+package shx.cotacaodolar.infra;
+
+import javax.persistence.EntityNotFoundException;
+
+/**
+ * Indica que não há cotação salva para a data consultada. É um resultado esperado (fins de semana e feriados nunca têm
+ * registro) e sempre vira uma resposta 404, então a exceção não captura a pilha de chamadas, que é a parte cara da
+ * sua criação.
+ */
+public class CotacaoNaoEncontradaException extends EntityNotFoundException {
+
+    public CotacaoNaoEncontradaException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
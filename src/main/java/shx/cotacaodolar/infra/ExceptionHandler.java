@@ -46,4 +46,40 @@ public class ExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(exceptionDto);
     }
 
+    /**
+     * Trata exceções do tipo InvalidPriceException e retorna uma resposta HTTP com status 400 (Solicitação Inválida).
+     *
+     * @param exception Exceção do tipo InvalidPriceException a ser tratada.
+     * @return Uma resposta HTTP com status 400 contendo um objeto ExceptionDto com a mensagem de erro.
+     */
+    @org.springframework.web.bind.annotation.ExceptionHandler(InvalidPriceException.class)
+    public ResponseEntity<ExceptionDto> handleInvalidPrice(InvalidPriceException exception) {
+        ExceptionDto exceptionDto = new ExceptionDto(exception.getMessage(), "400");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(exceptionDto);
+    }
+
+    /**
+     * Trata exceções do tipo InvalidGroupingException e retorna uma resposta HTTP com status 400 (Solicitação Inválida).
+     *
+     * @param exception Exceção do tipo InvalidGroupingException a ser tratada.
+     * @return Uma resposta HTTP com status 400 contendo um objeto ExceptionDto com a mensagem de erro.
+     */
+    @org.springframework.web.bind.annotation.ExceptionHandler(InvalidGroupingException.class)
+    public ResponseEntity<ExceptionDto> handleInvalidGrouping(InvalidGroupingException exception) {
+        ExceptionDto exceptionDto = new ExceptionDto(exception.getMessage(), "400");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(exceptionDto);
+    }
+
+    /**
+     * Trata exceções do tipo IngestaoEmAndamentoException e retorna uma resposta HTTP com status 409 (Conflito).
+     *
+     * @param exception Exceção do tipo IngestaoEmAndamentoException a ser tratada.
+     * @return Uma resposta HTTP com status 409 contendo um objeto ExceptionDto com a mensagem de erro.
+     */
+    @org.springframework.web.bind.annotation.ExceptionHandler(IngestaoEmAndamentoException.class)
+    public ResponseEntity<ExceptionDto> handleIngestaoEmAndamento(IngestaoEmAndamentoException exception) {
+        ExceptionDto exceptionDto = new ExceptionDto(exception.getMessage(), "409");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(exceptionDto);
+    }
+
 }
@@ -0,0 +1,13 @@
+package shx.cotacaodolar.infra;
+
+public class IngestaoEmAndamentoException extends RuntimeException {
+    private static final String DEFAULT_MESSAGE = "Outra instância está gravando cotações no banco de dados. Tente novamente em instantes.";
+
+    public IngestaoEmAndamentoException() {
+        super(DEFAULT_MESSAGE);
+    }
+
+    public IngestaoEmAndamentoException(String message) {
+        super(message);
+    }
+}
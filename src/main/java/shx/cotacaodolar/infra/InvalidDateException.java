@@ -6,4 +6,8 @@ public class InvalidDateException extends RuntimeException {
     public InvalidDateException() {
         super(DEFAULT_MESSAGE);
     }
+
+    public InvalidDateException(String message) {
+        super(message);
+    }
 }
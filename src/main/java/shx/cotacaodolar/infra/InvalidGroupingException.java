@@ -0,0 +1,13 @@
+package shx.cotacaodolar.infra;
+
+public class InvalidGroupingException extends RuntimeException {
+    private static final String DEFAULT_MESSAGE = "O agrupamento informado deve ser 'semana', 'mes', 'trimestre' ou 'ano'.";
+
+    public InvalidGroupingException() {
+        super(DEFAULT_MESSAGE);
+    }
+
+    public InvalidGroupingException(String message) {
+        super(message);
+    }
+}
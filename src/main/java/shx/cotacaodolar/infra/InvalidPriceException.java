@@ -0,0 +1,9 @@
+package shx.cotacaodolar.infra;
+
+public class InvalidPriceException extends RuntimeException {
+    private static final String DEFAULT_MESSAGE = "O preço informado deve ser um número não negativo, como '5.1234'.";
+
+    public InvalidPriceException() {
+        super(DEFAULT_MESSAGE);
+    }
+}
@@ -0,0 +1,172 @@
+package shx.cotacaodolar.infra;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Cabeçalhos de cache HTTP das respostas de período.
+ * Um período que termina antes de hoje só tem boletins já publicados e nunca muda, então sua resposta recebe um ETag forte
+ * derivado da própria requisição, Last-Modified no fim do último dia do período e um Cache-Control público de longa
+ * duração. Como o ETag não depende do corpo, um If-None-Match correspondente é respondido com 304 antes de qualquer consulta.
+ * Períodos que incluem hoje, e respostas que dependem da cotação atual, recebem apenas um Cache-Control curto.
+ */
+@Component
+public class PoliticaCacheHttp {
+    // Deve ser incrementada sempre que o formato de alguma resposta mudar, para invalidar os ETags já distribuídos.
+    private static final String VERSAO_REPRESENTACAO = "1";
+    private static final DateTimeFormatter FORMATO_ENTRADA = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+
+    private final Clock clock;
+    private final CacheControl controleHistorico;
+    private final CacheControl controleRecente;
+
+    public PoliticaCacheHttp(Clock clock,
+                             @Value("${http.cache.max-age-historico-segundos:31536000}") long maxAgeHistorico,
+                             @Value("${http.cache.max-age-recente-segundos:60}") long maxAgeRecente) {
+        this.clock = clock;
+        this.controleHistorico = CacheControl.maxAge(Duration.ofSeconds(maxAgeHistorico)).cachePublic();
+        this.controleRecente = CacheControl.maxAge(Duration.ofSeconds(maxAgeRecente)).cachePublic();
+    }
+
+    /**
+     * Define os cabeçalhos da resposta de um período já validado.
+     *
+     * @param variante  Nome da rota e do formato da resposta, como "periodo-json" ou "candles".
+     * @param startDate A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate   A data de término do período no formato "MM-dd-yyyy".
+     * @param extras    Demais parâmetros da rota que alteram a resposta, como o preço ou o agrupamento.
+     * @return Cabeçalhos com validadores se o período for todo histórico; apenas um Cache-Control curto caso contrário.
+     */
+    public Cabecalhos periodo(String variante, String startDate, String endDate, String... extras) {
+        LocalDate inicio = LocalDate.parse(startDate, FORMATO_ENTRADA);
+        LocalDate fim = LocalDate.parse(endDate, FORMATO_ENTRADA);
+        // A cotação de hoje pode ainda não ter sido publicada, então só os dias anteriores são definitivos.
+        if (!fim.isBefore(LocalDate.now(clock))) {
+            return recente();
+        }
+
+        StringBuilder chave = new StringBuilder(VERSAO_REPRESENTACAO).append('|').append(variante)
+                .append('|').append(inicio).append('|').append(fim);
+        for (String extra : extras) {
+            chave.append('|').append(extra);
+        }
+        String etag = "\"" + DigestUtils.md5DigestAsHex(chave.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+        long ultimaModificacao = fim.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+        return new Cabecalhos(etag, ultimaModificacao, controleHistorico);
+    }
+
+    /**
+     * Define os cabeçalhos de uma resposta que pode mudar a qualquer momento, como as que dependem da cotação atual.
+     */
+    public Cabecalhos recente() {
+        return new Cabecalhos(null, -1, controleRecente);
+    }
+
+    /**
+     * Indica se o Accept-Encoding da requisição aceita gzip, respeitando os valores q: "gzip;q=0" recusa a codificação,
+     * e "*" só vale para gzip quando ele não aparece nomeado.
+     */
+    public static boolean aceitaGzip(WebRequest request) {
+        String codificacoes = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (codificacoes == null) {
+            return false;
+        }
+        boolean curinga = false;
+        for (String item : codificacoes.split(",")) {
+            String[] partes = item.split(";");
+            String codificacao = partes[0].trim().toLowerCase(Locale.ROOT);
+            if (codificacao.equals("gzip") || codificacao.equals("x-gzip")) {
+                return qualidade(partes) > 0;
+            }
+            if (codificacao.equals("*")) {
+                curinga = qualidade(partes) > 0;
+            }
+        }
+        return curinga;
+    }
+
+    // Valor q dos parâmetros de um item do Accept-Encoding; 1 se ausente e 0 se inválido.
+    private static double qualidade(String[] partes) {
+        for (int i = 1; i < partes.length; i++) {
+            String parametro = partes[i].trim();
+            if (parametro.length() > 1 && Character.toLowerCase(parametro.charAt(0)) == 'q' && parametro.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(parametro.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Cabeçalhos de cache de uma resposta.
+     *
+     * @param etag              ETag forte, ou null se a resposta não tiver validadores.
+     * @param ultimaModificacao Last-Modified em milissegundos, ou -1 se a resposta não tiver validadores.
+     * @param controle          Cache-Control da resposta.
+     */
+    public record Cabecalhos(String etag, long ultimaModificacao, CacheControl controle) {
+
+        /**
+         * Indica se a resposta é de um período que não muda mais.
+         */
+        public boolean definitivo() {
+            return etag != null;
+        }
+
+        /**
+         * Cabeçalhos da mesma resposta com o corpo comprimido em gzip. O ETag forte identifica os bytes enviados, então
+         * a versão comprimida recebe um ETag próprio.
+         */
+        public Cabecalhos emGzip() {
+            if (etag == null) {
+                return this;
+            }
+            return new Cabecalhos(etag.substring(0, etag.length() - 1) + "-gzip\"", ultimaModificacao, controle);
+        }
+
+        /**
+         * Verifica os cabeçalhos If-None-Match e If-Modified-Since da requisição. Se a cópia do cliente ainda for válida,
+         * a resposta já fica com o status 304 e os validadores, e respostaNaoModificada completa os cabeçalhos.
+         */
+        public boolean clienteAtualizado(WebRequest request) {
+            return etag != null && request.checkNotModified(etag, ultimaModificacao);
+        }
+
+        /**
+         * Resposta 304, sem corpo, com o mesmo Cache-Control da resposta completa.
+         */
+        public <T> ResponseEntity<T> respostaNaoModificada() {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(controle).build();
+        }
+
+        /**
+         * Resposta 200 com o Cache-Control e, se houver, o ETag e o Last-Modified.
+         * A resposta varia com os cabeçalhos Accept, já que a mesma rota pode responder em JSON ou em NDJSON, e
+         * Accept-Encoding, já que o corpo pode ser enviado comprimido.
+         */
+        public ResponseEntity.BodyBuilder ok() {
+            ResponseEntity.BodyBuilder resposta = ResponseEntity.ok().cacheControl(controle).varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+            if (etag != null) {
+                resposta.eTag(etag).lastModified(ultimaModificacao);
+            }
+            return resposta;
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package shx.cotacaodolar.model;
+
+import shx.cotacaodolar.infra.InvalidGroupingException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Períodos usados para agrupar as cotações diárias em candles. As semanas começam na segunda-feira.
+ */
+public enum Agrupamento {
+    SEMANA("semana"),
+    MES("mes"),
+    TRIMESTRE("trimestre"),
+    ANO("ano");
+
+    private final String nome;
+
+    Agrupamento(String nome) {
+        this.nome = nome;
+    }
+
+    /**
+     * Converte o nome recebido na URL, como "semana" ou "mes".
+     *
+     * @param nome Nome do agrupamento.
+     * @return Agrupamento correspondente.
+     * @throws InvalidGroupingException Se o nome não corresponder a nenhum agrupamento.
+     */
+    public static Agrupamento de(String nome) {
+        for (Agrupamento agrupamento : values()) {
+            if (agrupamento.nome.equalsIgnoreCase(nome)) {
+                return agrupamento;
+            }
+        }
+        throw new InvalidGroupingException();
+    }
+
+    /**
+     * Primeiro dia do grupo que contém a data.
+     */
+    public LocalDate inicio(LocalDate data) {
+        return switch (this) {
+            case SEMANA -> data.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MES -> data.withDayOfMonth(1);
+            case TRIMESTRE -> LocalDate.of(data.getYear(), (data.getMonthValue() - 1) / 3 * 3 + 1, 1);
+            case ANO -> data.withDayOfYear(1);
+        };
+    }
+
+    /**
+     * Último dia do grupo que contém a data.
+     */
+    public LocalDate fim(LocalDate data) {
+        return proximo(inicio(data)).minusDays(1);
+    }
+
+    /**
+     * Primeiro dia do grupo seguinte ao que contém a data.
+     */
+    public LocalDate proximo(LocalDate data) {
+        LocalDate inicio = inicio(data);
+        return switch (this) {
+            case SEMANA -> inicio.plusWeeks(1);
+            case MES -> inicio.plusMonths(1);
+            case TRIMESTRE -> inicio.plusMonths(3);
+            case ANO -> inicio.plusYears(1);
+        };
+    }
+}
@@ -0,0 +1,35 @@
+package shx.cotacaodolar.model;
+
+/**
+ * Sentidos de conversão de valores pela cotação PTAX de venda: de dólares para reais, multiplicando pela cotação, ou de
+ * reais para dólares, dividindo por ela.
+ */
+public enum DirecaoConversao {
+    USD_BRL("usd-brl"),
+    BRL_USD("brl-usd");
+
+    private final String nome;
+
+    DirecaoConversao(String nome) {
+        this.nome = nome;
+    }
+
+    /**
+     * Converte o nome recebido na requisição, como "usd-brl" ou "brl-usd".
+     *
+     * @param nome Nome da direção.
+     * @return Direção correspondente, ou null se o nome não corresponder a nenhuma direção.
+     */
+    public static DirecaoConversao de(String nome) {
+        for (DirecaoConversao direcao : values()) {
+            if (direcao.nome.equalsIgnoreCase(nome)) {
+                return direcao;
+            }
+        }
+        return null;
+    }
+
+    public String nome() {
+        return nome;
+    }
+}
@@ -0,0 +1,40 @@
+package shx.cotacaodolar.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Progresso da ingestão agendada das cotações, persistido para sobreviver a reinícios.
+ * A marca d'água (ultimaDataIngerida) avança com as novas cotações, e backfillAte recua conforme o histórico é preenchido.
+ */
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Table(name = "tb_estado_ingestao")
+public class EstadoIngestao implements Serializable {
+    @Id
+    @Column(name = "chave")
+    public String chave;
+
+    // Última data com cotação salva pela ingestão incremental.
+    @Column(name = "ultima_data_ingerida")
+    public LocalDate ultimaDataIngerida;
+
+    // Data mais antiga já preenchida pelo backfill; o histórico anterior a ela ainda falta.
+    @Column(name = "backfill_ate")
+    public LocalDate backfillAte;
+
+    @Column(name = "atualizado_em")
+    public Instant atualizadoEm;
+
+}
@@ -0,0 +1,20 @@
+package shx.cotacaodolar.model;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Intervalo fechado de datas, incluindo tanto a data inicial quanto a final.
+ *
+ * @param inicio
+ * @param fim
+ */
+public record Intervalo(LocalDate inicio, LocalDate fim) {
+
+    /**
+     * Quantidade de dias corridos do intervalo, contando as duas extremidades.
+     */
+    public long dias() {
+        return ChronoUnit.DAYS.between(inicio, fim) + 1;
+    }
+}
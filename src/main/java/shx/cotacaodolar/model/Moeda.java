@@ -17,17 +17,15 @@ import java.util.Date;
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
-@Table(name = "tb_cotacao_dolar", uniqueConstraints = @UniqueConstraint(columnNames = {"data"}))
+@Table(name = "tb_cotacao_dolar") // Esquema mantido pelas migrações em db/migration
 public class Moeda implements Serializable {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    @Column(name = "id")
-    public Long id;
     @NotNull(message = "O preço não pode ser nulo")
     @Min(value = 0, message = "O preço não pode ser negativo")
-    @Column(name = "cotacao")
+    @Column(name = "cotacao", precision = 10, scale = 4) // A PTAX é publicada com 4 casas decimais
     public BigDecimal preco;
 
+    // Há uma única cotação PTAX por dia, então a própria data é a chave primária.
+    @Id
     @NotNull(message = "A data não pode ser nula")
     @Temporal(TemporalType.DATE) // Configura o formato da data no banco de dados
     @DateTimeFormat(pattern = "dd/MM/yyyy") // Formato da data ao receber entrada do usuário
@@ -0,0 +1,71 @@
+package shx.cotacaodolar.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Resumo materializado das cotações de um mês ou de um ano de tb_cotacao_dolar, mantido a cada inserção de cotações.
+ * Consultas de longo prazo leem algumas dezenas de resumos em vez de dezenas de milhares de cotações diárias.
+ */
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@IdClass(ResumoCotacao.Chave.class)
+@Table(name = "tb_resumo_cotacao")
+public class ResumoCotacao implements Serializable {
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "agrupamento", length = 16)
+    public Agrupamento agrupamento;
+
+    // Primeiro dia do mês ou do ano.
+    @Id
+    @Column(name = "inicio")
+    public LocalDate inicio;
+
+    @Column(name = "minima", precision = 10, scale = 4, nullable = false)
+    public BigDecimal minima;
+
+    @Column(name = "maxima", precision = 10, scale = 4, nullable = false)
+    public BigDecimal maxima;
+
+    @Column(name = "soma", precision = 16, scale = 4, nullable = false)
+    public BigDecimal soma;
+
+    @Column(name = "quantidade", nullable = false)
+    public int quantidade;
+
+    @Column(name = "primeira_data", nullable = false)
+    public LocalDate primeiraData;
+
+    @Column(name = "abertura", precision = 10, scale = 4, nullable = false)
+    public BigDecimal abertura;
+
+    @Column(name = "ultima_data", nullable = false)
+    public LocalDate ultimaData;
+
+    @Column(name = "fechamento", precision = 10, scale = 4, nullable = false)
+    public BigDecimal fechamento;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Chave implements Serializable {
+        private Agrupamento agrupamento;
+        private LocalDate inicio;
+    }
+
+}
@@ -0,0 +1,34 @@
+package shx.cotacaodolar.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Trava com expiração que garante que apenas uma instância da aplicação faça ingestão na API do BCB por vez.
+ * Quem detém a trava é identificado por um token por aquisição; se a instância cair, a trava expira sozinha.
+ */
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Table(name = "tb_trava_ingestao")
+public class TravaIngestao implements Serializable {
+    @Id
+    @Column(name = "nome")
+    public String nome;
+
+    @Column(name = "dono", nullable = false)
+    public String dono;
+
+    @Column(name = "expira_em", nullable = false)
+    public Instant expiraEm;
+
+}
@@ -0,0 +1,16 @@
+package shx.cotacaodolar.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.util.Date;
+
+/**
+ * Projeção das colunas de Moeda usadas para servir cotações, sem carregar a entidade gerenciada.
+ */
+public interface CotacaoSalva {
+    BigDecimal getPreco();
+
+    Date getData();
+
+    LocalTime getHora();
+}
@@ -1,13 +1,34 @@
 package shx.cotacaodolar.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import shx.cotacaodolar.model.Moeda;
 
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface MoedaRepository extends JpaRepository<Moeda, Long> {
+public interface MoedaRepository extends JpaRepository<Moeda, Date>, MoedaRepositoryCustom {
     Optional<Moeda> findByData(Date data);
+
+    // Apenas as datas já salvas no período, em uma única consulta por faixa.
+    @Query("select m.data from Moeda m where m.data between :inicio and :fim order by m.data")
+    List<Date> findDatasSalvasEntre(@Param("inicio") Date inicio, @Param("fim") Date fim);
+
+    // Cotações do período (data between ? and ?) em ordem cronológica, lendo apenas as colunas da projeção.
+    List<CotacaoSalva> findByDataBetweenOrderByData(Date inicio, Date fim);
+
+    // Todas as cotações salvas em ordem cronológica, usadas para reconstruir o arquivo de histórico.
+    List<CotacaoSalva> findAllByOrderByData();
+
+    // Data mais antiga cuja cotação ainda tem só 2 casas decimais (anotada pela migração V3).
+    @Query(value = "SELECT MIN(data) FROM tb_cotacao_a_corrigir", nativeQuery = true)
+    Optional<Date> findPrimeiraDataACorrigir();
+
+    // Datas do período cujas cotações ainda têm só 2 casas decimais.
+    @Query(value = "SELECT data FROM tb_cotacao_a_corrigir WHERE data BETWEEN :inicio AND :fim ORDER BY data", nativeQuery = true)
+    List<Date> findDatasACorrigirEntre(@Param("inicio") Date inicio, @Param("fim") Date fim);
 }
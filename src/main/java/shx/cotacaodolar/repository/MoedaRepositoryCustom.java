@@ -0,0 +1,55 @@
+package shx.cotacaodolar.repository;
+
+import shx.cotacaodolar.model.Moeda;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Operações do repositório de cotações que não são expressas pelo Spring Data JPA.
+ */
+public interface MoedaRepositoryCustom {
+
+    /**
+     * Insere as cotações em lotes, ignorando as datas que já estão salvas.
+     *
+     * @param moedas Cotações a serem inseridas.
+     * @return Quantidade de cotações efetivamente inseridas.
+     */
+    int inserirIgnorandoExistentes(List<Moeda> moedas);
+
+    /**
+     * Regrava as cotações informadas cujas datas estão em tb_cotacao_a_corrigir e retira da tabela as datas do período.
+     * Quando não resta nenhuma data a corrigir, os resumos mensais e anuais são recalculados na mesma transação.
+     *
+     * @param moedas Cotações com 4 casas decimais, buscadas de novo na API.
+     * @param inicio Data inicial do período buscado.
+     * @param fim    Data final do período buscado.
+     * @return Quantidade de cotações regravadas.
+     */
+    int corrigirCotacoes(List<Moeda> moedas, Date inicio, Date fim);
+
+    /**
+     * Entrega ao consumidor, em ordem cronológica e à medida que são lidas do banco, as cotações salvas no período.
+     * As linhas são lidas por um cursor, em blocos, dentro de uma transação somente leitura que dura até a última entrega.
+     *
+     * @param inicio     Data inicial do período.
+     * @param fim        Data final do período.
+     * @param consumidor Destino de cada cotação lida.
+     */
+    void percorrerEntre(Date inicio, Date fim, Consumer<CotacaoSalva> consumidor);
+
+    /**
+     * Como percorrerEntre, mas interrompe a leitura na primeira cotação recusada pelo consumidor, fechando o cursor e
+     * liberando a conexão antes de retornar.
+     *
+     * @param inicio     Data inicial do período.
+     * @param fim        Data final do período.
+     * @param consumidor Recebe cada cotação lida e retorna falso para interromper a leitura; a cotação recusada não é
+     *                   considerada entregue.
+     * @return Verdadeiro se o período foi lido até o fim.
+     */
+    boolean percorrerEnquanto(Date inicio, Date fim, Predicate<CotacaoSalva> consumidor);
+}
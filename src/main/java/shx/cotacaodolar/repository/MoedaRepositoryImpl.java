@@ -0,0 +1,150 @@
+package shx.cotacaodolar.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import shx.cotacaodolar.model.Moeda;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Implementação das operações de MoedaRepositoryCustom com JDBC.
+ * Pelo Spring Data, salvar uma Moeda cuja chave (a data) é atribuída pela aplicação faria um SELECT antes de cada
+ * gravação para decidir entre inserir e mesclar; aqui o período inteiro é enviado em lotes de INSERT ... ON CONFLICT
+ * DO NOTHING, dentro de uma única transação, e as datas já salvas são ignoradas pelo próprio banco.
+ * As cotações efetivamente inseridas são incorporadas aos resumos mensais e anuais na mesma transação.
+ */
+public class MoedaRepositoryImpl implements MoedaRepositoryCustom {
+    private static final int TAMANHO_LOTE = 500;
+    // A data é a chave primária e a única restrição da tabela, então o conflito sem alvo é o da data; o H2 (usado nos
+    // testes) não aceita o alvo do conflito.
+    private static final String INSERIR_IGNORANDO_EXISTENTES =
+            "INSERT INTO tb_cotacao_dolar (cotacao, data, hora) VALUES (?, ?, ?) ON CONFLICT DO NOTHING";
+    private static final String CORRIGIR =
+            "UPDATE tb_cotacao_dolar SET cotacao = ?, hora = ? WHERE data = ? AND data IN (SELECT data FROM tb_cotacao_a_corrigir)";
+    private static final String CONCLUIR_CORRECAO = "DELETE FROM tb_cotacao_a_corrigir WHERE data BETWEEN ? AND ?";
+    private static final String RESTANTES_A_CORRIGIR = "SELECT COUNT(*) FROM tb_cotacao_a_corrigir";
+    private static final String PERCORRER_ENTRE =
+            "SELECT cotacao, data, hora FROM tb_cotacao_dolar WHERE data BETWEEN ? AND ? ORDER BY data";
+    // Linhas trazidas do banco por vez; o PostgreSQL só usa um cursor com a transação aberta e o tamanho definido.
+    private static final int TAMANHO_BLOCO_LEITURA = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ResumoCotacaoRepository resumoCotacaoRepository;
+
+    public MoedaRepositoryImpl(JdbcTemplate jdbcTemplate, ResumoCotacaoRepository resumoCotacaoRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.resumoCotacaoRepository = resumoCotacaoRepository;
+    }
+
+    @Override
+    @Transactional
+    public int inserirIgnorandoExistentes(List<Moeda> moedas) {
+        int[][] resultados = jdbcTemplate.batchUpdate(INSERIR_IGNORANDO_EXISTENTES, moedas, TAMANHO_LOTE, (statement, moeda) -> {
+            statement.setBigDecimal(1, moeda.getPreco());
+            statement.setDate(2, new Date(moeda.getData().getTime()));
+            statement.setObject(3, moeda.getHora());
+        });
+
+        // Os resultados vêm na ordem das cotações, um lote por vez; 0 indica uma data que já estava salva.
+        List<Moeda> inseridas = new ArrayList<Moeda>();
+        int posicao = 0;
+        for (int[] lote : resultados) {
+            for (int linhas : lote) {
+                if (linhas > 0) {
+                    inseridas.add(moedas.get(posicao));
+                }
+                posicao++;
+            }
+        }
+        if (!inseridas.isEmpty()) {
+            resumoCotacaoRepository.acumular(inseridas);
+        }
+        return inseridas.size();
+    }
+
+    @Override
+    @Transactional
+    public int corrigirCotacoes(List<Moeda> moedas, java.util.Date inicio, java.util.Date fim) {
+        int[][] resultados = jdbcTemplate.batchUpdate(CORRIGIR, moedas, TAMANHO_LOTE, (statement, moeda) -> {
+            statement.setBigDecimal(1, moeda.getPreco());
+            statement.setObject(2, moeda.getHora());
+            statement.setDate(3, new Date(moeda.getData().getTime()));
+        });
+        int corrigidas = 0;
+        for (int[] lote : resultados) {
+            for (int linhas : lote) {
+                if (linhas > 0) {
+                    corrigidas++;
+                }
+            }
+        }
+
+        // As datas do período que a API não devolveu também saem da tabela: a API é a fonte, e elas manteriam a correção
+        // presa no mesmo bloco.
+        jdbcTemplate.update(CONCLUIR_CORRECAO, new Date(inicio.getTime()), new Date(fim.getTime()));
+        // Os resumos foram acumulados com as cotações arredondadas; com a última correção, são recalculados de uma vez.
+        Integer restantes = jdbcTemplate.queryForObject(RESTANTES_A_CORRIGIR, Integer.class);
+        if (restantes != null && restantes == 0) {
+            resumoCotacaoRepository.reconstruir();
+        }
+        return corrigidas;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void percorrerEntre(java.util.Date inicio, java.util.Date fim, Consumer<CotacaoSalva> consumidor) {
+        percorrer(inicio, fim, cotacaoSalva -> {
+            consumidor.accept(cotacaoSalva);
+            return true;
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean percorrerEnquanto(java.util.Date inicio, java.util.Date fim, Predicate<CotacaoSalva> consumidor) {
+        return percorrer(inicio, fim, consumidor);
+    }
+
+    // Lê a faixa por um cursor até o fim ou até o consumidor recusar uma cotação; o cursor é fechado ao retornar.
+    private boolean percorrer(java.util.Date inicio, java.util.Date fim, Predicate<CotacaoSalva> consumidor) {
+        Boolean completa = jdbcTemplate.query(PERCORRER_ENTRE, statement -> {
+            statement.setFetchSize(TAMANHO_BLOCO_LEITURA);
+            statement.setDate(1, new Date(inicio.getTime()));
+            statement.setDate(2, new Date(fim.getTime()));
+        }, resultado -> {
+            while (resultado.next()) {
+                if (!consumidor.test(new CotacaoLida(resultado.getBigDecimal("cotacao"), resultado.getDate("data"),
+                        resultado.getObject("hora", LocalTime.class)))) {
+                    return false;
+                }
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(completa);
+    }
+
+    // Cotação lida pelo cursor, com a mesma forma da projeção usada pelas consultas do Spring Data.
+    private record CotacaoLida(BigDecimal preco, Date data, LocalTime hora) implements CotacaoSalva {
+        @Override
+        public BigDecimal getPreco() {
+            return preco;
+        }
+
+        @Override
+        public Date getData() {
+            return data;
+        }
+
+        @Override
+        public LocalTime getHora() {
+            return hora;
+        }
+    }
+
+}
@@ -0,0 +1,14 @@
+package shx.cotacaodolar.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import shx.cotacaodolar.model.Agrupamento;
+import shx.cotacaodolar.model.ResumoCotacao;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ResumoCotacaoRepository extends JpaRepository<ResumoCotacao, ResumoCotacao.Chave>, ResumoCotacaoRepositoryCustom {
+    List<ResumoCotacao> findByAgrupamentoAndInicioBetweenOrderByInicio(Agrupamento agrupamento, LocalDate inicio, LocalDate fim);
+}
@@ -0,0 +1,33 @@
+package shx.cotacaodolar.repository;
+
+import shx.cotacaodolar.model.Moeda;
+
+import java.util.List;
+
+/**
+ * Manutenção dos resumos mensais e anuais de tb_cotacao_dolar.
+ */
+public interface ResumoCotacaoRepositoryCustom {
+
+    /**
+     * Incorpora aos resumos do mês e do ano as cotações recém-inseridas em tb_cotacao_dolar.
+     * Deve ser chamado na mesma transação da inserção e apenas com as cotações efetivamente inseridas.
+     *
+     * @param inseridas Cotações inseridas.
+     */
+    void acumular(List<Moeda> inseridas);
+
+    /**
+     * Recalcula todos os resumos a partir de tb_cotacao_dolar, substituindo os existentes.
+     *
+     * @return Quantidade de resumos gravados.
+     */
+    int reconstruir();
+
+    /**
+     * Compara os resumos gravados com os calculados a partir de tb_cotacao_dolar.
+     *
+     * @return Descrição de cada resumo divergente, ausente ou sobrando; vazia se estiverem consistentes.
+     */
+    List<String> verificar();
+}
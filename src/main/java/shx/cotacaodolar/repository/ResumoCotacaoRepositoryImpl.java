@@ -0,0 +1,172 @@
+package shx.cotacaodolar.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.annotation.Transactional;
+import shx.cotacaodolar.model.Agrupamento;
+import shx.cotacaodolar.model.Moeda;
+import shx.cotacaodolar.model.ResumoCotacao;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Implementação das operações de ResumoCotacaoRepositoryCustom com JDBC.
+ * A atualização incremental lê com SELECT ... FOR UPDATE os resumos afetados, combina-os com as cotações novas e os grava
+ * de volta; a ingestão é serializada pela trava de ingestão, então dois inserts concorrentes do mesmo resumo não ocorrem.
+ * A reconstrução e a verificação percorrem tb_cotacao_dolar uma única vez, em ordem de data.
+ */
+public class ResumoCotacaoRepositoryImpl implements ResumoCotacaoRepositoryCustom {
+    // Apenas meses e anos são materializados; semanas e trimestres saem das cotações em memória.
+    private static final List<Agrupamento> AGRUPAMENTOS = List.of(Agrupamento.MES, Agrupamento.ANO);
+    private static final Comparator<ResumoCotacao.Chave> ORDEM_CHAVES =
+            Comparator.comparing(ResumoCotacao.Chave::getAgrupamento).thenComparing(ResumoCotacao.Chave::getInicio);
+    private static final String COLUNAS =
+            "agrupamento, inicio, minima, maxima, soma, quantidade, primeira_data, abertura, ultima_data, fechamento";
+    private static final String BUSCAR_PARA_ATUALIZAR =
+            "SELECT " + COLUNAS + " FROM tb_resumo_cotacao WHERE agrupamento = ? AND inicio = ? FOR UPDATE";
+    private static final String INSERIR =
+            "INSERT INTO tb_resumo_cotacao (" + COLUNAS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String ATUALIZAR =
+            "UPDATE tb_resumo_cotacao SET minima = ?, maxima = ?, soma = ?, quantidade = ?, primeira_data = ?, abertura = ?, "
+                    + "ultima_data = ?, fechamento = ? WHERE agrupamento = ? AND inicio = ?";
+    private static final String LISTAR = "SELECT " + COLUNAS + " FROM tb_resumo_cotacao";
+    private static final String COTACOES = "SELECT cotacao, data FROM tb_cotacao_dolar ORDER BY data";
+    private static final RowMapper<ResumoCotacao> MAPEADOR = (resultado, linha) -> new ResumoCotacao(
+            Agrupamento.valueOf(resultado.getString("agrupamento")),
+            resultado.getDate("inicio").toLocalDate(),
+            resultado.getBigDecimal("minima"),
+            resultado.getBigDecimal("maxima"),
+            resultado.getBigDecimal("soma"),
+            resultado.getInt("quantidade"),
+            resultado.getDate("primeira_data").toLocalDate(),
+            resultado.getBigDecimal("abertura"),
+            resultado.getDate("ultima_data").toLocalDate(),
+            resultado.getBigDecimal("fechamento"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ResumoCotacaoRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void acumular(List<Moeda> inseridas) {
+        Map<ResumoCotacao.Chave, ResumoCotacao> novos = new TreeMap<>(ORDEM_CHAVES);
+        for (Moeda moeda : inseridas) {
+            incorporar(novos, moeda.getPreco(), new Date(moeda.getData().getTime()).toLocalDate());
+        }
+
+        // As chaves são percorridas sempre na mesma ordem, o que evita deadlocks entre as travas de linha.
+        for (ResumoCotacao novo : novos.values()) {
+            List<ResumoCotacao> existentes = jdbcTemplate.query(BUSCAR_PARA_ATUALIZAR, MAPEADOR,
+                    novo.getAgrupamento().name(), Date.valueOf(novo.getInicio()));
+            if (existentes.isEmpty()) {
+                jdbcTemplate.update(INSERIR, parametrosInsercao(novo));
+            } else {
+                ResumoCotacao combinado = combinar(existentes.get(0), novo);
+                jdbcTemplate.update(ATUALIZAR, combinado.getMinima(), combinado.getMaxima(), combinado.getSoma(),
+                        combinado.getQuantidade(), Date.valueOf(combinado.getPrimeiraData()), combinado.getAbertura(),
+                        Date.valueOf(combinado.getUltimaData()), combinado.getFechamento(),
+                        combinado.getAgrupamento().name(), Date.valueOf(combinado.getInicio()));
+            }
+        }
+    }
+
+    @Override
+    @Transactional
+    public int reconstruir() {
+        Map<ResumoCotacao.Chave, ResumoCotacao> calculados = calcularDasCotacoes();
+        jdbcTemplate.update("DELETE FROM tb_resumo_cotacao");
+        List<Object[]> linhas = new ArrayList<>(calculados.size());
+        for (ResumoCotacao resumo : calculados.values()) {
+            linhas.add(parametrosInsercao(resumo));
+        }
+        jdbcTemplate.batchUpdate(INSERIR, linhas);
+        return linhas.size();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> verificar() {
+        Map<ResumoCotacao.Chave, ResumoCotacao> calculados = calcularDasCotacoes();
+        Map<ResumoCotacao.Chave, ResumoCotacao> gravados = new TreeMap<>(ORDEM_CHAVES);
+        for (ResumoCotacao resumo : jdbcTemplate.query(LISTAR, MAPEADOR)) {
+            gravados.put(chave(resumo), resumo);
+        }
+
+        List<String> divergencias = new ArrayList<>();
+        for (ResumoCotacao calculado : calculados.values()) {
+            ResumoCotacao gravado = gravados.remove(chave(calculado));
+            if (gravado == null) {
+                divergencias.add(descrever(calculado) + ": ausente");
+            } else if (!equivalentes(gravado, calculado)) {
+                divergencias.add(descrever(calculado) + ": divergente");
+            }
+        }
+        for (ResumoCotacao sobrando : gravados.values()) {
+            divergencias.add(descrever(sobrando) + ": sem cotações");
+        }
+        return divergencias;
+    }
+
+    private Map<ResumoCotacao.Chave, ResumoCotacao> calcularDasCotacoes() {
+        Map<ResumoCotacao.Chave, ResumoCotacao> calculados = new TreeMap<>(ORDEM_CHAVES);
+        jdbcTemplate.query(COTACOES, resultado -> {
+            incorporar(calculados, resultado.getBigDecimal("cotacao"), resultado.getDate("data").toLocalDate());
+        });
+        return calculados;
+    }
+
+    // Soma a cotação aos resumos do mês e do ano da data.
+    private static void incorporar(Map<ResumoCotacao.Chave, ResumoCotacao> resumos, BigDecimal preco, LocalDate data) {
+        for (Agrupamento agrupamento : AGRUPAMENTOS) {
+            ResumoCotacao unitario = new ResumoCotacao(agrupamento, agrupamento.inicio(data), preco, preco, preco, 1,
+                    data, preco, data, preco);
+            resumos.merge(chave(unitario), unitario, ResumoCotacaoRepositoryImpl::combinar);
+        }
+    }
+
+    private static ResumoCotacao combinar(ResumoCotacao a, ResumoCotacao b) {
+        ResumoCotacao primeiro = a.getPrimeiraData().isAfter(b.getPrimeiraData()) ? b : a;
+        ResumoCotacao ultimo = a.getUltimaData().isBefore(b.getUltimaData()) ? b : a;
+        return new ResumoCotacao(a.getAgrupamento(), a.getInicio(),
+                a.getMinima().min(b.getMinima()), a.getMaxima().max(b.getMaxima()), a.getSoma().add(b.getSoma()),
+                a.getQuantidade() + b.getQuantidade(),
+                primeiro.getPrimeiraData(), primeiro.getAbertura(), ultimo.getUltimaData(), ultimo.getFechamento());
+    }
+
+    // Compara os valores numericamente, já que a escala lida do banco pode diferir da calculada.
+    private static boolean equivalentes(ResumoCotacao a, ResumoCotacao b) {
+        return a.getQuantidade() == b.getQuantidade()
+                && a.getMinima().compareTo(b.getMinima()) == 0
+                && a.getMaxima().compareTo(b.getMaxima()) == 0
+                && a.getSoma().compareTo(b.getSoma()) == 0
+                && Objects.equals(a.getPrimeiraData(), b.getPrimeiraData())
+                && a.getAbertura().compareTo(b.getAbertura()) == 0
+                && Objects.equals(a.getUltimaData(), b.getUltimaData())
+                && a.getFechamento().compareTo(b.getFechamento()) == 0;
+    }
+
+    private static Object[] parametrosInsercao(ResumoCotacao resumo) {
+        return new Object[]{resumo.getAgrupamento().name(), Date.valueOf(resumo.getInicio()), resumo.getMinima(),
+                resumo.getMaxima(), resumo.getSoma(), resumo.getQuantidade(), Date.valueOf(resumo.getPrimeiraData()),
+                resumo.getAbertura(), Date.valueOf(resumo.getUltimaData()), resumo.getFechamento()};
+    }
+
+    private static ResumoCotacao.Chave chave(ResumoCotacao resumo) {
+        return new ResumoCotacao.Chave(resumo.getAgrupamento(), resumo.getInicio());
+    }
+
+    private static String descrever(ResumoCotacao resumo) {
+        return resumo.getAgrupamento().name() + " " + resumo.getInicio();
+    }
+}
@@ -0,0 +1,9 @@
+package shx.cotacaodolar.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import shx.cotacaodolar.model.TravaIngestao;
+
+@Repository
+public interface TravaIngestaoRepository extends JpaRepository<TravaIngestao, String>, TravaIngestaoRepositoryCustom {
+}
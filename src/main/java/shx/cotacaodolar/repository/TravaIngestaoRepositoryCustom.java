@@ -0,0 +1,38 @@
+package shx.cotacaodolar.repository;
+
+import java.time.Instant;
+
+/**
+ * Operações atômicas sobre a tabela de travas de ingestão.
+ */
+public interface TravaIngestaoRepositoryCustom {
+
+    /**
+     * Tenta adquirir a trava, tomando-a se estiver livre ou expirada.
+     *
+     * @param nome     Nome da trava.
+     * @param dono     Token de quem a adquire.
+     * @param agora    Instante atual.
+     * @param expiraEm Instante em que a trava deixa de valer se não for liberada.
+     * @return true se a trava foi adquirida.
+     */
+    boolean adquirir(String nome, String dono, Instant agora, Instant expiraEm);
+
+    /**
+     * Prorroga a trava, se ainda pertencer ao dono informado.
+     *
+     * @param nome     Nome da trava.
+     * @param dono     Token usado na aquisição.
+     * @param expiraEm Novo instante de expiração.
+     * @return true se a trava ainda era do dono e foi prorrogada; false se foi tomada por outra execução.
+     */
+    boolean renovar(String nome, String dono, Instant expiraEm);
+
+    /**
+     * Libera a trava, se ainda pertencer ao dono informado.
+     *
+     * @param nome Nome da trava.
+     * @param dono Token usado na aquisição.
+     */
+    void liberar(String nome, String dono);
+}
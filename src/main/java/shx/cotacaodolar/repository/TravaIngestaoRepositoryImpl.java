@@ -0,0 +1,47 @@
+package shx.cotacaodolar.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Implementação das operações de TravaIngestaoRepositoryCustom com JDBC.
+ * Cada comando é atômico no banco: o UPDATE só toma uma trava expirada, e o INSERT ... ON CONFLICT DO NOTHING só cria a
+ * trava se nenhuma outra instância a criou antes. Os mesmos comandos funcionam no PostgreSQL e no H2 em modo PostgreSQL.
+ */
+public class TravaIngestaoRepositoryImpl implements TravaIngestaoRepositoryCustom {
+    private static final String TOMAR_EXPIRADA =
+            "UPDATE tb_trava_ingestao SET dono = ?, expira_em = ? WHERE nome = ? AND expira_em < ?";
+    private static final String CRIAR =
+            "INSERT INTO tb_trava_ingestao (nome, dono, expira_em) VALUES (?, ?, ?) ON CONFLICT DO NOTHING";
+    private static final String RENOVAR =
+            "UPDATE tb_trava_ingestao SET expira_em = ? WHERE nome = ? AND dono = ?";
+    private static final String LIBERAR =
+            "DELETE FROM tb_trava_ingestao WHERE nome = ? AND dono = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TravaIngestaoRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean adquirir(String nome, String dono, Instant agora, Instant expiraEm) {
+        if (jdbcTemplate.update(TOMAR_EXPIRADA, dono, Timestamp.from(expiraEm), nome, Timestamp.from(agora)) == 1) {
+            return true;
+        }
+        return jdbcTemplate.update(CRIAR, nome, dono, Timestamp.from(expiraEm)) == 1;
+    }
+
+    @Override
+    public boolean renovar(String nome, String dono, Instant expiraEm) {
+        return jdbcTemplate.update(RENOVAR, Timestamp.from(expiraEm), nome, dono) == 1;
+    }
+
+    @Override
+    public void liberar(String nome, String dono) {
+        jdbcTemplate.update(LIBERAR, nome, dono);
+    }
+
+}
@@ -0,0 +1,253 @@
+package shx.cotacaodolar.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import shx.cotacaodolar.dto.MoedaDto;
+import shx.cotacaodolar.model.Intervalo;
+import shx.cotacaodolar.repository.CotacaoSalva;
+import shx.cotacaodolar.repository.MoedaRepository;
+import shx.cotacaodolar.util.CalendarioDiasUteis;
+import shx.cotacaodolar.util.MoedaMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Arquivo binário com o histórico das cotações salvas em tb_cotacao_dolar, para que a aplicação já inicie com o
+ * histórico em memória, sem consultar o banco de dados nem a API do BCB.
+ * O arquivo tem um cabeçalho de 8 bytes (número mágico e versão) seguido de registros de 20 bytes: o dia em epoch-day
+ * (int), o preço em ponto fixo com 4 casas (long), a hora em segundos do dia (int) e o CRC32 dos 16 bytes anteriores.
+ * Novas cotações são apenas acrescentadas ao final, em qualquer ordem; na leitura prevalece o último registro de cada dia.
+ * Na inicialização o arquivo é mapeado em memória e decodificado uma única vez para uma SerieCotacoes; se estiver
+ * ausente ou corrompido, é reconstruído a partir do banco de dados.
+ * <p>
+ * A leitura não é zero-copy: o mapeamento só dura a validação dos registros, que são copiados para as colunas em heap
+ * da série. Servir as consultas direto do mapeamento foi descartado porque o arquivo não é ordenado nem deduplicado
+ * (o backfill acrescenta dias anteriores e uma cotação republicada ganha um novo registro), enquanto a busca binária e
+ * as faixas da SerieCotacoes dependem de colunas ordenadas por dia e únicas, e porque o CotacaoCache substitui a série
+ * a cada mesclagem. A cópia custa menos de 200 KB e uma passada de ~10 mil registros, feita uma vez por inicialização.
+ */
+@Component
+public class ArquivoHistorico {
+    static final int MAGICO = 0x50544158; // "PTAX"
+    // A versão 2 descarta arquivos gravados quando o banco ainda arredondava as cotações para 2 casas: eles são
+    // reconstruídos a partir do banco já migrado, e as cotações corrigidas depois são acrescentadas com 4 casas.
+    static final int VERSAO = 2;
+    static final int TAMANHO_CABECALHO = 8;
+    static final int TAMANHO_REGISTRO = 20;
+
+    private final MoedaRepository moedaRepository;
+    private final MoedaMapper mapper;
+    private final CotacaoCache cotacaoCache;
+    private final CalendarioDiasUteis calendario;
+    private final Clock clock;
+    private final boolean habilitado;
+    private final Path arquivo;
+
+    // Conteúdo atual do arquivo. Sem um arquivo válido (antes da abertura ou depois de uma falha) nada é acrescentado,
+    // para que a próxima inicialização o reconstrua por inteiro.
+    private SerieCotacoes conteudo = SerieCotacoes.VAZIA;
+    private boolean disponivel;
+
+    public ArquivoHistorico(MoedaRepository moedaRepository, MoedaMapper mapper, CotacaoCache cotacaoCache,
+                            CalendarioDiasUteis calendario, Clock clock,
+                            @Value("${historico.habilitado:true}") boolean habilitado,
+                            @Value("${historico.arquivo:dados/historico-ptax.bin}") String arquivo) {
+        this.moedaRepository = moedaRepository;
+        this.mapper = mapper;
+        this.cotacaoCache = cotacaoCache;
+        this.calendario = calendario;
+        this.clock = clock;
+        this.habilitado = habilitado;
+        this.arquivo = Path.of(arquivo);
+    }
+
+    /**
+     * Abre o histórico na inicialização e carrega no cache as cotações e os intervalos sem dias úteis faltantes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void aquecerCache() {
+        SerieCotacoes historico = abrir();
+        if (historico.tamanho() == 0) {
+            return;
+        }
+        // A cotação de hoje pode ser republicada, então só os dias anteriores são definitivos.
+        cotacaoCache.registrarHistorico(historico, intervalosCompletos(historico), LocalDate.now(clock).minusDays(1));
+    }
+
+    /**
+     * Lê o arquivo de histórico, reconstruindo-o a partir do banco de dados se estiver ausente ou corrompido.
+     *
+     * @return Série com o histórico, vazia se o histórico estiver desabilitado ou não puder ser lido nem reconstruído.
+     */
+    public synchronized SerieCotacoes abrir() {
+        if (!habilitado) {
+            return SerieCotacoes.VAZIA;
+        }
+        try {
+            conteudo = ler();
+            disponivel = true;
+        } catch (IOException e) {
+            reconstruir();
+        }
+        return conteudo;
+    }
+
+    /**
+     * Acrescenta ao arquivo as cotações que ele ainda não tem, ou cujo preço ou hora mudou.
+     * Uma falha de escrita apaga o arquivo, que é reconstruído na próxima inicialização; a gravação no banco de dados,
+     * que é a fonte oficial, não é afetada.
+     *
+     * @param cotacoes Cotações recém-gravadas no banco de dados.
+     */
+    public synchronized void acrescentar(List<MoedaDto> cotacoes) {
+        if (!disponivel || cotacoes.isEmpty()) {
+            return;
+        }
+        SerieCotacoes recebidas = SerieCotacoes.de(cotacoes);
+        int[] novas = new int[recebidas.tamanho()];
+        int quantidade = 0;
+        for (int i = 0; i < recebidas.tamanho(); i++) {
+            int posicao = Arrays.binarySearch(conteudo.dias(), recebidas.dia(i));
+            if (posicao < 0 || conteudo.preco(posicao) != recebidas.preco(i) || conteudo.segundo(posicao) != recebidas.segundo(i)) {
+                novas[quantidade++] = i;
+            }
+        }
+        if (quantidade == 0) {
+            return;
+        }
+
+        ByteBuffer registros = ByteBuffer.allocate(quantidade * TAMANHO_REGISTRO);
+        for (int i = 0; i < quantidade; i++) {
+            escreverRegistro(registros, recebidas, novas[i]);
+        }
+        registros.flip();
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (registros.hasRemaining()) {
+                canal.write(registros);
+            }
+            canal.force(false);
+            conteudo = conteudo.mesclar(recebidas);
+        } catch (IOException e) {
+            descartar();
+        }
+    }
+
+    // Mapeia o arquivo, valida o cabeçalho e o CRC de cada registro e copia os registros para as colunas da série,
+    // que os ordena e mantém o último de cada dia.
+    private SerieCotacoes ler() throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho < TAMANHO_CABECALHO || (tamanho - TAMANHO_CABECALHO) % TAMANHO_REGISTRO != 0) {
+                throw new IOException("Tamanho inválido do arquivo de histórico: " + tamanho);
+            }
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            if (mapa.getInt(0) != MAGICO || mapa.getInt(4) != VERSAO) {
+                throw new IOException("Cabeçalho inválido no arquivo de histórico");
+            }
+
+            int quantidade = (int) ((tamanho - TAMANHO_CABECALHO) / TAMANHO_REGISTRO);
+            int[] dias = new int[quantidade];
+            long[] precos = new long[quantidade];
+            int[] segundos = new int[quantidade];
+            CRC32 crc = new CRC32();
+            for (int i = 0; i < quantidade; i++) {
+                int inicio = TAMANHO_CABECALHO + i * TAMANHO_REGISTRO;
+                crc.reset();
+                crc.update(mapa.slice(inicio, 16));
+                if ((int) crc.getValue() != mapa.getInt(inicio + 16)) {
+                    throw new IOException("Registro " + i + " corrompido no arquivo de histórico");
+                }
+                dias[i] = mapa.getInt(inicio);
+                precos[i] = mapa.getLong(inicio + 4);
+                segundos[i] = mapa.getInt(inicio + 12);
+            }
+            return SerieCotacoes.deColunas(dias, precos, segundos);
+        }
+    }
+
+    // Regrava o arquivo com todas as cotações do banco de dados, substituindo-o de uma vez ao final.
+    private void reconstruir() {
+        try {
+            List<MoedaDto> salvas = new ArrayList<MoedaDto>();
+            for (CotacaoSalva cotacaoSalva : moedaRepository.findAllByOrderByData()) {
+                salvas.add(mapper.mapearDeCotacaoSalvaParaMoedaDto(cotacaoSalva));
+            }
+            SerieCotacoes serie = SerieCotacoes.de(salvas);
+
+            ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_CABECALHO + serie.tamanho() * TAMANHO_REGISTRO);
+            buffer.putInt(MAGICO).putInt(VERSAO);
+            for (int i = 0; i < serie.tamanho(); i++) {
+                escreverRegistro(buffer, serie, i);
+            }
+            buffer.flip();
+
+            Path diretorio = arquivo.toAbsolutePath().getParent();
+            Files.createDirectories(diretorio);
+            Path temporario = Files.createTempFile(diretorio, "historico", ".tmp");
+            try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    canal.write(buffer);
+                }
+                canal.force(true);
+            }
+            Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            conteudo = serie;
+            disponivel = true;
+        } catch (Exception e) {
+            // Sem banco de dados ou sem disco, a aplicação segue sem o histórico e tenta de novo na próxima inicialização.
+            descartar();
+        }
+    }
+
+    private void descartar() {
+        conteudo = SerieCotacoes.VAZIA;
+        disponivel = false;
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            // Um arquivo que não pôde ser apagado será validado e, se preciso, reconstruído na próxima leitura.
+        }
+    }
+
+    // Agrupa as datas do histórico em intervalos de dias úteis consecutivos.
+    private List<Intervalo> intervalosCompletos(SerieCotacoes historico) {
+        List<Intervalo> intervalos = new ArrayList<>();
+        LocalDate inicio = LocalDate.ofEpochDay(historico.dia(0));
+        LocalDate anterior = inicio;
+        for (int i = 1; i < historico.tamanho(); i++) {
+            LocalDate dia = LocalDate.ofEpochDay(historico.dia(i));
+            if (!dia.equals(calendario.proximoDiaUtil(anterior))) {
+                intervalos.add(new Intervalo(inicio, anterior));
+                inicio = dia;
+            }
+            anterior = dia;
+        }
+        intervalos.add(new Intervalo(inicio, anterior));
+        return intervalos;
+    }
+
+    private static void escreverRegistro(ByteBuffer buffer, SerieCotacoes serie, int posicao) {
+        int inicio = buffer.position();
+        buffer.putInt(serie.dia(posicao)).putLong(serie.preco(posicao)).putInt(serie.segundo(posicao));
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(inicio, 16));
+        buffer.putInt((int) crc.getValue());
+    }
+
+}
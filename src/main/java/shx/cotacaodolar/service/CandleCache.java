@@ -0,0 +1,48 @@
+package shx.cotacaodolar.service;
+
+import org.springframework.stereotype.Component;
+import shx.cotacaodolar.dto.CandleDto;
+import shx.cotacaodolar.model.Agrupamento;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache em memória dos candles de grupos já encerrados, indexados pelo agrupamento e pelo primeiro dia do grupo.
+ * As cotações de dias passados não mudam mais, então um candle encerrado é calculado uma única vez. Mesmo com todo o
+ * histórico, são poucos milhares de candles.
+ */
+@Component
+public class CandleCache {
+    private final Map<Agrupamento, Map<LocalDate, CandleDto>> candles = new EnumMap<>(Agrupamento.class);
+
+    public CandleCache() {
+        for (Agrupamento agrupamento : Agrupamento.values()) {
+            candles.put(agrupamento, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Retorna o candle encerrado do grupo, ou null se ele ainda não foi calculado.
+     *
+     * @param agrupamento Agrupamento do candle.
+     * @param inicio      Primeiro dia do grupo.
+     */
+    public CandleDto consultar(Agrupamento agrupamento, LocalDate inicio) {
+        return candles.get(agrupamento).get(inicio);
+    }
+
+    /**
+     * Guarda o candle de um grupo encerrado.
+     *
+     * @param agrupamento Agrupamento do candle.
+     * @param inicio      Primeiro dia do grupo.
+     * @param candle      Candle calculado.
+     */
+    public void registrar(Agrupamento agrupamento, LocalDate inicio, CandleDto candle) {
+        candles.get(agrupamento).put(inicio, candle);
+    }
+
+}
@@ -0,0 +1,203 @@
+package shx.cotacaodolar.service;
+
+import org.springframework.stereotype.Service;
+import shx.cotacaodolar.dto.ConversaoDto;
+import shx.cotacaodolar.dto.ConversaoSolicitadaDto;
+import shx.cotacaodolar.dto.MoedaDto;
+import shx.cotacaodolar.infra.MoedaException;
+import shx.cotacaodolar.model.DirecaoConversao;
+import shx.cotacaodolar.repository.CotacaoSalva;
+import shx.cotacaodolar.repository.MoedaRepository;
+import shx.cotacaodolar.util.CalendarioDiasUteis;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Conversão em lote de valores entre dólares e reais pela cotação salva de cada data.
+ * As cotações salvas são lidas uma única vez por lote, por um cursor do banco, direto para as colunas de uma
+ * SerieCotacoes: um lote em lista lê apenas a faixa entre a menor e a maior data solicitada, e um lote em streaming, cujas
+ * datas só são conhecidas à medida que chegam, lê o histórico inteiro, que ocupa menos de 200 KB na série. Cada data é
+ * localizada a partir da posição da anterior, então datas em ordem cronológica são casadas com a série em uma só passada.
+ * No streaming, as solicitações são consumidas e os resultados entregues um a um, então um lote de qualquer tamanho é
+ * convertido com memória constante.
+ * O valor convertido tem 2 casas decimais, arredondado com HALF_UP a partir do resultado exato.
+ */
+@Service
+public class ConversaoService {
+    static final int ESCALA_VALOR = 2;
+    static final RoundingMode ARREDONDAMENTO = RoundingMode.HALF_UP;
+    private static final DateTimeFormatter FORMATO_ENTRADA = DateTimeFormatter.ofPattern("MM-dd-uuuu").withResolverStyle(ResolverStyle.STRICT);
+    // Limites da leitura do histórico inteiro.
+    private static final LocalDate PRIMEIRO_DIA = LocalDate.of(1, 1, 1);
+    private static final LocalDate ULTIMO_DIA = LocalDate.of(9999, 12, 31);
+
+    private final MoedaRepository moedaRepository;
+    private final CalendarioDiasUteis calendario;
+
+    public ConversaoService(MoedaRepository moedaRepository, CalendarioDiasUteis calendario) {
+        this.moedaRepository = moedaRepository;
+        this.calendario = calendario;
+    }
+
+    /**
+     * Converte os valores solicitados, na ordem recebida.
+     *
+     * @param solicitacoes    Valores a serem convertidos.
+     * @param diaUtilAnterior Se verdadeiro, uma data que não é dia útil usa a cotação do último dia útil anterior a ela.
+     * @return Um ConversaoDto por solicitação, na mesma ordem.
+     * @throws MoedaException Se ocorrer um erro ao ler as cotações do banco de dados.
+     */
+    public List<ConversaoDto> converter(List<ConversaoSolicitadaDto> solicitacoes, boolean diaUtilAnterior) {
+        // As datas já são todas conhecidas: basta ler a faixa entre a menor e a maior.
+        LocalDate menor = null;
+        LocalDate maior = null;
+        for (ConversaoSolicitadaDto solicitacao : solicitacoes) {
+            LocalDate dia = solicitacao == null ? null : lerData(solicitacao.data(), diaUtilAnterior);
+            if (dia != null) {
+                menor = menor == null || dia.isBefore(menor) ? dia : menor;
+                maior = maior == null || dia.isAfter(maior) ? dia : maior;
+            }
+        }
+        Cursor cursor = new Cursor(menor == null ? SerieCotacoes.VAZIA : lerCotacoesSalvas(menor, maior));
+
+        List<ConversaoDto> convertidas = new ArrayList<>(solicitacoes.size());
+        for (ConversaoSolicitadaDto solicitacao : solicitacoes) {
+            convertidas.add(converter(solicitacao, diaUtilAnterior, cursor));
+        }
+        return convertidas;
+    }
+
+    /**
+     * Converte os valores solicitados à medida que são lidos, entregando cada resultado ao consumidor antes de ler a
+     * próxima solicitação.
+     *
+     * @param solicitacoes    Valores a serem convertidos.
+     * @param diaUtilAnterior Se verdadeiro, uma data que não é dia útil usa a cotação do último dia útil anterior a ela.
+     * @param consumidor      Destino de cada ConversaoDto, na ordem das solicitações.
+     * @throws MoedaException Se ocorrer um erro ao ler as cotações do banco de dados.
+     */
+    public void converter(Iterator<ConversaoSolicitadaDto> solicitacoes, boolean diaUtilAnterior, Consumer<ConversaoDto> consumidor) {
+        Cursor cursor = new Cursor(lerCotacoesSalvas(PRIMEIRO_DIA, ULTIMO_DIA));
+        while (solicitacoes.hasNext()) {
+            consumidor.accept(converter(solicitacoes.next(), diaUtilAnterior, cursor));
+        }
+    }
+
+    private ConversaoDto converter(ConversaoSolicitadaDto solicitacao, boolean diaUtilAnterior, Cursor cursor) {
+        if (solicitacao == null) {
+            return new ConversaoDto(null, null, null, null, null, null, "Solicitação vazia.");
+        }
+        LocalDate dia;
+        try {
+            dia = LocalDate.parse(solicitacao.data(), FORMATO_ENTRADA);
+        } catch (DateTimeParseException | NullPointerException e) {
+            return erro(solicitacao, "A data deve ser válida, no formato 'MM-dd-yyyy'.");
+        }
+        if (solicitacao.valor() == null) {
+            return erro(solicitacao, "O valor a ser convertido não foi informado.");
+        }
+        DirecaoConversao direcao = DirecaoConversao.de(solicitacao.direcao());
+        if (direcao == null) {
+            return erro(solicitacao, "A direção deve ser 'usd-brl' ou 'brl-usd'.");
+        }
+
+        if (diaUtilAnterior) {
+            dia = calendario.ultimoDiaUtilAte(dia);
+        }
+        int posicao = cursor.localizar((int) dia.toEpochDay());
+        if (posicao < 0) {
+            return erro(solicitacao, "Não há cotação salva para o dia '" + dia.format(FORMATO_ENTRADA) + "'.");
+        }
+
+        MoedaDto cotacao = cursor.serie.cotacao(posicao);
+        BigDecimal convertido = switch (direcao) {
+            case USD_BRL -> solicitacao.valor().multiply(cotacao.preco()).setScale(ESCALA_VALOR, ARREDONDAMENTO);
+            case BRL_USD -> solicitacao.valor().divide(cotacao.preco(), ESCALA_VALOR, ARREDONDAMENTO);
+        };
+        return new ConversaoDto(solicitacao.data(), solicitacao.valor(), solicitacao.direcao(), cotacao.data(), cotacao.preco(), convertido, null);
+    }
+
+    private static ConversaoDto erro(ConversaoSolicitadaDto solicitacao, String mensagem) {
+        return new ConversaoDto(solicitacao.data(), solicitacao.valor(), solicitacao.direcao(), null, null, null, mensagem);
+    }
+
+    // Data da solicitação, já trocada pelo último dia útil se pedido, ou null se for inválida.
+    private LocalDate lerData(String data, boolean diaUtilAnterior) {
+        try {
+            LocalDate dia = LocalDate.parse(data, FORMATO_ENTRADA);
+            return diaUtilAnterior ? calendario.ultimoDiaUtilAte(dia) : dia;
+        } catch (DateTimeParseException | NullPointerException e) {
+            return null;
+        }
+    }
+
+    // Cotações salvas na faixa, em uma única consulta, lidas direto para as colunas da série.
+    private SerieCotacoes lerCotacoesSalvas(LocalDate inicio, LocalDate fim) {
+        try {
+            Colunas colunas = new Colunas();
+            moedaRepository.percorrerEntre(java.sql.Date.valueOf(inicio), java.sql.Date.valueOf(fim), colunas::acrescentar);
+            return colunas.serie();
+        } catch (Exception e) {
+            throw new MoedaException("Algum erro inesperado aconteceu: " + e.getMessage());
+        }
+    }
+
+    // Colunas da série em construção, lidas em ordem cronológica.
+    private static final class Colunas {
+        private int[] dias = new int[256];
+        private long[] precos = new long[256];
+        private int[] segundos = new int[256];
+        private int tamanho;
+
+        private void acrescentar(CotacaoSalva cotacaoSalva) {
+            if (tamanho == dias.length) {
+                dias = Arrays.copyOf(dias, tamanho << 1);
+                precos = Arrays.copyOf(precos, tamanho << 1);
+                segundos = Arrays.copyOf(segundos, tamanho << 1);
+            }
+            dias[tamanho] = (int) new java.sql.Date(cotacaoSalva.getData().getTime()).toLocalDate().toEpochDay();
+            precos[tamanho] = SerieCotacoes.paraPontoFixo(cotacaoSalva.getPreco(), RoundingMode.HALF_UP);
+            segundos[tamanho] = cotacaoSalva.getHora().toSecondOfDay();
+            tamanho++;
+        }
+
+        private SerieCotacoes serie() {
+            return SerieCotacoes.deColunas(Arrays.copyOf(dias, tamanho), Arrays.copyOf(precos, tamanho), Arrays.copyOf(segundos, tamanho));
+        }
+    }
+
+    // Posição corrente na série. Cada busca é feita só no lado da posição anterior em que a data pode estar, então datas
+    // em ordem cronológica percorrem a série uma única vez, e datas fora de ordem continuam custando O(log n).
+    private static final class Cursor {
+        private final SerieCotacoes serie;
+        private final int[] dias;
+        private int posicao;
+        private int ultimoDia = Integer.MIN_VALUE;
+
+        private Cursor(SerieCotacoes serie) {
+            this.serie = serie;
+            this.dias = serie.dias();
+        }
+
+        // Posição do dia na série, ou um valor negativo se o dia não tiver cotação.
+        private int localizar(int dia) {
+            int encontrada = dia >= ultimoDia
+                    ? Arrays.binarySearch(dias, posicao, dias.length, dia)
+                    : Arrays.binarySearch(dias, 0, posicao, dia);
+            ultimoDia = dia;
+            posicao = encontrada >= 0 ? encontrada : -encontrada - 1;
+            return encontrada;
+        }
+    }
+
+}
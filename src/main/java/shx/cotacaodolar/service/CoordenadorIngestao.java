@@ -0,0 +1,149 @@
+package shx.cotacaodolar.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import shx.cotacaodolar.infra.IngestaoEmAndamentoException;
+import shx.cotacaodolar.repository.TravaIngestaoRepository;
+
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Coordena a ingestão entre instâncias da aplicação pela trava com expiração em tb_trava_ingestao.
+ * Cada execução adquire a trava com um token próprio, então duas ingestões não se sobrepõem nem na mesma instância.
+ * Enquanto a tarefa executa, a trava é prorrogada a cada terço da duração, então uma ingestão longa não a deixa expirar.
+ * Se a prorrogação encontrar a trava com outro dono, a tarefa é interrompida e a execução termina com
+ * IngestaoEmAndamentoException, em vez de seguir gravando junto com a outra instância.
+ * As instâncias que não obtêm a trava não consultam a API e seguem servindo as cotações do banco de dados.
+ * A expiração usa o relógio da aplicação, então pressupõe relógios sincronizados entre as instâncias.
+ */
+@Component
+public class CoordenadorIngestao {
+    static final String TRAVA = "ingestao-ptax";
+    private static final String TRAVA_PERDIDA = "A trava de ingestão foi tomada por outra instância antes do fim da execução.";
+
+    private final TravaIngestaoRepository travaIngestaoRepository;
+    private final Clock clock;
+    private final Duration duracao;
+    private final String instancia;
+    // Thread própria: a do agendador do Spring fica ocupada pela ingestão agendada enquanto ela executa.
+    private final ScheduledExecutorService renovacoes;
+
+    public CoordenadorIngestao(TravaIngestaoRepository travaIngestaoRepository, Clock clock,
+                               @Value("${ingestao.trava.duracao-segundos:600}") long duracaoSegundos) {
+        this.travaIngestaoRepository = travaIngestaoRepository;
+        this.clock = clock;
+        this.duracao = Duration.ofSeconds(duracaoSegundos);
+        this.instancia = nomeDaInstancia();
+        this.renovacoes = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "ingestao-trava");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        renovacoes.shutdownNow();
+    }
+
+    /**
+     * Executa a tarefa se a trava de ingestão puder ser adquirida, prorrogando-a durante a execução e liberando-a ao final.
+     *
+     * @param tarefa Ingestão a ser executada.
+     * @return Resultado da tarefa, ou vazio se outra execução detém a trava.
+     * @throws IngestaoEmAndamentoException Se a trava foi tomada por outra execução antes de a tarefa terminar.
+     */
+    public <T> Optional<T> executarComTrava(Supplier<T> tarefa) {
+        String dono = instancia + "/" + UUID.randomUUID();
+        Instant agora = clock.instant();
+        if (!travaIngestaoRepository.adquirir(TRAVA, dono, agora, agora.plus(duracao))) {
+            return Optional.empty();
+        }
+
+        Execucao execucao = new Execucao(Thread.currentThread());
+        long intervalo = Math.max(1, duracao.toMillis() / 3);
+        ScheduledFuture<?> renovacao = renovacoes.scheduleAtFixedRate(() -> renovar(dono, execucao), intervalo, intervalo, TimeUnit.MILLISECONDS);
+        try {
+            T resultado = tarefa.get();
+            if (execucao.perdida()) {
+                throw new IngestaoEmAndamentoException(TRAVA_PERDIDA);
+            }
+            return Optional.ofNullable(resultado);
+        } catch (RuntimeException e) {
+            if (execucao.perdida()) {
+                throw new IngestaoEmAndamentoException(TRAVA_PERDIDA);
+            }
+            throw e;
+        } finally {
+            renovacao.cancel(false);
+            execucao.encerrar();
+            travaIngestaoRepository.liberar(TRAVA, dono);
+        }
+    }
+
+    // Prorroga a trava; se ela já tem outro dono, interrompe a tarefa. Uma falha do banco não interrompe: a próxima
+    // tentativa ainda ocorre antes da expiração.
+    private void renovar(String dono, Execucao execucao) {
+        boolean renovada;
+        try {
+            renovada = travaIngestaoRepository.renovar(TRAVA, dono, clock.instant().plus(duracao));
+        } catch (RuntimeException e) {
+            return;
+        }
+        if (!renovada) {
+            execucao.perder();
+        }
+    }
+
+    private static String nomeDaInstancia() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "desconhecida";
+        }
+    }
+
+    // Estado de uma execução com a trava. A interrupção e o encerramento são sincronizados para que a thread da tarefa
+    // nunca seja interrompida depois de terminar, quando já pode estar executando outra coisa.
+    private static final class Execucao {
+        private final Thread thread;
+        private boolean perdida;
+        private boolean encerrada;
+
+        private Execucao(Thread thread) {
+            this.thread = thread;
+        }
+
+        private synchronized void perder() {
+            if (!encerrada && !perdida) {
+                perdida = true;
+                thread.interrupt();
+            }
+        }
+
+        private synchronized boolean perdida() {
+            return perdida;
+        }
+
+        private synchronized void encerrar() {
+            encerrada = true;
+            if (perdida) {
+                // Descarta a interrupção que ainda não foi consumida pela tarefa.
+                Thread.interrupted();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+package shx.cotacaodolar.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import shx.cotacaodolar.dto.MoedaDto;
+import shx.cotacaodolar.util.CalendarioDiasUteis;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Cache da cotação atual do dólar, ciente do horário de publicação da PTAX (por volta das 13h).
+ * A cotação em memória vale até o próximo horário, em dia útil, em que uma nova cotação pode ser publicada. Depois desse horário,
+ * enquanto o boletim do dia não sai, a API é consultada no máximo uma vez por intervalo de atualização.
+ * Requisições simultâneas aguardam uma única busca em andamento em vez de dispararem buscas próprias.
+ */
+@Component
+public class CotacaoAtualCache {
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final Clock clock;
+    private final CalendarioDiasUteis calendario;
+    private final LocalTime horarioPublicacao;
+    private final Duration intervaloAtualizacao;
+
+    private volatile Entrada entrada;
+    private final AtomicReference<CompletableFuture<MoedaDto>> buscaEmAndamento = new AtomicReference<>();
+
+    public CotacaoAtualCache(Clock clock, CalendarioDiasUteis calendario,
+                             @Value("${ptax.publicacao.hora:13}") int horaPublicacao,
+                             @Value("${ptax.cotacao-atual.intervalo-atualizacao-minutos:5}") long intervaloAtualizacaoMinutos) {
+        this.clock = clock;
+        this.calendario = calendario;
+        this.horarioPublicacao = LocalTime.of(horaPublicacao, 0);
+        this.intervaloAtualizacao = Duration.ofMinutes(intervaloAtualizacaoMinutos);
+    }
+
+    /**
+     * Retorna a cotação atual em memória ou, se ela estiver vencida, busca uma nova com o buscador informado.
+     * Se a busca falhar e houver uma cotação anterior em memória, ela é retornada.
+     *
+     * @param buscador Função que obtém a última cotação disponível na API.
+     * @return MoedaDto com a última cotação conhecida.
+     */
+    public MoedaDto obter(Supplier<MoedaDto> buscador) {
+        Entrada atual = entrada;
+        if (atual != null && atual.valida(clock.instant())) {
+            return atual.moeda();
+        }
+        return atualizar(buscador);
+    }
+
+    /**
+     * Descarta a cotação em memória, forçando uma nova busca na próxima chamada.
+     */
+    public void invalidar() {
+        entrada = null;
+    }
+
+    // Executa uma única busca por vez; as demais threads aguardam o resultado dela.
+    private MoedaDto atualizar(Supplier<MoedaDto> buscador) {
+        CompletableFuture<MoedaDto> novaBusca = new CompletableFuture<>();
+        CompletableFuture<MoedaDto> existente = buscaEmAndamento.compareAndExchange(null, novaBusca);
+        if (existente != null) {
+            return aguardar(existente);
+        }
+
+        try {
+            // Outra thread pode ter concluído uma busca entre a verificação e a obtenção da vez.
+            Entrada atual = entrada;
+            if (atual != null && atual.valida(clock.instant())) {
+                novaBusca.complete(atual.moeda());
+                return atual.moeda();
+            }
+
+            MoedaDto moeda = buscarOuUsarAnterior(buscador, atual);
+            novaBusca.complete(moeda);
+            return moeda;
+        } catch (RuntimeException e) {
+            novaBusca.completeExceptionally(e);
+            throw e;
+        } finally {
+            buscaEmAndamento.set(null);
+        }
+    }
+
+    private MoedaDto buscarOuUsarAnterior(Supplier<MoedaDto> buscador, Entrada anterior) {
+        try {
+            MoedaDto moeda = buscador.get();
+            entrada = new Entrada(moeda, calcularValidade(moeda));
+            return moeda;
+        } catch (RuntimeException e) {
+            if (anterior == null) {
+                throw e;
+            }
+            // Mantém a cotação anterior e só tenta novamente após o intervalo de atualização.
+            entrada = new Entrada(anterior.moeda(), clock.instant().plus(intervaloAtualizacao));
+            return anterior.moeda();
+        }
+    }
+
+    private MoedaDto aguardar(CompletableFuture<MoedaDto> busca) {
+        try {
+            return busca.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Calcula até quando a cotação obtida pode ser servida da memória.
+     * Se a cotação é de hoje, ou se hoje não é dia útil, ela vale até o horário de publicação do próximo dia útil.
+     * Se não é de hoje e o horário de publicação de hoje ainda não chegou, vale até esse horário. Caso contrário o
+     * boletim do dia está atrasado e a cotação vale apenas pelo intervalo de atualização.
+     */
+    Instant calcularValidade(MoedaDto moeda) {
+        ZonedDateTime agora = ZonedDateTime.now(clock);
+        LocalDate hoje = agora.toLocalDate();
+        LocalDate dataCotacao = LocalDate.parse(moeda.data(), FORMATO_DATA);
+
+        if (!dataCotacao.isBefore(hoje) || !calendario.ehDiaUtil(hoje)) {
+            return horarioDePublicacao(calendario.proximoDiaUtil(hoje));
+        }
+        if (agora.toInstant().isBefore(horarioDePublicacao(hoje))) {
+            return horarioDePublicacao(hoje);
+        }
+        return agora.plus(intervaloAtualizacao).toInstant();
+    }
+
+    private Instant horarioDePublicacao(LocalDate dia) {
+        return dia.atTime(horarioPublicacao).atZone(clock.getZone()).toInstant();
+    }
+
+    private record Entrada(MoedaDto moeda, Instant validaAte) {
+        boolean valida(Instant agora) {
+            return agora.isBefore(validaAte);
+        }
+    }
+
+}
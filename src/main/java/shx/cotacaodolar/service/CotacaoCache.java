@@ -0,0 +1,260 @@
+package shx.cotacaodolar.service;
+
+import org.springframework.stereotype.Component;
+import shx.cotacaodolar.dto.MoedaDto;
+import shx.cotacaodolar.model.Intervalo;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Cache em memória das cotações PTAX indexado por data.
+ * Uma cotação publicada pelo BCB não muda mais, então cada dia buscado uma vez pode ser servido da memória.
+ * As cotações ficam em uma SerieCotacoes colunar e imutável, substituída a cada registro, então as leituras não bloqueiam
+ * e as listas retornadas são visões que só criam os MoedaDto quando lidas.
+ * Além das cotações, o cache guarda os intervalos já consultados na API ("cobertura"), para que dias sem cotação
+ * (fins de semana e feriados) também não voltem a ser buscados.
+ */
+@Component
+public class CotacaoCache {
+    private volatile SerieCotacoes serie = SerieCotacoes.VAZIA;
+    // Intervalos disjuntos e já mesclados já consultados na API, indexados pela data inicial.
+    private final NavigableMap<LocalDate, LocalDate> cobertura = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Índice de preços e estatísticas da última série para a qual foram construídos.
+    private volatile IndicePrecos indicePrecos;
+    private volatile EstatisticasSerie estatisticas;
+
+    /**
+     * Calcula os sub-intervalos do período informado que ainda não foram consultados na API.
+     *
+     * @param inicio Data inicial do período.
+     * @param fim    Data final do período.
+     * @return Lista ordenada dos intervalos que precisam ser buscados na API. Vazia se o período estiver todo em memória.
+     */
+    public List<Intervalo> intervalosFaltantes(LocalDate inicio, LocalDate fim) {
+        List<Intervalo> faltantes = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            LocalDate cursor = inicio;
+
+            // Um intervalo coberto que começa antes do período ainda pode alcançá-lo.
+            Map.Entry<LocalDate, LocalDate> anterior = cobertura.floorEntry(cursor);
+            if (anterior != null && !anterior.getValue().isBefore(cursor)) {
+                cursor = anterior.getValue().plusDays(1);
+            }
+            if (cursor.isAfter(fim)) {
+                return faltantes;
+            }
+
+            for (Map.Entry<LocalDate, LocalDate> coberto : cobertura.subMap(cursor, false, fim, true).entrySet()) {
+                if (coberto.getKey().isAfter(cursor)) {
+                    faltantes.add(new Intervalo(cursor, coberto.getKey().minusDays(1)));
+                }
+                cursor = coberto.getValue().plusDays(1);
+            }
+
+            if (!cursor.isAfter(fim)) {
+                faltantes.add(new Intervalo(cursor, fim));
+            }
+            return faltantes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retorna as cotações em memória para o período informado, em ordem cronológica.
+     *
+     * @param inicio Data inicial do período.
+     * @param fim    Data final do período.
+     * @return Visão somente leitura com os MoedaDto do período.
+     */
+    public List<MoedaDto> consultar(LocalDate inicio, LocalDate fim) {
+        SerieCotacoes atual = serie;
+        int[] faixa = atual.faixa(inicio, fim);
+        return atual.visao(faixa[0], faixa[1]);
+    }
+
+    /**
+     * Percorre as cotações em memória do período, em ordem cronológica, entregando-as ao consumidor.
+     * A série percorrida é imutável, então um consumidor lento (por exemplo, a escrita em um socket) não impede o registro
+     * de novas cotações.
+     *
+     * @param inicio     Data inicial do período.
+     * @param fim        Data final do período.
+     * @param consumidor Destino de cada MoedaDto.
+     */
+    public void percorrer(LocalDate inicio, LocalDate fim, Consumer<MoedaDto> consumidor) {
+        SerieCotacoes atual = serie;
+        int[] faixa = atual.faixa(inicio, fim);
+        for (int i = faixa[0]; i < faixa[1]; i++) {
+            consumidor.accept(atual.cotacao(i));
+        }
+    }
+
+    /**
+     * Retorna a série atual de cotações em memória, para varreduras sobre os arrays primitivos.
+     *
+     * @return Série imutável com todas as cotações em memória.
+     */
+    public SerieCotacoes serie() {
+        return serie;
+    }
+
+    /**
+     * Retorna o índice de preços das cotações em memória, reconstruindo-o apenas se as cotações mudaram desde a última
+     * construção.
+     *
+     * @return Índice de preços de todas as cotações em memória.
+     */
+    public IndicePrecos indicePrecos() {
+        SerieCotacoes atual = serie;
+        IndicePrecos indice = indicePrecos;
+        if (indice == null || indice.serie() != atual) {
+            indice = IndicePrecos.construir(atual);
+            indicePrecos = indice;
+        }
+        return indice;
+    }
+
+    /**
+     * Retorna as estatísticas por janela das cotações em memória, reconstruindo-as apenas se as cotações mudaram desde a
+     * última construção.
+     *
+     * @return Estatísticas de todas as cotações em memória.
+     */
+    public EstatisticasSerie estatisticas() {
+        SerieCotacoes atual = serie;
+        EstatisticasSerie calculadas = estatisticas;
+        if (calculadas == null || calculadas.serie() != atual) {
+            calculadas = EstatisticasSerie.construir(atual);
+            estatisticas = calculadas;
+        }
+        return calculadas;
+    }
+
+    /**
+     * Registra as cotações obtidas da API e marca o intervalo consultado como coberto.
+     * Apenas os dias até a data limite são marcados como cobertos, já que a cotação de dias ainda não fechados pode não
+     * ter sido publicada.
+     *
+     * @param consultado        Intervalo consultado na API.
+     * @param cotacoesRecebidas Cotações retornadas pela API para o intervalo.
+     * @param limiteCobertura   Último dia cujo resultado é definitivo.
+     * @return Período entre o primeiro e o último dia já coberto cuja cotação recebida não estava em memória ou era
+     *         outra, ou null se nenhuma cotação alterou um dia já coberto. Só esses dias podem ter sido respondidos sem
+     *         a cotação recebida.
+     */
+    public Intervalo registrar(Intervalo consultado, List<MoedaDto> cotacoesRecebidas, LocalDate limiteCobertura) {
+        lock.writeLock().lock();
+        try {
+            SerieCotacoes recebidas = SerieCotacoes.de(cotacoesRecebidas);
+            Intervalo alterado = alteradoEmDiasCobertos(recebidas);
+            serie = serie.mesclar(recebidas);
+
+            LocalDate fimCoberto = consultado.fim().isAfter(limiteCobertura) ? limiteCobertura : consultado.fim();
+            if (!fimCoberto.isBefore(consultado.inicio())) {
+                marcarCoberto(consultado.inicio(), fimCoberto);
+            }
+            return alterado;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Carrega no cache um histórico já conhecido, como o do ArquivoHistorico, marcando como cobertos os intervalos
+     * informados. Em datas presentes nos dois, prevalecem as cotações que já estavam em memória.
+     *
+     * @param historico       Série com o histórico.
+     * @param cobertos        Intervalos do histórico sem dias úteis faltantes.
+     * @param limiteCobertura Último dia cujo resultado é definitivo.
+     */
+    public void registrarHistorico(SerieCotacoes historico, List<Intervalo> cobertos, LocalDate limiteCobertura) {
+        lock.writeLock().lock();
+        try {
+            serie = historico.mesclar(serie);
+
+            for (Intervalo coberto : cobertos) {
+                LocalDate fimCoberto = coberto.fim().isAfter(limiteCobertura) ? limiteCobertura : coberto.fim();
+                if (!fimCoberto.isBefore(coberto.inicio())) {
+                    marcarCoberto(coberto.inicio(), fimCoberto);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove todas as cotações e a cobertura registradas.
+     */
+    public void limpar() {
+        lock.writeLock().lock();
+        try {
+            serie = SerieCotacoes.VAZIA;
+            cobertura.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Período dos dias já cobertos em que a cotação recebida difere da que está em memória, ou null se não houver.
+    private Intervalo alteradoEmDiasCobertos(SerieCotacoes recebidas) {
+        int[] dias = serie.dias();
+        LocalDate primeiro = null;
+        LocalDate ultimo = null;
+        for (int j = 0; j < recebidas.tamanho(); j++) {
+            LocalDate dia = LocalDate.ofEpochDay(recebidas.dia(j));
+            if (!coberto(dia)) {
+                continue;
+            }
+            int posicao = Arrays.binarySearch(dias, recebidas.dia(j));
+            if (posicao >= 0 && serie.preco(posicao) == recebidas.preco(j) && serie.segundo(posicao) == recebidas.segundo(j)) {
+                continue;
+            }
+            if (primeiro == null) {
+                primeiro = dia;
+            }
+            ultimo = dia;
+        }
+        return primeiro == null ? null : new Intervalo(primeiro, ultimo);
+    }
+
+    private boolean coberto(LocalDate dia) {
+        Map.Entry<LocalDate, LocalDate> anterior = cobertura.floorEntry(dia);
+        return anterior != null && !anterior.getValue().isBefore(dia);
+    }
+
+    // Insere o intervalo na cobertura, mesclando-o com intervalos sobrepostos ou adjacentes.
+    private void marcarCoberto(LocalDate inicio, LocalDate fim) {
+        Map.Entry<LocalDate, LocalDate> anterior = cobertura.floorEntry(inicio);
+        if (anterior != null && !anterior.getValue().plusDays(1).isBefore(inicio)) {
+            inicio = anterior.getKey();
+            if (anterior.getValue().isAfter(fim)) {
+                fim = anterior.getValue();
+            }
+        }
+
+        Map.Entry<LocalDate, LocalDate> proximo = cobertura.ceilingEntry(inicio);
+        while (proximo != null && !proximo.getKey().isAfter(fim.plusDays(1))) {
+            if (proximo.getValue().isAfter(fim)) {
+                fim = proximo.getValue();
+            }
+            cobertura.remove(proximo.getKey());
+            proximo = cobertura.ceilingEntry(inicio);
+        }
+
+        cobertura.put(inicio, fim);
+    }
+
+}
@@ -0,0 +1,48 @@
+package shx.cotacaodolar.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache em memória dos dias sem pregão (fins de semana e feriados) que já foram procurados em tb_cotacao_dolar sem
+ * resultado. Esses dias nunca têm registro, então uma consulta dia a dia repetiria a mesma busca sem resultado no banco
+ * de dados. Dias úteis não são registrados: a cotação deles pode ser gravada a qualquer momento, inclusive por outra
+ * instância da aplicação. O cache é esvaziado sempre que novas cotações são gravadas, e também ao atingir o limite de
+ * datas, para que datas arbitrárias não o façam crescer indefinidamente.
+ */
+@Component
+public class DatasSemCotacaoCache {
+    static final int LIMITE_DATAS = 4096;
+
+    private final Set<LocalDate> datas = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Verifica se a data já foi procurada no banco de dados sem resultado.
+     */
+    public boolean contem(LocalDate data) {
+        return datas.contains(data);
+    }
+
+    /**
+     * Registra uma data sem cotação salva.
+     *
+     * @param data Data procurada no banco de dados.
+     */
+    public void registrar(LocalDate data) {
+        if (datas.size() >= LIMITE_DATAS) {
+            datas.clear();
+        }
+        datas.add(data);
+    }
+
+    /**
+     * Esquece todas as datas registradas, já que uma gravação pode ter incluído cotações para qualquer uma delas.
+     */
+    public void limpar() {
+        datas.clear();
+    }
+
+}
@@ -0,0 +1,142 @@
+package shx.cotacaodolar.service;
+
+import shx.cotacaodolar.dto.EstatisticasDto;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * Estruturas imutáveis para calcular estatísticas de qualquer janela de datas de uma SerieCotacoes em tempo constante.
+ * Guarda as somas prefixadas dos preços e dos seus quadrados (em ponto fixo, portanto exatas), sparse tables com a
+ * posição do mínimo e do máximo de cada bloco de 2^k posições, e uma tabela que leva cada dia do calendário à sua
+ * posição na série. Uma consulta faz um número fixo de acessos a arrays, independentemente do tamanho da janela.
+ * A construção custa O(n log n); com o histórico completo as tabelas ocupam pouco mais de 1 MB.
+ */
+public class EstatisticasSerie {
+    private final SerieCotacoes serie;
+    private final int primeiroDia;
+    // posicaoPorDia[d]: primeira posição da série com dia >= primeiroDia + d.
+    private final int[] posicaoPorDia;
+    // somas[i] e somasQuadrados[i]: somas dos preços (e dos quadrados) das posições [0, i).
+    private final long[] somas;
+    private final long[] somasQuadrados;
+    // minimos[k][i] e maximos[k][i]: posição do menor (maior) preço em [i, i + 2^k).
+    private final int[][] minimos;
+    private final int[][] maximos;
+
+    private EstatisticasSerie(SerieCotacoes serie) {
+        this.serie = serie;
+        int n = serie.tamanho();
+
+        this.primeiroDia = n == 0 ? 0 : serie.dia(0);
+        int dias = n == 0 ? 0 : serie.dia(n - 1) - primeiroDia + 1;
+        this.posicaoPorDia = new int[dias];
+        int posicao = 0;
+        for (int d = 0; d < dias; d++) {
+            while (serie.dia(posicao) < primeiroDia + d) {
+                posicao++;
+            }
+            posicaoPorDia[d] = posicao;
+        }
+
+        this.somas = new long[n + 1];
+        this.somasQuadrados = new long[n + 1];
+        for (int i = 0; i < n; i++) {
+            long preco = serie.preco(i);
+            somas[i + 1] = somas[i] + preco;
+            somasQuadrados[i + 1] = somasQuadrados[i] + preco * preco;
+        }
+
+        int niveis = n == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(n);
+        this.minimos = new int[niveis][];
+        this.maximos = new int[niveis][];
+        if (niveis > 0) {
+            minimos[0] = new int[n];
+            maximos[0] = new int[n];
+            for (int i = 0; i < n; i++) {
+                minimos[0][i] = i;
+                maximos[0][i] = i;
+            }
+        }
+        for (int k = 1; k < niveis; k++) {
+            int metade = 1 << (k - 1);
+            int quantidade = n - (1 << k) + 1;
+            minimos[k] = new int[quantidade];
+            maximos[k] = new int[quantidade];
+            for (int i = 0; i < quantidade; i++) {
+                minimos[k][i] = menor(minimos[k - 1][i], minimos[k - 1][i + metade]);
+                maximos[k][i] = maior(maximos[k - 1][i], maximos[k - 1][i + metade]);
+            }
+        }
+    }
+
+    /**
+     * Monta as estruturas sobre a série informada.
+     *
+     * @param serie Série de cotações em ordem cronológica.
+     * @return Estatísticas prontas para consultas.
+     */
+    public static EstatisticasSerie construir(SerieCotacoes serie) {
+        return new EstatisticasSerie(serie);
+    }
+
+    public SerieCotacoes serie() {
+        return serie;
+    }
+
+    /**
+     * Calcula a quantidade de cotações, a mínima, a máxima, a média e o desvio padrão populacional da janela.
+     * Em empates, a mínima e a máxima são as cotações mais antigas com esse preço.
+     *
+     * @param inicio Data inicial da janela.
+     * @param fim    Data final da janela.
+     * @return EstatisticasDto da janela.
+     */
+    public EstatisticasDto calcular(LocalDate inicio, LocalDate fim) {
+        int de = posicao(inicio.toEpochDay());
+        int ate = Math.max(de, posicao(fim.toEpochDay() + 1));
+        int total = ate - de;
+        if (total == 0) {
+            return new EstatisticasDto(0, null, null, null, null);
+        }
+
+        int k = 31 - Integer.numberOfLeadingZeros(total);
+        int minima = menor(minimos[k][de], minimos[k][ate - (1 << k)]);
+        int maxima = maior(maximos[k][de], maximos[k][ate - (1 << k)]);
+
+        long soma = somas[ate] - somas[de];
+        long somaQuadrados = somasQuadrados[ate] - somasQuadrados[de];
+        BigDecimal media = BigDecimal.valueOf(soma, SerieCotacoes.ESCALA_PRECO)
+                .divide(BigDecimal.valueOf(total), SerieCotacoes.ESCALA_PRECO, RoundingMode.HALF_UP);
+
+        // Variância = (n * Σx² - (Σx)²) / n², calculada de forma exata sobre os preços em ponto fixo.
+        BigInteger numerador = BigInteger.valueOf(total).multiply(BigInteger.valueOf(somaQuadrados))
+                .subtract(BigInteger.valueOf(soma).pow(2));
+        BigDecimal variancia = new BigDecimal(numerador, 2 * SerieCotacoes.ESCALA_PRECO)
+                .divide(BigDecimal.valueOf((long) total * total), MathContext.DECIMAL64);
+        BigDecimal desvioPadrao = variancia.sqrt(MathContext.DECIMAL64).setScale(SerieCotacoes.ESCALA_PRECO, RoundingMode.HALF_UP);
+
+        return new EstatisticasDto(total, serie.cotacao(minima), serie.cotacao(maxima), media, desvioPadrao);
+    }
+
+    // Primeira posição da série com dia >= o dia informado.
+    private int posicao(long dia) {
+        if (posicaoPorDia.length == 0 || dia <= primeiroDia) {
+            return 0;
+        }
+        long deslocamento = dia - primeiroDia;
+        return deslocamento >= posicaoPorDia.length ? serie.tamanho() : posicaoPorDia[(int) deslocamento];
+    }
+
+    private int menor(int a, int b) {
+        return serie.preco(b) < serie.preco(a) ? b : a;
+    }
+
+    private int maior(int a, int b) {
+        return serie.preco(b) > serie.preco(a) ? b : a;
+    }
+
+}
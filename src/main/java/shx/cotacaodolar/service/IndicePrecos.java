@@ -0,0 +1,270 @@
+package shx.cotacaodolar.service;
+
+import shx.cotacaodolar.dto.MoedaDto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Índice imutável das cotações ordenado por preço, para consultas de limiar e posição sem percorrer o período.
+ * Sobre as posições cronológicas de uma SerieCotacoes (preço em ponto fixo com 4 casas) é montada uma merge sort tree:
+ * no nível l, cada bloco de 2^l posições consecutivas guarda seus preços ordenados.
+ * Qualquer janela de datas se decompõe em O(log n) blocos, então contar quantos dias ficaram abaixo ou acima de um preço
+ * custa O(log² n), independentemente do tamanho da janela.
+ * Para listar esses dias, duas sparse tables guardam a posição do menor e do maior preço de cada faixa de 2^l posições.
+ * A listagem desce pela janela a partir do menor (ou maior) preço de cada faixa e para nas faixas que não têm nenhum dia
+ * selecionado, então sai em ordem cronológica e custa O(log n + k).
+ */
+public class IndicePrecos {
+    private final SerieCotacoes serie;
+    // niveis[l] e posicoes[l]: preços ordenados dentro de cada bloco de 2^l posições e a posição cronológica de cada um.
+    private final long[][] niveis;
+    private final int[][] posicoes;
+    // minimos[l][i] e maximos[l][i]: posição do menor e do maior preço em [i, i + 2^l).
+    private final int[][] minimos;
+    private final int[][] maximos;
+
+    private IndicePrecos(SerieCotacoes serie) {
+        this.serie = serie;
+
+        long[] precos = serie.precos();
+        int n = precos.length;
+        int quantidadeNiveis = 1;
+        while ((1 << (quantidadeNiveis - 1)) < n) {
+            quantidadeNiveis++;
+        }
+        this.niveis = new long[quantidadeNiveis][];
+        this.posicoes = new int[quantidadeNiveis][];
+
+        // O nível 0 é a própria coluna de preços da série, que é imutável.
+        niveis[0] = precos;
+        posicoes[0] = new int[n];
+        for (int i = 0; i < n; i++) {
+            posicoes[0][i] = i;
+        }
+        for (int nivel = 1; nivel < quantidadeNiveis; nivel++) {
+            niveis[nivel] = new long[n];
+            posicoes[nivel] = new int[n];
+            int metade = 1 << (nivel - 1);
+            for (int inicio = 0; inicio < n; inicio += metade << 1) {
+                mesclar(nivel, inicio, Math.min(inicio + metade, n), Math.min(inicio + (metade << 1), n));
+            }
+        }
+
+        this.minimos = new int[quantidadeNiveis][];
+        this.maximos = new int[quantidadeNiveis][];
+        minimos[0] = posicoes[0];
+        maximos[0] = posicoes[0];
+        for (int nivel = 1; nivel < quantidadeNiveis; nivel++) {
+            int metade = 1 << (nivel - 1);
+            int tamanho = Math.max(n - (metade << 1) + 1, 0);
+            minimos[nivel] = new int[tamanho];
+            maximos[nivel] = new int[tamanho];
+            for (int i = 0; i < tamanho; i++) {
+                int esquerda = minimos[nivel - 1][i];
+                int direita = minimos[nivel - 1][i + metade];
+                minimos[nivel][i] = precos[direita] < precos[esquerda] ? direita : esquerda;
+                esquerda = maximos[nivel - 1][i];
+                direita = maximos[nivel - 1][i + metade];
+                maximos[nivel][i] = precos[direita] > precos[esquerda] ? direita : esquerda;
+            }
+        }
+    }
+
+    /**
+     * Monta o índice sobre a série informada.
+     *
+     * @param serie Série de cotações em ordem cronológica.
+     * @return Índice pronto para consultas.
+     */
+    public static IndicePrecos construir(SerieCotacoes serie) {
+        return new IndicePrecos(serie);
+    }
+
+    public SerieCotacoes serie() {
+        return serie;
+    }
+
+    public int tamanho() {
+        return serie.tamanho();
+    }
+
+    /**
+     * Conta as cotações da janela estritamente menores que o preço.
+     * Um preço com mais de 4 casas é arredondado para cima, o que preserva a comparação estrita com preços de 4 casas.
+     */
+    public int contarAbaixo(LocalDate inicio, LocalDate fim, BigDecimal preco) {
+        long limite = SerieCotacoes.paraPontoFixo(preco, RoundingMode.CEILING);
+        int[] janela = janela(inicio, fim);
+        int total = 0;
+        for (int[] bloco : decompor(janela[0], janela[1])) {
+            total += inferior(bloco, limite) - bloco[1];
+        }
+        return total;
+    }
+
+    /**
+     * Conta as cotações da janela estritamente maiores que o preço.
+     * Um preço com mais de 4 casas é arredondado para baixo, pelo mesmo motivo de contarAbaixo.
+     */
+    public int contarAcima(LocalDate inicio, LocalDate fim, BigDecimal preco) {
+        long limite = SerieCotacoes.paraPontoFixo(preco, RoundingMode.FLOOR);
+        int[] janela = janela(inicio, fim);
+        int total = 0;
+        for (int[] bloco : decompor(janela[0], janela[1])) {
+            total += bloco[2] - superior(bloco, limite);
+        }
+        return total;
+    }
+
+    /**
+     * Conta todas as cotações da janela.
+     */
+    public int contar(LocalDate inicio, LocalDate fim) {
+        int[] janela = janela(inicio, fim);
+        return janela[1] - janela[0];
+    }
+
+    /**
+     * Lista, em ordem cronológica, as cotações da janela estritamente menores que o preço.
+     */
+    public List<MoedaDto> listarAbaixo(LocalDate inicio, LocalDate fim, BigDecimal preco) {
+        long limite = SerieCotacoes.paraPontoFixo(preco, RoundingMode.CEILING);
+        int[] janela = janela(inicio, fim);
+        return listar(janela[0], janela[1], minimos, limite, true);
+    }
+
+    /**
+     * Lista, em ordem cronológica, as cotações da janela estritamente maiores que o preço.
+     */
+    public List<MoedaDto> listarAcima(LocalDate inicio, LocalDate fim, BigDecimal preco) {
+        long limite = SerieCotacoes.paraPontoFixo(preco, RoundingMode.FLOOR);
+        int[] janela = janela(inicio, fim);
+        return listar(janela[0], janela[1], maximos, limite, false);
+    }
+
+    // Converte a janela de datas no intervalo semiaberto [de, ate) de posições cronológicas.
+    private int[] janela(LocalDate inicio, LocalDate fim) {
+        return serie.faixa(inicio, fim);
+    }
+
+    // Decompõe [de, ate) em blocos completos da árvore: {nível, início, fim (exclusivo)}.
+    private List<int[]> decompor(int de, int ate) {
+        List<int[]> blocos = new ArrayList<>();
+        int cursor = de;
+        while (cursor < ate) {
+            int nivel = cursor == 0 ? niveis.length - 1 : Math.min(Integer.numberOfTrailingZeros(cursor), niveis.length - 1);
+            while (cursor + (1 << nivel) > ate) {
+                nivel--;
+            }
+            blocos.add(new int[]{nivel, cursor, cursor + (1 << nivel)});
+            cursor += 1 << nivel;
+        }
+        return blocos;
+    }
+
+    // Primeira posição do bloco cujo preço é >= limite.
+    private int inferior(int[] bloco, long limite) {
+        long[] precos = niveis[bloco[0]];
+        int baixo = bloco[1];
+        int alto = bloco[2];
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (precos[meio] < limite) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return baixo;
+    }
+
+    // Primeira posição do bloco cujo preço é > limite.
+    private int superior(int[] bloco, long limite) {
+        long[] precos = niveis[bloco[0]];
+        int baixo = bloco[1];
+        int alto = bloco[2];
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (precos[meio] <= limite) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return baixo;
+    }
+
+    // Lista as posições de [de, ate) com preço abaixo (ou acima) do limite. Cada faixa da pilha é resolvida pelo seu preço
+    // extremo: se ele não passa no limite, nenhuma posição da faixa passa; senão a posição é selecionada entre as duas
+    // metades da faixa. A pilha guarda faixas como {de, ate} e posições já selecionadas como {-1 - posição, 0}, empilhadas
+    // na ordem inversa para saírem em ordem cronológica. Cada faixa descartada tem um vizinho selecionado, então são
+    // resolvidas no máximo 2k + 1 faixas, cada uma em O(1).
+    private List<MoedaDto> listar(int de, int ate, int[][] extremos, long limite, boolean abaixo) {
+        long[] precos = niveis[0];
+        int[] selecionadas = new int[16];
+        int quantidade = 0;
+        int[] pilha = new int[32];
+        int topo = 0;
+        pilha[topo++] = de;
+        pilha[topo++] = ate;
+        while (topo > 0) {
+            int fimFaixa = pilha[--topo];
+            int inicioFaixa = pilha[--topo];
+            if (inicioFaixa < 0) {
+                if (quantidade == selecionadas.length) {
+                    selecionadas = Arrays.copyOf(selecionadas, quantidade << 1);
+                }
+                selecionadas[quantidade++] = -1 - inicioFaixa;
+                continue;
+            }
+            if (inicioFaixa >= fimFaixa) {
+                continue;
+            }
+            int extremo = extremo(extremos, abaixo, inicioFaixa, fimFaixa);
+            if (abaixo ? precos[extremo] >= limite : precos[extremo] <= limite) {
+                continue;
+            }
+            if (topo + 6 > pilha.length) {
+                pilha = Arrays.copyOf(pilha, pilha.length << 1);
+            }
+            pilha[topo++] = extremo + 1;
+            pilha[topo++] = fimFaixa;
+            pilha[topo++] = -1 - extremo;
+            pilha[topo++] = 0;
+            pilha[topo++] = inicioFaixa;
+            pilha[topo++] = extremo;
+        }
+        return serie.visao(selecionadas, quantidade);
+    }
+
+    // Posição do preço extremo em [de, ate), pela sobreposição das duas faixas de 2^l posições que cobrem o intervalo.
+    private int extremo(int[][] extremos, boolean minimo, int de, int ate) {
+        int nivel = 31 - Integer.numberOfLeadingZeros(ate - de);
+        int esquerda = extremos[nivel][de];
+        int direita = extremos[nivel][ate - (1 << nivel)];
+        long[] precos = niveis[0];
+        return (minimo ? precos[direita] < precos[esquerda] : precos[direita] > precos[esquerda]) ? direita : esquerda;
+    }
+
+    private void mesclar(int nivel, int inicio, int meio, int fim) {
+        long[] origem = niveis[nivel - 1];
+        int[] origemPosicoes = posicoes[nivel - 1];
+        long[] destino = niveis[nivel];
+        int[] destinoPosicoes = posicoes[nivel];
+
+        int esquerda = inicio;
+        int direita = meio;
+        for (int i = inicio; i < fim; i++) {
+            boolean usarEsquerda = direita >= fim || (esquerda < meio && origem[esquerda] <= origem[direita]);
+            int escolhido = usarEsquerda ? esquerda++ : direita++;
+            destino[i] = origem[escolhido];
+            destinoPosicoes[i] = origemPosicoes[escolhido];
+        }
+    }
+
+}
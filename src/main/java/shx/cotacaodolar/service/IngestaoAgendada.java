@@ -0,0 +1,40 @@
+package shx.cotacaodolar.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Agenda a ingestão das cotações em segundo plano.
+ * A ingestão incremental roda nos dias úteis a partir do horário de publicação do boletim, repetindo a cada hora para
+ * alcançar boletins atrasados; o backfill roda em intervalo fixo, um bloco por execução, o que limita o ritmo de
+ * requisições à API do BCB. A correção das cotações com 2 casas segue o mesmo ritmo e, sem nada a corrigir, custa uma
+ * consulta por execução. Pode ser desligada com ingestao.habilitada=false.
+ */
+@Component
+@ConditionalOnProperty(name = "ingestao.habilitada", havingValue = "true", matchIfMissing = true)
+public class IngestaoAgendada {
+    private final IngestaoService ingestaoService;
+
+    public IngestaoAgendada(IngestaoService ingestaoService) {
+        this.ingestaoService = ingestaoService;
+    }
+
+    @Scheduled(cron = "${ingestao.cron:0 10 13-18 * * MON-FRI}", zone = "America/Sao_Paulo")
+    public void ingerirNovasCotacoes() {
+        ingestaoService.ingerirNovasCotacoes();
+    }
+
+    @Scheduled(initialDelayString = "${ingestao.backfill.atraso-inicial-ms:60000}",
+            fixedDelayString = "${ingestao.backfill.intervalo-ms:300000}")
+    public void avancarBackfill() {
+        ingestaoService.avancarBackfill();
+    }
+
+    @Scheduled(initialDelayString = "${ingestao.correcao.atraso-inicial-ms:90000}",
+            fixedDelayString = "${ingestao.correcao.intervalo-ms:300000}")
+    public void avancarCorrecao() {
+        ingestaoService.avancarCorrecao();
+    }
+
+}
@@ -0,0 +1,204 @@
+package shx.cotacaodolar.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import shx.cotacaodolar.dto.ResultadoIngestaoDto;
+import shx.cotacaodolar.infra.IngestaoEmAndamentoException;
+import shx.cotacaodolar.model.EstadoIngestao;
+import shx.cotacaodolar.repository.EstadoIngestaoRepository;
+import shx.cotacaodolar.repository.MoedaRepository;
+
+import java.sql.Date;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Ingestão das cotações PTAX no banco de dados, executada em segundo plano pela IngestaoAgendada.
+ * A ingestão incremental grava as cotações novas a partir da marca d'água persistida em EstadoIngestao, e o backfill
+ * preenche o histórico de trás para frente, um bloco de meses por execução, até a data inicial configurada.
+ * Ambas usam a sincronização por lacunas do MoedaService, então cada execução só busca na API o que falta no banco.
+ * A correção regrava com 4 casas, também um bloco de meses por execução, as cotações que a migração V3 encontrou
+ * arredondadas para 2 casas.
+ * Toda gravação, agendada ou pelas rotas /salvar e /sincronizar, passa pelo CoordenadorIngestao, então apenas uma
+ * instância da aplicação consulta a API do BCB para ingestão por vez.
+ */
+@Service
+public class IngestaoService {
+    static final String CHAVE = "ptax-dolar";
+    private static final ResultadoIngestaoDto OUTRA_INSTANCIA =
+            new ResultadoIngestaoDto("Ingestão ignorada: outra execução detém a trava de ingestão", 0, 0);
+
+    private final MoedaService moedaService;
+    private final MoedaRepository moedaRepository;
+    private final EstadoIngestaoRepository estadoIngestaoRepository;
+    private final CoordenadorIngestao coordenadorIngestao;
+    private final Clock clock;
+    private final int janelaInicialDias;
+    private final LocalDate dataInicialBackfill;
+    private final int mesesPorExecucao;
+
+    public IngestaoService(MoedaService moedaService, MoedaRepository moedaRepository,
+                           EstadoIngestaoRepository estadoIngestaoRepository, CoordenadorIngestao coordenadorIngestao, Clock clock,
+                           @Value("${ingestao.janela-inicial-dias:30}") int janelaInicialDias,
+                           @Value("${ingestao.backfill.data-inicial:1984-11-28}") String dataInicialBackfill,
+                           @Value("${ingestao.backfill.meses-por-execucao:3}") int mesesPorExecucao) {
+        this.moedaService = moedaService;
+        this.moedaRepository = moedaRepository;
+        this.estadoIngestaoRepository = estadoIngestaoRepository;
+        this.coordenadorIngestao = coordenadorIngestao;
+        this.clock = clock;
+        this.janelaInicialDias = janelaInicialDias;
+        this.dataInicialBackfill = LocalDate.parse(dataInicialBackfill);
+        this.mesesPorExecucao = mesesPorExecucao;
+    }
+
+    /**
+     * Grava as cotações publicadas desde a marca d'água até hoje e avança a marca d'água para a última data salva.
+     * Na primeira execução, sem marca d'água, considera os últimos dias configurados em ingestao.janela-inicial-dias.
+     * As duas ingestões partem do mesmo ponto, qualquer que seja a primeira a executar: a incremental posiciona o
+     * backfill no início da sua janela, e o backfill posiciona a marca d'água no fim do seu primeiro bloco.
+     *
+     * @return Resultado da sincronização do período.
+     */
+    public ResultadoIngestaoDto ingerirNovasCotacoes() {
+        return coordenadorIngestao.executarComTrava(this::ingerirNovasCotacoesComTrava).orElse(OUTRA_INSTANCIA);
+    }
+
+    /**
+     * Preenche o próximo bloco do histórico anterior a backfillAte, limitado a ingestao.backfill.meses-por-execucao meses.
+     *
+     * @return Resultado da sincronização do bloco, ou um resultado vazio se o histórico já estiver completo.
+     */
+    public ResultadoIngestaoDto avancarBackfill() {
+        return coordenadorIngestao.executarComTrava(this::avancarBackfillComTrava).orElse(OUTRA_INSTANCIA);
+    }
+
+    /**
+     * Corrige o próximo bloco de cotações ainda com 2 casas decimais, a partir da mais antiga, limitado a
+     * ingestao.backfill.meses-por-execucao meses.
+     *
+     * @return Resultado da correção do bloco, ou um resultado vazio se não houver cotações a corrigir.
+     */
+    public ResultadoIngestaoDto avancarCorrecao() {
+        return coordenadorIngestao.executarComTrava(this::avancarCorrecaoComTrava).orElse(OUTRA_INSTANCIA);
+    }
+
+    /**
+     * Corrige o próximo bloco de cotações ainda com 2 casas decimais, se nenhuma outra ingestão estiver em andamento.
+     *
+     * @return Resultado da correção do bloco, ou um resultado vazio se não houver cotações a corrigir.
+     * @throws IngestaoEmAndamentoException Se outra execução detém a trava de ingestão.
+     */
+    public ResultadoIngestaoDto corrigirProximoBloco() {
+        return coordenadorIngestao.executarComTrava(this::avancarCorrecaoComTrava).orElseThrow(IngestaoEmAndamentoException::new);
+    }
+
+    /**
+     * Busca as cotações do período e as grava no banco de dados, se nenhuma outra ingestão estiver em andamento.
+     *
+     * @param startDate Data de início do período no formato "MM-dd-yyyy".
+     * @param endDate   Data de término do período no formato "MM-dd-yyyy".
+     * @return ResultadoIngestaoDto com as quantidades de cotações inseridas e ignoradas.
+     * @throws IngestaoEmAndamentoException Se outra execução detém a trava de ingestão.
+     */
+    public ResultadoIngestaoDto salvarPeriodo(String startDate, String endDate) {
+        return coordenadorIngestao.executarComTrava(() -> moedaService.salvarNoBdCotacoesDeDolarPorPeriodo(startDate, endDate))
+                .orElseThrow(IngestaoEmAndamentoException::new);
+    }
+
+    /**
+     * Grava no banco de dados apenas os dias úteis faltantes do período, se nenhuma outra ingestão estiver em andamento.
+     *
+     * @param startDate Data de início do período no formato "MM-dd-yyyy".
+     * @param endDate   Data de término do período no formato "MM-dd-yyyy".
+     * @return ResultadoIngestaoDto com as quantidades de cotações inseridas e ignoradas.
+     * @throws IngestaoEmAndamentoException Se outra execução detém a trava de ingestão.
+     */
+    public ResultadoIngestaoDto sincronizarPeriodo(String startDate, String endDate) {
+        return coordenadorIngestao.executarComTrava(() -> moedaService.sincronizarNoBdCotacoesDeDolarPorPeriodo(startDate, endDate))
+                .orElseThrow(IngestaoEmAndamentoException::new);
+    }
+
+    private ResultadoIngestaoDto ingerirNovasCotacoesComTrava() {
+        LocalDate hoje = LocalDate.now(clock);
+        EstadoIngestao estado = carregarEstado();
+        LocalDate inicio;
+        if (estado.getUltimaDataIngerida() != null) {
+            inicio = estado.getUltimaDataIngerida().plusDays(1);
+        } else if (estado.getBackfillAte() != null) {
+            // O backfill já começou: a primeira janela continua exatamente de onde ele partiu.
+            inicio = estado.getBackfillAte();
+        } else {
+            inicio = hoje.minusDays(janelaInicialDias);
+        }
+        if (inicio.isAfter(hoje)) {
+            return new ResultadoIngestaoDto("Não há cotações novas a ingerir", 0, 0);
+        }
+
+        ResultadoIngestaoDto resultado = moedaService.sincronizarNoBd(inicio, hoje);
+
+        // A marca d'água só passa de dias cuja cotação já está no banco, então um boletim atrasado é buscado de novo.
+        List<java.util.Date> datasSalvas = moedaRepository.findDatasSalvasEntre(Date.valueOf(inicio), Date.valueOf(hoje));
+        if (!datasSalvas.isEmpty()) {
+            estado.setUltimaDataIngerida(new Date(datasSalvas.get(datasSalvas.size() - 1).getTime()).toLocalDate());
+        }
+        // O backfill começa imediatamente antes da primeira janela ingerida.
+        if (estado.getBackfillAte() == null) {
+            estado.setBackfillAte(inicio);
+        }
+        salvarEstado(estado);
+        return resultado;
+    }
+
+    private ResultadoIngestaoDto avancarBackfillComTrava() {
+        EstadoIngestao estado = carregarEstado();
+        LocalDate limite = estado.getBackfillAte() == null
+                ? LocalDate.now(clock).minusDays(janelaInicialDias)
+                : estado.getBackfillAte();
+        if (!limite.isAfter(dataInicialBackfill)) {
+            return new ResultadoIngestaoDto("O histórico já está completo no banco de dados", 0, 0);
+        }
+
+        LocalDate inicioBloco = limite.minusMonths(mesesPorExecucao);
+        if (inicioBloco.isBefore(dataInicialBackfill)) {
+            inicioBloco = dataInicialBackfill;
+        }
+        ResultadoIngestaoDto resultado = moedaService.sincronizarNoBd(inicioBloco, limite.minusDays(1));
+
+        // Antes da primeira ingestão incremental, a marca d'água parte do mesmo ponto do backfill, para que os dias
+        // entre este limite e a primeira janela incremental não fiquem de fora das duas.
+        if (estado.getUltimaDataIngerida() == null) {
+            estado.setUltimaDataIngerida(limite.minusDays(1));
+        }
+        estado.setBackfillAte(inicioBloco);
+        salvarEstado(estado);
+        return resultado;
+    }
+
+    private ResultadoIngestaoDto avancarCorrecaoComTrava() {
+        Optional<java.util.Date> primeira = moedaRepository.findPrimeiraDataACorrigir();
+        if (primeira.isEmpty()) {
+            return new ResultadoIngestaoDto("Não há cotações a corrigir", 0, 0);
+        }
+        LocalDate inicio = new Date(primeira.get().getTime()).toLocalDate();
+        return moedaService.corrigirCotacoes(inicio, inicio.plusMonths(mesesPorExecucao).minusDays(1));
+    }
+
+    /**
+     * Retorna o progresso atual da ingestão.
+     *
+     * @return EstadoIngestao persistido, ou um estado vazio se a ingestão nunca foi executada.
+     */
+    public EstadoIngestao carregarEstado() {
+        return estadoIngestaoRepository.findById(CHAVE)
+                .orElseGet(() -> new EstadoIngestao(CHAVE, null, null, null));
+    }
+
+    private void salvarEstado(EstadoIngestao estado) {
+        estado.setAtualizadoEm(clock.instant());
+        estadoIngestaoRepository.save(estado);
+    }
+
+}
@@ -1,43 +1,102 @@
 package shx.cotacaodolar.service;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import shx.cotacaodolar.client.PtaxClient;
+import shx.cotacaodolar.dto.CandleDto;
+import shx.cotacaodolar.dto.ComparacaoDto;
+import shx.cotacaodolar.dto.CotacaoPorDataDto;
+import shx.cotacaodolar.dto.EstatisticasDto;
 import shx.cotacaodolar.dto.MoedaDto;
+import shx.cotacaodolar.dto.PosicaoPrecoDto;
+import shx.cotacaodolar.dto.ResultadoIngestaoDto;
+import shx.cotacaodolar.infra.CotacaoNaoEncontradaException;
 import shx.cotacaodolar.infra.InvalidDateException;
+import shx.cotacaodolar.infra.InvalidGroupingException;
+import shx.cotacaodolar.infra.InvalidPriceException;
 import shx.cotacaodolar.infra.MoedaException;
+import shx.cotacaodolar.model.Agrupamento;
+import shx.cotacaodolar.model.Intervalo;
 import shx.cotacaodolar.model.Moeda;
-import shx.cotacaodolar.model.Periodo;
+import shx.cotacaodolar.repository.CotacaoSalva;
 import shx.cotacaodolar.repository.MoedaRepository;
+import shx.cotacaodolar.util.CalendarioDiasUteis;
 import shx.cotacaodolar.util.MoedaMapper;
 
 import javax.persistence.EntityNotFoundException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.math.RoundingMode;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Clock;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 
 @Service
 public class MoedaService {
+    private static final DateTimeFormatter FORMATO_ENTRADA = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+    private static final DateTimeFormatter FORMATO_SAIDA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    // Dias úteis consultados antes do último dia útil ao buscar a cotação atual, cobrindo boletins atrasados.
+    private static final int DIAS_UTEIS_JANELA_COTACAO_ATUAL = 4;
+    private static final int DIAS_JANELA_AMPLIADA_COTACAO_ATUAL = 30;
+    // Quantidade máxima de datas em uma busca em lote.
+    static final int MAXIMO_DATAS_POR_LOTE = 10000;
+    // Cotações transmitidas acumuladas antes de serem registradas no cache, limitando a memória de um período longo.
+    static final int TAMANHO_BLOCO_REGISTRO = 256;
+
     private MoedaRepository moedaRepository;
     private MoedaMapper mapper;
-
-    public MoedaService(MoedaRepository moedaRepository, MoedaMapper mapper) {
+    private PtaxClient ptaxClient;
+    private CotacaoCache cotacaoCache;
+    private CotacaoAtualCache cotacaoAtualCache;
+    private CandleCache candleCache;
+    private DatasSemCotacaoCache datasSemCotacao;
+    private RespostasCache respostasCache;
+    private CalendarioDiasUteis calendario;
+    private Clock clock;
+    private Executor executor;
+    private ArquivoHistorico arquivoHistorico;
+    // Se verdadeiro, os dias fora do cache são lidos primeiro do banco de dados e só as lacunas vão para a API.
+    private boolean bancoPrimeiro;
+
+    public MoedaService(MoedaRepository moedaRepository, MoedaMapper mapper, PtaxClient ptaxClient, CotacaoCache cotacaoCache,
+                        CotacaoAtualCache cotacaoAtualCache, CandleCache candleCache, DatasSemCotacaoCache datasSemCotacao,
+                        RespostasCache respostasCache, CalendarioDiasUteis calendario, Clock clock,
+                        @Qualifier("applicationTaskExecutor") Executor executor, ArquivoHistorico arquivoHistorico,
+                        @Value("${cotacoes.banco-primeiro:true}") boolean bancoPrimeiro) {
         this.moedaRepository = moedaRepository;
         this.mapper = mapper;
+        this.ptaxClient = ptaxClient;
+        this.cotacaoCache = cotacaoCache;
+        this.cotacaoAtualCache = cotacaoAtualCache;
+        this.candleCache = candleCache;
+        this.datasSemCotacao = datasSemCotacao;
+        this.respostasCache = respostasCache;
+        this.calendario = calendario;
+        this.clock = clock;
+        this.executor = executor;
+        this.arquivoHistorico = arquivoHistorico;
+        this.bancoPrimeiro = bancoPrimeiro;
     }
 
 
@@ -46,76 +105,18 @@ public class MoedaService {
      * A cotação geralmente é disponibilizada pela API em torno de 13h, caso tentemos realizar esse método em algum horário em que a
      * cotação do dia não esteja disponível, será retornado a última cotação disponibilizada.
      * Considera-se cotação atual como a última cotação disponível na API do BCB.
+     * A cotação fica em memória até o próximo horário de publicação, então a API só é consultada quando uma nova cotação pode existir.
      *
      * @return MoedaDto com a última cotação do dólar disponibilizada pela API do BCB.
      */
     public MoedaDto getCotacaoAtual() {
-        try {
-            // Obtém a data atual.
-            LocalDate hoje = LocalDate.now();
-
-            // Formata a data no formato desejado.
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM-dd-yyyy");
-            String hojeFormatado = hoje.format(formatter);
-
-            // booleano que inicializa como false e assume o valor true assim que a primeira cotação válida for encontrada
-            boolean achouCotacaoValida = false;
-            // variável de controle para o bloco 'while', onde decrementamos um dia à partir da data atual até encontrarmos uma cotação disponível
-            int diasARetirar = 1;
-            JsonArray cotacoesArray = new JsonArray();
-
-            // Loop para tentar obter a cotação válida.
-            while (!achouCotacaoValida) {
-
-                // Constrói a URL da API com a data atual formatada.
-                String urlString = "https://olinda.bcb.gov.br/olinda/servico/PTAX/versao/v1/odata/CotacaoDolarDia(dataCotacao=@dataCotacao)?%40dataCotacao='"
-                        + hojeFormatado + "'&%24format=json";
-
-                // Cria uma conexão HTTP para a URL.
-                URL url = new URL(urlString);
-                HttpURLConnection request = (HttpURLConnection) url.openConnection();
-                request.connect();
-
-                // Parseia a resposta da API.
-                JsonElement response = JsonParser.parseReader(new InputStreamReader((InputStream) request.getContent()));
-                JsonObject rootObj = response.getAsJsonObject();
-                cotacoesArray = rootObj.getAsJsonArray("value");
-
-                // Verifica se a resposta da API está vazia.
-                if (cotacoesArray.isEmpty()) {
-                    // Se estiver vazia, tenta obter a cotação do dia anterior ajustando a data.
-                    LocalDate dataAjustada = hoje.minus(diasARetirar, ChronoUnit.DAYS);
-                    hojeFormatado = dataAjustada.format(formatter);
-                    diasARetirar++;
-                } else {
-                    // Caso encontre uma cotação, saímos do 'while' setando a variável booleana como true
-                    achouCotacaoValida = true;
-                }
-            }
-
-            List<MoedaDto> moedasLista = new ArrayList<MoedaDto>();
-
-            // Itera sobre os objetos JSON e os converte para objetos MoedaDto.
-            for (JsonElement obj : cotacoesArray) {
-                Date data = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(obj.getAsJsonObject().get("dataHoraCotacao").getAsString());
-                BigDecimal preco = obj.getAsJsonObject().get("cotacaoCompra").getAsBigDecimal();
-
-                String dataRecebida = new SimpleDateFormat("dd/MM/yyyy").format(data);
-                String hora = new SimpleDateFormat("HH:mm:ss").format(data);
-
-                MoedaDto moedaRef = new MoedaDto(preco, dataRecebida, hora);
-                moedasLista.add(moedaRef);
-            }
-
-            // Retorna a cotação encontrada. Pegamos o índíce zero pois, neste caso, o array recebido deve ter apenas um registro.
-            return moedasLista.get(0);
-        } catch (Exception e) {
-            throw new MoedaException("Algum erro inesperado aconteceu: " + e.getMessage());
-        }
+        return cotacaoAtualCache.obter(this::buscarCotacaoAtualNaApi);
     }
 
     /**
-     * Obtém as cotações do dólar em relação ao Real (BRL) para um período especificado, buscando as informações à partir da API do Banco Central do Brasil.
+     * Obtém as cotações do dólar em relação ao Real (BRL) para um período especificado.
+     * Os dias já consultados são servidos do cache em memória; os demais são lidos do banco de dados e apenas os dias
+     * úteis que ainda não foram salvos são buscados na API do Banco Central do Brasil.
      *
      * @param startDate A data de início do período no formato "MM-dd-yyyy".
      * @param endDate   A data de término do período no formato "MM-dd-yyyy".
@@ -127,44 +128,8 @@ public class MoedaService {
             boolean verificaDatas = verificaDatas(startDate, endDate);
             if (!verificaDatas) throw new InvalidDateException();
 
-            // Cria uma instância do objeto Período
-            Periodo periodo = new Periodo(startDate, endDate);
-
-            // Constrói a URL para a consulta das cotações no período especificado
-            String urlString = "https://olinda.bcb.gov.br/olinda/servico/PTAX/versao/v1/odata/CotacaoDolarPeriodo(dataInicial=@dataInicial,dataFinalCotacao=@dataFinalCotacao)?%40dataInicial='"
-                    + periodo.getDataInicial() + "'&%40dataFinalCotacao='" + periodo.getDataFinal() + "'&%24format=json&%24skip=0&%24top=" + periodo.getDiasEntreAsDatasMaisUm();
-
-            // Cria uma URL a partir da string
-            URL url = new URL(urlString);
-
-            // Estabelece uma conexão HTTP
-            HttpURLConnection request = (HttpURLConnection) url.openConnection();
-            request.connect();
-
-            // Faz a análise do JSON de resposta
-            JsonElement response = JsonParser.parseReader(new InputStreamReader((InputStream) request.getContent()));
-            JsonObject rootObj = response.getAsJsonObject();
-            JsonArray cotacoesArray = rootObj.getAsJsonArray("value");
-
-            List<MoedaDto> moedasLista = new ArrayList<MoedaDto>();
-
-            for (JsonElement obj : cotacoesArray) {
-                // Converte a data e hora da cotação
-                Date data = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(obj.getAsJsonObject().get("dataHoraCotacao").getAsString());
-                BigDecimal preco = obj.getAsJsonObject().get("cotacaoCompra").getAsBigDecimal();
-
-                // Formata a data para o formato dd/MM/yyyy
-                String dataRecebida = new SimpleDateFormat("dd/MM/yyyy").format(data);
-                // Formata a hora para o formato HH:mm:ss
-                String hora = new SimpleDateFormat("HH:mm:ss").format(data);
-
-                // Cria um objeto MoedaDto e adiciona à lista
-                MoedaDto moedaRef = new MoedaDto(preco, dataRecebida, hora);
-                moedasLista.add(moedaRef);
-            }
-
             // Retorna a lista de cotações para o período especificado
-            return moedasLista;
+            return obterCotacoesPeriodo(startDate, endDate);
         } catch (InvalidDateException e) {
             throw new InvalidDateException();
         } catch (Exception e) {
@@ -174,6 +139,7 @@ public class MoedaService {
 
     /**
      * Obtém as cotações do dólar em relação ao Real (BRL) para um período especificado, considerando apenas as cotações menores do que a cotação atual.
+     * A seleção é feita pelo índice de preços, sem comparar cada cotação do período.
      *
      * @param startDate A data de início do período no formato "MM-dd-yyyy".
      * @param endDate   A data de término do período no formato "MM-dd-yyyy".
@@ -181,138 +147,393 @@ public class MoedaService {
      * @throws MoedaException Se ocorrer um erro ao obter as cotações do período.
      */
     public List<MoedaDto> getCotacoesMenoresAtual(String startDate, String endDate) {
-        try {
-            // Obtém a cotação atual do dólar
-            MoedaDto moedaHoje = getCotacaoAtual();
+        JanelaIndexada janela = indexarComCotacaoAtual(startDate, endDate);
+        return janela.indice().listarAbaixo(janela.inicio(), janela.fim(), janela.cotacaoAtual().preco());
+    }
 
-            boolean verificaDatas = verificaDatas(startDate, endDate);
-            if (!verificaDatas) throw new InvalidDateException();
+    /**
+     * Obtém as cotações do dólar em relação ao Real (BRL) para um período especificado, considerando apenas as cotações maiores do que a cotação atual.
+     * A seleção é feita pelo índice de preços, sem comparar cada cotação do período.
+     *
+     * @param startDate A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate   A data de término do período no formato "MM-dd-yyyy".
+     * @return Uma lista de objetos MoedaDto contendo as cotações maiores que a cotação atual no período especificado.
+     * @throws MoedaException Se ocorrer um erro ao obter as cotações do período.
+     */
+    public List<MoedaDto> getCotacoesMaioresAtual(String startDate, String endDate) {
+        JanelaIndexada janela = indexarComCotacaoAtual(startDate, endDate);
+        return janela.indice().listarAcima(janela.inicio(), janela.fim(), janela.cotacaoAtual().preco());
+    }
 
-            BigDecimal cotacaoHoje = moedaHoje.preco();
+    /**
+     * Obtém as cotações do período estritamente menores que o preço informado.
+     *
+     * @param startDate A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate   A data de término do período no formato "MM-dd-yyyy".
+     * @param preco     Preço de referência, como "5.1234".
+     * @return Lista de MoedaDto abaixo do preço, em ordem cronológica.
+     * @throws MoedaException Se ocorrer um erro ao obter as cotações do período.
+     */
+    public List<MoedaDto> getCotacoesAbaixoDe(String startDate, String endDate, String preco) {
+        BigDecimal referencia = lerPreco(preco);
+        JanelaIndexada janela = indexar(startDate, endDate, null);
+        return janela.indice().listarAbaixo(janela.inicio(), janela.fim(), referencia);
+    }
 
-            // Cria uma instância do objeto Período
-            Periodo periodo = new Periodo(startDate, endDate);
+    /**
+     * Obtém as cotações do período estritamente maiores que o preço informado.
+     *
+     * @param startDate A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate   A data de término do período no formato "MM-dd-yyyy".
+     * @param preco     Preço de referência, como "5.1234".
+     * @return Lista de MoedaDto acima do preço, em ordem cronológica.
+     * @throws MoedaException Se ocorrer um erro ao obter as cotações do período.
+     */
+    public List<MoedaDto> getCotacoesAcimaDe(String startDate, String endDate, String preco) {
+        BigDecimal referencia = lerPreco(preco);
+        JanelaIndexada janela = indexar(startDate, endDate, null);
+        return janela.indice().listarAcima(janela.inicio(), janela.fim(), referencia);
+    }
 
-            // Constrói a URL para a consulta das cotações no período especificado
-            String urlString = "https://olinda.bcb.gov.br/olinda/servico/PTAX/versao/v1/odata/CotacaoDolarPeriodo(dataInicial=@dataInicial,dataFinalCotacao=@dataFinalCotacao)?%40dataInicial='"
-                    + periodo.getDataInicial() + "'&%40dataFinalCotacao='" + periodo.getDataFinal() + "'&%24format=json&%24skip=0&%24top=" + periodo.getDiasEntreAsDatasMaisUm();
+    /**
+     * Calcula quantos dias do período ficaram abaixo, iguais e acima do preço informado, e o percentil desse preço.
+     * As contagens vêm do índice de preços, sem percorrer as cotações do período.
+     *
+     * @param startDate A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate   A data de término do período no formato "MM-dd-yyyy".
+     * @param preco     Preço de referência, como "5.1234".
+     * @return PosicaoPrecoDto com as contagens e o percentil.
+     * @throws MoedaException Se ocorrer um erro ao obter as cotações do período.
+     */
+    public PosicaoPrecoDto getPosicaoPreco(String startDate, String endDate, String preco) {
+        BigDecimal referencia = lerPreco(preco);
+        JanelaIndexada janela = indexar(startDate, endDate, null);
+        return calcularPosicao(janela, referencia);
+    }
 
-            // Cria uma URL a partir da string
-            URL url = new URL(urlString);
+    /**
+     * Calcula em que percentil das cotações do período está a cotação atual.
+     *
+     * @param startDate A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate   A data de término do período no formato "MM-dd-yyyy".
+     * @return PosicaoPrecoDto da cotação atual no período.
+     * @throws MoedaException Se ocorrer um erro ao obter as cotações.
+     */
+    public PosicaoPrecoDto getPosicaoCotacaoAtual(String startDate, String endDate) {
+        JanelaIndexada janela = indexarComCotacaoAtual(startDate, endDate);
+        return calcularPosicao(janela, janela.cotacaoAtual().preco());
+    }
 
-            // Estabelece uma conexão HTTP
-            HttpURLConnection request = (HttpURLConnection) url.openConnection();
-            request.connect();
+    /**
+     * Calcula a quantidade de cotações, a mínima, a máxima, a média e o desvio padrão das cotações do período.
+     * As estatísticas vêm de somas prefixadas e sparse tables sobre as cotações em memória, então o custo de cada consulta
+     * não depende do tamanho do período depois que ele está carregado.
+     *
+     * @param startDate A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate   A data de término do período no formato "MM-dd-yyyy".
+     * @return EstatisticasDto do período.
+     * @throws MoedaException Se ocorrer um erro ao obter as cotações do período.
+     */
+    public EstatisticasDto getEstatisticasPeriodo(String startDate, String endDate) {
+        try {
+            boolean verificaDatas = verificaDatas(startDate, endDate);
+            if (!verificaDatas) throw new InvalidDateException();
 
-            // Faz a análise do JSON de resposta
-            JsonElement response = JsonParser.parseReader(new InputStreamReader((InputStream) request.getContent()));
-            JsonObject rootObj = response.getAsJsonObject();
-            JsonArray cotacoesArray = rootObj.getAsJsonArray("value");
+            LocalDate inicio = LocalDate.parse(startDate, FORMATO_ENTRADA);
+            LocalDate fim = LocalDate.parse(endDate, FORMATO_ENTRADA);
+            carregarPeriodo(inicio, fim);
 
-            List<MoedaDto> moedasLista = new ArrayList<MoedaDto>();
+            return cotacaoCache.estatisticas().calcular(inicio, fim);
+        } catch (InvalidDateException e) {
+            throw new InvalidDateException();
+        } catch (MoedaException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MoedaException("Algum erro inesperado aconteceu: " + e.getMessage());
+        }
+    }
 
-            for (JsonElement obj : cotacoesArray) {
-                // Converte a data e hora da cotação
-                Date data = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(obj.getAsJsonObject().get("dataHoraCotacao").getAsString());
-                BigDecimal preco = obj.getAsJsonObject().get("cotacaoCompra").getAsBigDecimal();
+    /**
+     * Agrupa as cotações do período em candles (abertura, máxima, mínima, fechamento e média) por semana, mês, trimestre
+     * ou ano. O período é ampliado para os limites dos grupos que ele toca, e os grupos sem cotações são omitidos.
+     * Os candles de grupos encerrados ficam em cache; apenas os demais são calculados, em uma única passada pelas cotações.
+     *
+     * @param startDate   A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate     A data de término do período no formato "MM-dd-yyyy".
+     * @param agrupamento "semana", "mes", "trimestre" ou "ano".
+     * @return Lista de CandleDto em ordem cronológica.
+     * @throws InvalidGroupingException Se o agrupamento não for reconhecido.
+     * @throws MoedaException Se ocorrer um erro ao obter as cotações do período.
+     */
+    public List<CandleDto> getCandles(String startDate, String endDate, String agrupamento) {
+        Agrupamento tipo = Agrupamento.de(agrupamento);
+        try {
+            boolean verificaDatas = verificaDatas(startDate, endDate);
+            if (!verificaDatas) throw new InvalidDateException();
 
-                // Formata a data para o formato dd/MM/yyyy
-                String dataRecebida = new SimpleDateFormat("dd/MM/yyyy").format(data);
-                // Formata a hora para o formato HH:mm:ss
-                String hora = new SimpleDateFormat("HH:mm:ss").format(data);
+            LocalDate hoje = LocalDate.now(clock);
+            LocalDate inicio = tipo.inicio(LocalDate.parse(startDate, FORMATO_ENTRADA));
+            LocalDate fim = tipo.fim(LocalDate.parse(endDate, FORMATO_ENTRADA));
+            if (fim.isAfter(hoje)) {
+                fim = hoje;
+            }
 
-                // Cria um objeto MoedaDto e verifica se a cotação é menor que a cotação atual
-                MoedaDto moedaRef = new MoedaDto(preco, dataRecebida, hora);
-                BigDecimal cotacaoRef = moedaRef.preco();
+            // Do primeiro ao último grupo que ainda não está em cache.
+            LocalDate primeiroFaltante = null;
+            LocalDate ultimoFaltante = null;
+            for (LocalDate grupo = inicio; !grupo.isAfter(fim); grupo = tipo.proximo(grupo)) {
+                if (candleCache.consultar(tipo, grupo) == null) {
+                    if (primeiroFaltante == null) {
+                        primeiroFaltante = grupo;
+                    }
+                    ultimoFaltante = grupo;
+                }
+            }
 
-                if (cotacaoHoje.compareTo(cotacaoRef) == 1) {
-                    moedasLista.add(moedaRef);
+            Map<LocalDate, CandleDto> calculados = new HashMap<LocalDate, CandleDto>();
+            if (primeiroFaltante != null) {
+                LocalDate fimFaltante = tipo.fim(ultimoFaltante).isAfter(fim) ? fim : tipo.fim(ultimoFaltante);
+                carregarPeriodo(primeiroFaltante, fimFaltante);
+                calculados = agruparEmCandles(cotacaoCache.serie(), tipo, primeiroFaltante, fimFaltante);
+                for (Map.Entry<LocalDate, CandleDto> calculado : calculados.entrySet()) {
+                    // Só grupos que terminaram antes de hoje têm todas as cotações definitivas.
+                    if (tipo.fim(calculado.getKey()).isBefore(hoje)) {
+                        candleCache.registrar(tipo, calculado.getKey(), calculado.getValue());
+                    }
                 }
             }
 
-            // Retorna a lista de cotações menores que a cotação atual para o período especificado
-            return moedasLista;
+            List<CandleDto> candles = new ArrayList<CandleDto>();
+            for (LocalDate grupo = inicio; !grupo.isAfter(fim); grupo = tipo.proximo(grupo)) {
+                CandleDto candle = candleCache.consultar(tipo, grupo);
+                if (candle == null) {
+                    candle = calculados.get(grupo);
+                }
+                if (candle != null) {
+                    candles.add(candle);
+                }
+            }
+            return candles;
         } catch (InvalidDateException e) {
             throw new InvalidDateException();
+        } catch (MoedaException e) {
+            throw e;
         } catch (Exception e) {
             throw new MoedaException("Algum erro inesperado aconteceu: " + e.getMessage());
         }
     }
 
     /**
-     * Obtém as cotações do dólar em relação ao Real (BRL) para um período especificado, considerando apenas as cotações maiores do que a cotação atual.
+     * Compara as cotações do período com a cotação atual, separando-as em menores, iguais e maiores em uma única passada.
+     * A busca da cotação atual e a do período são feitas em paralelo, então uma requisição custa no máximo o tempo da
+     * mais lenta das duas (e nenhuma chamada à API quando ambas estão em cache).
      *
      * @param startDate A data de início do período no formato "MM-dd-yyyy".
      * @param endDate   A data de término do período no formato "MM-dd-yyyy".
-     * @return Uma lista de objetos MoedaDto contendo as cotações maiores que a cotação atual no período especificado.
-     * @throws MoedaException Se ocorrer um erro ao obter as cotações do período.
+     * @return ComparacaoDto com a cotação atual e as cotações do período separadas.
+     * @throws MoedaException Se ocorrer um erro ao obter as cotações.
      */
-    public List<MoedaDto> getCotacoesMaioresAtual(String startDate, String endDate) {
+    public ComparacaoDto getComparacaoCotacaoAtual(String startDate, String endDate) {
         try {
             boolean verificaDatas = verificaDatas(startDate, endDate);
             if (!verificaDatas) throw new InvalidDateException();
 
-            // Obtém a cotação atual do dólar
-            MoedaDto moedaHoje = getCotacaoAtual();
-            BigDecimal cotacaoHoje = moedaHoje.preco();
-
-            // Cria uma instância do objeto Período
-            Periodo periodo = new Periodo(startDate, endDate);
-
-            // Constrói a URL para a consulta das cotações no período especificado
-            String urlString = "https://olinda.bcb.gov.br/olinda/servico/PTAX/versao/v1/odata/CotacaoDolarPeriodo(dataInicial=@dataInicial,dataFinalCotacao=@dataFinalCotacao)?%40dataInicial='"
-                    + periodo.getDataInicial() + "'&%40dataFinalCotacao='" + periodo.getDataFinal() + "'&%24format=json&%24skip=0&%24top=" + periodo.getDiasEntreAsDatasMaisUm();
+            // Obtém a cotação atual do dólar em paralelo com as cotações do período
+            CompletableFuture<MoedaDto> moedaHoje = CompletableFuture.supplyAsync(this::getCotacaoAtual, executor);
+            LocalDate inicio = LocalDate.parse(startDate, FORMATO_ENTRADA);
+            LocalDate fim = LocalDate.parse(endDate, FORMATO_ENTRADA);
+            carregarPeriodo(inicio, fim);
 
-            // Cria uma URL a partir da string
-            URL url = new URL(urlString);
-
-            // Estabelece uma conexão HTTP
-            HttpURLConnection request = (HttpURLConnection) url.openConnection();
-            request.connect();
+            return compararComCotacao(moedaHoje.join(), cotacaoCache.serie(), inicio, fim);
+        } catch (InvalidDateException e) {
+            throw new InvalidDateException();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof MoedaException moedaException) {
+                throw moedaException;
+            }
+            throw new MoedaException("Algum erro inesperado aconteceu: " + e.getCause().getMessage());
+        } catch (MoedaException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MoedaException("Algum erro inesperado aconteceu: " + e.getMessage());
+        }
+    }
 
-            // Faz a análise do JSON de resposta
-            JsonElement response = JsonParser.parseReader(new InputStreamReader((InputStream) request.getContent()));
-            JsonObject rootObj = response.getAsJsonObject();
-            JsonArray cotacoesArray = rootObj.getAsJsonArray("value");
+    /**
+     * Verifica se o período informado é válido, lançando InvalidDateException caso não seja.
+     * Usado antes de iniciar uma resposta em streaming, quando ainda é possível responder com o status adequado.
+     *
+     * @param startDate A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate   A data de término do período no formato "MM-dd-yyyy".
+     */
+    public void validarPeriodo(String startDate, String endDate) {
+        if (!verificaDatas(startDate, endDate)) throw new InvalidDateException();
+    }
 
-            List<MoedaDto> moedasLista = new ArrayList<MoedaDto>();
+    /**
+     * Indica se o período inteiro já está em memória, de modo que transmiti-lo não depende do banco de dados nem da API.
+     *
+     * @param startDate A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate   A data de término do período no formato "MM-dd-yyyy".
+     */
+    public boolean periodoEmMemoria(String startDate, String endDate) {
+        validarPeriodo(startDate, endDate);
+        return cotacaoCache.intervalosFaltantes(LocalDate.parse(startDate, FORMATO_ENTRADA), LocalDate.parse(endDate, FORMATO_ENTRADA)).isEmpty();
+    }
 
-            for (JsonElement obj : cotacoesArray) {
-                // Converte a data e hora da cotação
-                Date data = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(obj.getAsJsonObject().get("dataHoraCotacao").getAsString());
-                BigDecimal preco = obj.getAsJsonObject().get("cotacaoCompra").getAsBigDecimal();
+    /**
+     * Entrega ao consumidor, em ordem cronológica e à medida que ficam disponíveis, as cotações do período.
+     * Os trechos em memória são percorridos diretamente no cache. Nos trechos faltantes, as cotações salvas são
+     * repassadas ao consumidor enquanto são lidas do banco de dados e as das lacunas enquanto são decodificadas da
+     * resposta da API, sem montar a lista do período antes da primeira entrega. As cotações dos trechos faltantes são
+     * registradas no cache em blocos de tamanho fixo à medida que são entregues, então a memória usada não cresce com o
+     * período.
+     *
+     * @param startDate  A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate    A data de término do período no formato "MM-dd-yyyy".
+     * @param consumidor Destino de cada MoedaDto do período.
+     * @throws MoedaException Se ocorrer um erro ao obter as cotações do período.
+     */
+    public void transmitirCotacoesPeriodo(String startDate, String endDate, Consumer<MoedaDto> consumidor) {
+        try {
+            validarPeriodo(startDate, endDate);
 
-                // Formata a data para o formato dd/MM/yyyy
-                String dataRecebida = new SimpleDateFormat("dd/MM/yyyy").format(data);
-                // Formata a hora para o formato HH:mm:ss
-                String hora = new SimpleDateFormat("HH:mm:ss").format(data);
+            LocalDate inicio = LocalDate.parse(startDate, FORMATO_ENTRADA);
+            LocalDate fim = LocalDate.parse(endDate, FORMATO_ENTRADA);
+            LocalDate cursor = inicio;
 
-                // Cria um objeto MoedaDto e verifica se a cotação é maior que a cotação atual
-                MoedaDto moedaRef = new MoedaDto(preco, dataRecebida, hora);
-                BigDecimal cotacaoRef = moedaRef.preco();
+            for (Intervalo faltante : cotacaoCache.intervalosFaltantes(inicio, fim)) {
+                // Trecho já em memória antes do intervalo faltante.
+                if (faltante.inicio().isAfter(cursor)) {
+                    cotacaoCache.percorrer(cursor, faltante.inicio().minusDays(1), consumidor);
+                }
 
-                if (cotacaoRef.compareTo(cotacaoHoje) == 1) {
-                    moedasLista.add(moedaRef);
+                RegistroEmBlocos entregar = new RegistroEmBlocos(faltante, consumidor);
+                if (bancoPrimeiro) {
+                    transmitirDoBancoEDasLacunas(faltante, entregar);
+                } else {
+                    ptaxClient.buscarCotacoesPeriodo(faltante, entregar);
                 }
+                entregar.concluir();
+                cursor = faltante.fim().plusDays(1);
             }
 
-            // Retorna a lista de cotações maiores que a cotação atual para o período especificado
-            return moedasLista;
+            if (!cursor.isAfter(fim)) {
+                cotacaoCache.percorrer(cursor, fim, consumidor);
+            }
         } catch (InvalidDateException e) {
             throw new InvalidDateException();
+        } catch (UncheckedIOException e) {
+            // Falha ao escrever para o cliente: não há o que responder.
+            throw e;
+        } catch (MoedaException e) {
+            throw e;
         } catch (Exception e) {
             throw new MoedaException("Algum erro inesperado aconteceu: " + e.getMessage());
         }
     }
 
+    /**
+     * Entrega as cotações de um intervalo fora do cache em ordem cronológica, lendo o banco de dados por um cursor em
+     * trechos delimitados pelas lacunas de dias úteis. A leitura de cada trecho para na primeira cotação salva que sucede
+     * uma lacuna, e só depois de o cursor ser fechado e a conexão liberada a lacuna é buscada na API; a leitura seguinte
+     * recomeça dessa cotação. Assim nenhuma chamada à API acontece com uma conexão do banco ocupada.
+     * Se o banco falhar, inclusive no meio da leitura, o restante do intervalo é buscado na API.
+     *
+     * @param faltante Intervalo a ser entregue.
+     * @param entregar Destino de cada MoedaDto do intervalo.
+     */
+    private void transmitirDoBancoEDasLacunas(Intervalo faltante, Consumer<MoedaDto> entregar) throws IOException {
+        LocalDate inicioTrecho = faltante.inicio();
+        while (!inicioTrecho.isAfter(faltante.fim())) {
+            // Primeiro dia ainda não entregue e, se a leitura parar, último dia da lacuna encontrada.
+            LocalDate[] proximo = {inicioTrecho};
+            LocalDate[] fimLacuna = {faltante.fim()};
+            try {
+                moedaRepository.percorrerEnquanto(paraDate(inicioTrecho), paraDate(faltante.fim()), salva -> {
+                    LocalDate dia = new java.sql.Date(salva.getData().getTime()).toLocalDate();
+                    if (temDiaUtil(proximo[0], dia.minusDays(1))) {
+                        fimLacuna[0] = dia.minusDays(1);
+                        return false;
+                    }
+                    entregar.accept(mapper.mapearDeCotacaoSalvaParaMoedaDto(salva));
+                    proximo[0] = dia.plusDays(1);
+                    return true;
+                });
+            } catch (DataAccessException e) {
+                // Banco indisponível: a API continua sendo a fonte das cotações.
+                if (!proximo[0].isAfter(faltante.fim())) {
+                    ptaxClient.buscarCotacoesPeriodo(new Intervalo(proximo[0], faltante.fim()), entregar);
+                }
+                return;
+            }
+            transmitirLacunas(proximo[0], fimLacuna[0], entregar);
+            inicioTrecho = fimLacuna[0].plusDays(1);
+        }
+    }
+
+    private boolean temDiaUtil(LocalDate inicio, LocalDate fim) {
+        return !inicio.isAfter(fim) && !calendario.proximoDiaUtil(inicio.minusDays(1)).isAfter(fim);
+    }
+
+    // Busca na API as lacunas de dias úteis de [inicio, fim], repassando cada cotação enquanto é decodificada.
+    private void transmitirLacunas(LocalDate inicio, LocalDate fim, Consumer<MoedaDto> entregar) {
+        if (inicio.isAfter(fim)) {
+            return;
+        }
+        try {
+            for (Intervalo lacuna : calendario.lacunasDeDiasUteis(inicio, fim, Set.of())) {
+                ptaxClient.buscarCotacoesPeriodo(lacuna, entregar);
+            }
+        } catch (IOException e) {
+            throw new MoedaException("Algum erro inesperado aconteceu: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Entrega ao consumidor, em streaming, as cotações do período menores que a cotação atual.
+     *
+     * @param startDate  A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate    A data de término do período no formato "MM-dd-yyyy".
+     * @param consumidor Destino de cada MoedaDto selecionada.
+     */
+    public void transmitirCotacoesMenoresAtual(String startDate, String endDate, Consumer<MoedaDto> consumidor) {
+        validarPeriodo(startDate, endDate);
+        BigDecimal cotacaoHoje = getCotacaoAtual().preco();
+        transmitirCotacoesPeriodo(startDate, endDate, moedaRef -> {
+            if (moedaRef.preco().compareTo(cotacaoHoje) < 0) {
+                consumidor.accept(moedaRef);
+            }
+        });
+    }
+
+    /**
+     * Entrega ao consumidor, em streaming, as cotações do período maiores que a cotação atual.
+     *
+     * @param startDate  A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate    A data de término do período no formato "MM-dd-yyyy".
+     * @param consumidor Destino de cada MoedaDto selecionada.
+     */
+    public void transmitirCotacoesMaioresAtual(String startDate, String endDate, Consumer<MoedaDto> consumidor) {
+        validarPeriodo(startDate, endDate);
+        BigDecimal cotacaoHoje = getCotacaoAtual().preco();
+        transmitirCotacoesPeriodo(startDate, endDate, moedaRef -> {
+            if (moedaRef.preco().compareTo(cotacaoHoje) > 0) {
+                consumidor.accept(moedaRef);
+            }
+        });
+    }
+
     /**
      * Realiza a operação de buscar cotações de dólar em um período específico e salva no banco de dados.
+     * O período inteiro é gravado em lotes, e as datas que já estavam salvas são ignoradas pelo banco em vez de gerar
+     * uma violação de restrição única por registro.
      *
      * @param startDate Data de início do período.
      * @param endDate   Data de término do período.
-     * @return Uma mensagem indicando o resultado da operação.
+     * @return ResultadoIngestaoDto com a mensagem e as quantidades de cotações inseridas e ignoradas.
      */
-    public String salvarNoBdCotacoesDeDolarPorPeriodo(String startDate, String endDate) {
+    public ResultadoIngestaoDto salvarNoBdCotacoesDeDolarPorPeriodo(String startDate, String endDate) {
         try {
             boolean verificaDatas = verificaDatas(startDate, endDate);
             if (!verificaDatas) throw new InvalidDateException();
@@ -321,24 +542,23 @@ public class MoedaService {
             List<MoedaDto> listaMoedaDto = getCotacoesPeriodo(startDate, endDate);
 
             // Verifica se a lista não está vazia.
-            if (!listaMoedaDto.isEmpty()) {
-                // Itera sobre cada MoedaDto da lista.
-                for (MoedaDto dto : listaMoedaDto) {
-                    // Converte MoedaDto para a entidade Moeda.
-                    Moeda moeda = mapper.mapearDeMoedaDtoParaMoeda(dto);
-
-                    try {
-                        // Tenta salvar a entidade no banco de dados.
-                        moedaRepository.save(moeda);
-                    } catch (DataIntegrityViolationException ex) {
-                        // Em caso de violação de restrição única, ignora o registro duplicado.
-                        continue;
-                    }
-                }
-                // Retorna uma mensagem de sucesso.
-                return "Cotações salvas com sucesso";
+            if (listaMoedaDto.isEmpty()) {
+                return new ResultadoIngestaoDto("Não foram encontradas cotações para o período especificado", 0, 0);
             }
-            return "Não foram encontradas cotações para o período especificado";
+
+            // Converte cada MoedaDto para a entidade Moeda.
+            List<Moeda> moedas = new ArrayList<Moeda>(listaMoedaDto.size());
+            for (MoedaDto dto : listaMoedaDto) {
+                moedas.add(mapper.mapearDeMoedaDtoParaMoeda(dto));
+            }
+
+            // Grava o período em lotes, ignorando as datas já salvas.
+            int inseridas = moedaRepository.inserirIgnorandoExistentes(moedas);
+            if (inseridas > 0) {
+                datasSemCotacao.limpar();
+                arquivoHistorico.acrescentar(listaMoedaDto);
+            }
+            return new ResultadoIngestaoDto("Cotações salvas com sucesso", inseridas, moedas.size() - inseridas);
         } catch (InvalidDateException e) {
             throw new InvalidDateException();
         } catch (Exception e) {
@@ -346,34 +566,231 @@ public class MoedaService {
         }
     }
 
+    /**
+     * Sincroniza o banco de dados com a API do BCB para o período, buscando e gravando apenas os dias úteis que ainda
+     * não estão salvos. As datas já salvas são obtidas com uma única consulta por faixa, e cada lacuna de dias úteis
+     * vira uma única consulta de período na API; com o período completo, nenhuma chamada à API é feita.
+     *
+     * @param startDate Data de início do período.
+     * @param endDate   Data de término do período.
+     * @return ResultadoIngestaoDto com a mensagem e as quantidades de cotações inseridas e ignoradas.
+     */
+    public ResultadoIngestaoDto sincronizarNoBdCotacoesDeDolarPorPeriodo(String startDate, String endDate) {
+        boolean verificaDatas = verificaDatas(startDate, endDate);
+        if (!verificaDatas) throw new InvalidDateException();
+
+        return sincronizarNoBd(LocalDate.parse(startDate, FORMATO_ENTRADA), LocalDate.parse(endDate, FORMATO_ENTRADA));
+    }
+
+    /**
+     * Sincroniza o banco de dados com a API do BCB para o período, gravando apenas os dias úteis que ainda não estão salvos.
+     * Usado pela rota de sincronização e pela ingestão agendada.
+     *
+     * @param inicio Data inicial do período.
+     * @param fim    Data final do período; dias futuros são ignorados.
+     * @return ResultadoIngestaoDto com a mensagem e as quantidades de cotações inseridas e ignoradas.
+     * @throws MoedaException Se ocorrer um erro ao buscar ou gravar as cotações.
+     */
+    public ResultadoIngestaoDto sincronizarNoBd(LocalDate inicio, LocalDate fim) {
+        try {
+            // Dias futuros ainda não têm cotação.
+            LocalDate hoje = LocalDate.now(clock);
+            if (fim.isAfter(hoje)) {
+                fim = hoje;
+            }
+
+            // Datas já salvas no período, em uma única consulta.
+            Set<LocalDate> datasSalvas = new HashSet<LocalDate>();
+            for (Date data : moedaRepository.findDatasSalvasEntre(paraDate(inicio), paraDate(fim))) {
+                datasSalvas.add(new java.sql.Date(data.getTime()).toLocalDate());
+            }
+
+            // Busca apenas as lacunas de dias úteis.
+            List<MoedaDto> faltantes = new ArrayList<MoedaDto>();
+            List<Moeda> moedas = new ArrayList<Moeda>();
+            for (Intervalo lacuna : calendario.lacunasDeDiasUteis(inicio, fim, datasSalvas)) {
+                // As lacunas não estão no banco: o que não estiver em memória vem direto da API.
+                for (Intervalo faltante : cotacaoCache.intervalosFaltantes(lacuna.inicio(), lacuna.fim())) {
+                    registrarNoCache(faltante, ptaxClient.buscarCotacoesPeriodo(faltante));
+                }
+                for (MoedaDto dto : cotacaoCache.consultar(lacuna.inicio(), lacuna.fim())) {
+                    faltantes.add(dto);
+                    moedas.add(mapper.mapearDeMoedaDtoParaMoeda(dto));
+                }
+            }
+
+            if (moedas.isEmpty()) {
+                return new ResultadoIngestaoDto("Não há cotações faltantes no banco de dados para o período especificado", 0, 0);
+            }
+            int inseridas = moedaRepository.inserirIgnorandoExistentes(moedas);
+            if (inseridas > 0) {
+                datasSemCotacao.limpar();
+                arquivoHistorico.acrescentar(faltantes);
+            }
+            return new ResultadoIngestaoDto("Cotações sincronizadas com sucesso", inseridas, moedas.size() - inseridas);
+        } catch (Exception e) {
+            throw new MoedaException("Algum erro inesperado aconteceu: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Busca de novo na API as cotações do período que ainda têm só 2 casas decimais no banco de dados e as regrava com
+     * 4 casas. As cotações recebidas substituem as arredondadas no cache, no arquivo de histórico e nas respostas
+     * serializadas. Usado pela IngestaoService, um bloco de meses por vez.
+     *
+     * @param inicio Data inicial do período.
+     * @param fim    Data final do período.
+     * @return ResultadoIngestaoDto com a quantidade de cotações regravadas.
+     * @throws MoedaException Se ocorrer um erro ao buscar ou gravar as cotações.
+     */
+    public ResultadoIngestaoDto corrigirCotacoes(LocalDate inicio, LocalDate fim) {
+        try {
+            List<Date> datasACorrigir = moedaRepository.findDatasACorrigirEntre(paraDate(inicio), paraDate(fim));
+            if (datasACorrigir.isEmpty()) {
+                return new ResultadoIngestaoDto("Não há cotações a corrigir no período especificado", 0, 0);
+            }
+            Intervalo intervalo = new Intervalo(new java.sql.Date(datasACorrigir.get(0).getTime()).toLocalDate(),
+                    new java.sql.Date(datasACorrigir.get(datasACorrigir.size() - 1).getTime()).toLocalDate());
+
+            // Direto da API: o cache pode ter as cotações arredondadas lidas do banco.
+            List<MoedaDto> baixadas = ptaxClient.buscarCotacoesPeriodo(intervalo);
+            List<Moeda> moedas = new ArrayList<Moeda>(baixadas.size());
+            for (MoedaDto dto : baixadas) {
+                moedas.add(mapper.mapearDeMoedaDtoParaMoeda(dto));
+            }
+            int corrigidas = moedaRepository.corrigirCotacoes(moedas, paraDate(intervalo.inicio()), paraDate(intervalo.fim()));
+            registrarNoCache(intervalo, baixadas);
+            arquivoHistorico.acrescentar(baixadas);
+            return new ResultadoIngestaoDto("Cotações corrigidas com sucesso", corrigidas, datasACorrigir.size() - corrigidas);
+        } catch (Exception e) {
+            throw new MoedaException("Algum erro inesperado aconteceu: " + e.getMessage());
+        }
+    }
+
     /**
      * Obtém a cotação de dólar já salva no banco de dados para a data especificada.
+     * Fins de semana e feriados já procurados sem resultado são respondidos da memória, sem consultar o banco.
      *
      * @param data A data da cotação no formato "MM-dd-yyyy".
      * @return Um objeto MoedaDto contendo a cotação encontrada, data e hora da cotação.
      * @throws MoedaException Se a data não for encontrada no banco de dados ou se ocorrer um erro ao analisar a data.
      */
     public MoedaDto retornaCotacaoJaSalvaPorData(String data) {
+        return retornaCotacaoJaSalvaPorData(data, false);
+    }
+
+    /**
+     * Obtém a cotação de dólar já salva no banco de dados para a data especificada ou, se a data não for dia útil, para
+     * o último dia útil anterior a ela. O dia útil é resolvido pelo calendário, então a busca continua sendo uma única
+     * consulta por data; a data da cotação retornada indica o dia efetivamente usado.
+     *
+     * @param data            A data da cotação no formato "MM-dd-yyyy".
+     * @param diaUtilAnterior Se verdadeiro, uma data que não é dia útil é trocada pelo último dia útil anterior a ela.
+     * @return Um objeto MoedaDto contendo a cotação encontrada, data e hora da cotação.
+     * @throws MoedaException Se a data não for encontrada no banco de dados ou se ocorrer um erro ao analisar a data.
+     */
+    public MoedaDto retornaCotacaoJaSalvaPorData(String data, boolean diaUtilAnterior) {
         try {
             boolean dataValida = verificaData(data);
             if (!dataValida) throw new InvalidDateException();
 
             // Analisa a data fornecida no formato "MM-dd-yyyy".
-            SimpleDateFormat inputFormat = new SimpleDateFormat("MM-dd-yyyy");
-            Date dataFormatada = inputFormat.parse(data);
+            LocalDate dia = LocalDate.parse(data, FORMATO_ENTRADA);
+            if (diaUtilAnterior) {
+                dia = calendario.ultimoDiaUtilAte(dia);
+            }
 
-            // Busca a cotação no banco de dados com base na data.
-            Moeda moeda = moedaRepository.findByData(dataFormatada).orElseThrow(
-                    EntityNotFoundException::new);
+            // Busca a cotação no banco de dados com base na data, a menos que ela já tenha sido procurada sem resultado.
+            if (datasSemCotacao.contem(dia)) {
+                throw cotacaoNaoEncontrada(dia);
+            }
+            Optional<Moeda> moeda = moedaRepository.findByData(paraDate(dia));
+            if (moeda.isEmpty()) {
+                // Só a ausência em dias sem pregão é definitiva. Um dia útil ainda pode ser gravado, inclusive por outra
+                // instância, cuja gravação não esvaziaria a memória desta.
+                if (!calendario.ehDiaUtil(dia)) {
+                    datasSemCotacao.registrar(dia);
+                }
+                throw cotacaoNaoEncontrada(dia);
+            }
 
             // Use o Mapper para converter a entidade Moeda em MoedaDto.
-            MoedaDto moedaDto = mapper.mapearDeMoedaParaMoedaDto(moeda);
-
-            return moedaDto;
+            return mapper.mapearDeMoedaParaMoedaDto(moeda.get());
         } catch (InvalidDateException e) {
             throw new InvalidDateException();
         } catch (EntityNotFoundException e) {
-            throw new EntityNotFoundException("Não há registro de cotação no banco de dados para o dia '" + data + "'.");
+            throw e;
+        } catch (Exception e) {
+            throw new MoedaException("Algum erro inesperado aconteceu: " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Obtém as cotações já salvas no banco de dados para uma lista de datas, em qualquer ordem e com repetições.
+     * Em vez de uma consulta por data, as cotações entre a menor e a maior data são lidas com uma única consulta por faixa
+     * e casadas com as datas ordenadas em uma só passada.
+     *
+     * @param datas           Datas no formato "MM-dd-yyyy".
+     * @param diaUtilAnterior Se verdadeiro, cada data que não é dia útil é trocada pelo último dia útil anterior a ela.
+     * @return Um CotacaoPorDataDto por data, na ordem da lista, com a cotação nula para as datas sem cotação salva.
+     * @throws InvalidDateException Se a lista estiver ausente, passar do limite de datas ou tiver alguma data inválida.
+     * @throws MoedaException       Se ocorrer um erro ao ler as cotações do banco de dados.
+     */
+    public List<CotacaoPorDataDto> getCotacoesPorDatas(List<String> datas, boolean diaUtilAnterior) {
+        if (datas == null || datas.size() > MAXIMO_DATAS_POR_LOTE) {
+            throw new InvalidDateException("Informe uma lista com até " + MAXIMO_DATAS_POR_LOTE + " datas no formato 'MM-dd-yyyy'.");
+        }
+
+        // Dia na parte alta e posição na lista na parte baixa: ordenar as chaves ordena as datas sem perder a origem.
+        long[] chaves = new long[datas.size()];
+        for (int i = 0; i < chaves.length; i++) {
+            String data = datas.get(i);
+            if (data == null || !verificaData(data)) throw new InvalidDateException();
+            LocalDate dia = LocalDate.parse(data, FORMATO_ENTRADA);
+            if (diaUtilAnterior) {
+                dia = calendario.ultimoDiaUtilAte(dia);
+            }
+            chaves[i] = (dia.toEpochDay() << 32) | i;
+        }
+        Arrays.sort(chaves);
+
+        CotacaoPorDataDto[] resultado = new CotacaoPorDataDto[chaves.length];
+        if (chaves.length == 0) {
+            return Arrays.asList(resultado);
+        }
+        try {
+            // Uma única leitura por faixa, já em ordem cronológica.
+            LocalDate inicio = LocalDate.ofEpochDay(chaves[0] >> 32);
+            LocalDate fim = LocalDate.ofEpochDay(chaves[chaves.length - 1] >> 32);
+            List<CotacaoSalva> salvas = moedaRepository.findByDataBetweenOrderByData(paraDate(inicio), paraDate(fim));
+            long[] diasSalvos = new long[salvas.size()];
+            for (int i = 0; i < diasSalvos.length; i++) {
+                diasSalvos[i] = new java.sql.Date(salvas.get(i).getData().getTime()).toLocalDate().toEpochDay();
+            }
+
+            // Junção por intercalação: as duas sequências estão ordenadas, então cada uma é percorrida uma única vez.
+            int j = 0;
+            long diaMapeado = Long.MIN_VALUE;
+            MoedaDto mapeada = null;
+            for (long chave : chaves) {
+                long dia = chave >> 32;
+                int posicao = (int) chave;
+                while (j < diasSalvos.length && diasSalvos[j] < dia) {
+                    j++;
+                }
+                MoedaDto cotacao = null;
+                if (j < diasSalvos.length && diasSalvos[j] == dia) {
+                    // Datas repetidas reaproveitam o mesmo MoedaDto.
+                    if (diaMapeado != dia) {
+                        mapeada = mapper.mapearDeCotacaoSalvaParaMoedaDto(salvas.get(j));
+                        diaMapeado = dia;
+                    }
+                    cotacao = mapeada;
+                }
+                resultado[posicao] = new CotacaoPorDataDto(datas.get(posicao), cotacao);
+            }
+            return Arrays.asList(resultado);
         } catch (Exception e) {
             throw new MoedaException("Algum erro inesperado aconteceu: " + e.getMessage());
         }
@@ -382,6 +799,301 @@ public class MoedaService {
 
     // Métodos auxiliares
 
+    /**
+     * Busca na API do BCB a última cotação disponível com uma única consulta de período.
+     * O calendário de dias úteis define uma janela curta que certamente contém o último boletim publicado, evitando
+     * recuar um dia por requisição em fins de semana e feriados.
+     *
+     * @return MoedaDto com a última cotação do dólar disponibilizada pela API do BCB.
+     */
+    private MoedaDto buscarCotacaoAtualNaApi() {
+        try {
+            // Obtém a data atual.
+            LocalDate hoje = LocalDate.now(clock);
+
+            // Janela que vai de alguns dias úteis antes do último dia útil até hoje.
+            Intervalo janela = new Intervalo(calendario.subtrairDiasUteis(hoje, DIAS_UTEIS_JANELA_COTACAO_ATUAL), hoje);
+            List<MoedaDto> moedasLista = ptaxClient.buscarCotacoesPeriodo(janela);
+
+            // Caso excepcional (feriado não previsto ou atraso prolongado): amplia a janela uma única vez.
+            if (moedasLista.isEmpty()) {
+                janela = new Intervalo(hoje.minusDays(DIAS_JANELA_AMPLIADA_COTACAO_ATUAL), hoje);
+                moedasLista = ptaxClient.buscarCotacoesPeriodo(janela);
+            }
+            if (moedasLista.isEmpty()) {
+                throw new MoedaException("Não foi encontrada cotação disponível nos últimos " + DIAS_JANELA_AMPLIADA_COTACAO_ATUAL + " dias.");
+            }
+            registrarNoCache(janela, moedasLista);
+
+            // Retorna a cotação encontrada. A API retorna as cotações em ordem cronológica, então a última é a mais recente.
+            return moedasLista.get(moedasLista.size() - 1);
+        } catch (MoedaException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MoedaException("Algum erro inesperado aconteceu: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Percorre uma única vez as cotações do período, acumulando o candle de cada grupo sobre os preços em ponto fixo.
+     *
+     * @param serie  Série com as cotações do período.
+     * @param tipo   Agrupamento dos candles.
+     * @param inicio Primeiro dia do primeiro grupo.
+     * @param fim    Último dia considerado.
+     * @return Candles indexados pelo primeiro dia do grupo, apenas para grupos com cotações.
+     */
+    private Map<LocalDate, CandleDto> agruparEmCandles(SerieCotacoes serie, Agrupamento tipo, LocalDate inicio, LocalDate fim) {
+        Map<LocalDate, CandleDto> candles = new HashMap<LocalDate, CandleDto>();
+        int[] faixa = serie.faixa(inicio, fim);
+        int i = faixa[0];
+        while (i < faixa[1]) {
+            LocalDate grupo = tipo.inicio(LocalDate.ofEpochDay(serie.dia(i)));
+            long limite = tipo.proximo(grupo).toEpochDay();
+            long abertura = serie.preco(i);
+            long maxima = abertura;
+            long minima = abertura;
+            long fechamento = abertura;
+            long soma = 0;
+            int dias = 0;
+            for (; i < faixa[1] && serie.dia(i) < limite; i++) {
+                long preco = serie.preco(i);
+                maxima = Math.max(maxima, preco);
+                minima = Math.min(minima, preco);
+                fechamento = preco;
+                soma += preco;
+                dias++;
+            }
+            BigDecimal media = BigDecimal.valueOf(soma, SerieCotacoes.ESCALA_PRECO)
+                    .divide(BigDecimal.valueOf(dias), SerieCotacoes.ESCALA_PRECO, RoundingMode.HALF_UP);
+            candles.put(grupo, new CandleDto(grupo.format(FORMATO_SAIDA), tipo.fim(grupo).format(FORMATO_SAIDA),
+                    BigDecimal.valueOf(abertura, SerieCotacoes.ESCALA_PRECO), BigDecimal.valueOf(maxima, SerieCotacoes.ESCALA_PRECO),
+                    BigDecimal.valueOf(minima, SerieCotacoes.ESCALA_PRECO), BigDecimal.valueOf(fechamento, SerieCotacoes.ESCALA_PRECO),
+                    media, dias));
+        }
+        return candles;
+    }
+
+    /**
+     * Separa as cotações do período em menores, iguais e maiores que a cotação de referência, percorrendo uma única vez
+     * a coluna de preços em ponto fixo da série; os MoedaDto só são criados quando as partições são lidas.
+     *
+     * @param referencia Cotação usada na comparação.
+     * @param serie      Série que contém o período.
+     * @param inicio     Data inicial do período.
+     * @param fim        Data final do período.
+     * @return ComparacaoDto com as três partições, mantendo a ordem cronológica.
+     */
+    private ComparacaoDto compararComCotacao(MoedaDto referencia, SerieCotacoes serie, LocalDate inicio, LocalDate fim) {
+        // Com mais de 4 casas na referência, arredondar para cima/baixo preserva as comparações estritas.
+        long limiteMenores = SerieCotacoes.paraPontoFixo(referencia.preco(), RoundingMode.CEILING);
+        long limiteMaiores = SerieCotacoes.paraPontoFixo(referencia.preco(), RoundingMode.FLOOR);
+        int[] faixa = serie.faixa(inicio, fim);
+        int tamanho = faixa[1] - faixa[0];
+        int[] menores = new int[tamanho];
+        int[] iguais = new int[tamanho];
+        int[] maiores = new int[tamanho];
+        int quantidadeMenores = 0;
+        int quantidadeIguais = 0;
+        int quantidadeMaiores = 0;
+
+        for (int i = faixa[0]; i < faixa[1]; i++) {
+            long preco = serie.preco(i);
+            if (preco < limiteMenores) {
+                menores[quantidadeMenores++] = i;
+            } else if (preco > limiteMaiores) {
+                maiores[quantidadeMaiores++] = i;
+            } else {
+                iguais[quantidadeIguais++] = i;
+            }
+        }
+
+        return new ComparacaoDto(referencia, serie.visao(menores, quantidadeMenores), serie.visao(iguais, quantidadeIguais),
+                serie.visao(maiores, quantidadeMaiores));
+    }
+
+    /**
+     * Garante o período em memória e obtém o índice de preços, buscando a cotação atual em paralelo.
+     *
+     * @param startDate A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate   A data de término do período no formato "MM-dd-yyyy".
+     * @return Janela do período com o índice e a cotação atual.
+     */
+    private JanelaIndexada indexarComCotacaoAtual(String startDate, String endDate) {
+        return indexar(startDate, endDate, CompletableFuture.supplyAsync(this::getCotacaoAtual, executor));
+    }
+
+    /**
+     * Garante que o período está todo em memória e obtém o índice de preços do cache.
+     *
+     * @param startDate A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate   A data de término do período no formato "MM-dd-yyyy".
+     * @param moedaHoje Busca da cotação atual em andamento, ou null se ela não for necessária.
+     * @return Janela do período com o índice e, se pedida, a cotação atual.
+     */
+    private JanelaIndexada indexar(String startDate, String endDate, CompletableFuture<MoedaDto> moedaHoje) {
+        try {
+            boolean verificaDatas = verificaDatas(startDate, endDate);
+            if (!verificaDatas) throw new InvalidDateException();
+
+            LocalDate inicio = LocalDate.parse(startDate, FORMATO_ENTRADA);
+            LocalDate fim = LocalDate.parse(endDate, FORMATO_ENTRADA);
+            carregarPeriodo(inicio, fim);
+
+            MoedaDto cotacaoAtual = moedaHoje == null ? null : moedaHoje.join();
+            return new JanelaIndexada(inicio, fim, cotacaoCache.indicePrecos(), cotacaoAtual);
+        } catch (InvalidDateException e) {
+            throw new InvalidDateException();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof MoedaException moedaException) {
+                throw moedaException;
+            }
+            throw new MoedaException("Algum erro inesperado aconteceu: " + e.getCause().getMessage());
+        } catch (MoedaException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MoedaException("Algum erro inesperado aconteceu: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Monta a posição do preço na janela a partir das contagens do índice.
+     *
+     * @param janela Janela indexada do período.
+     * @param preco  Preço de referência.
+     * @return PosicaoPrecoDto com as contagens e o percentil (nulo se a janela não tiver cotações).
+     */
+    private PosicaoPrecoDto calcularPosicao(JanelaIndexada janela, BigDecimal preco) {
+        IndicePrecos indice = janela.indice();
+        int total = indice.contar(janela.inicio(), janela.fim());
+        int abaixo = indice.contarAbaixo(janela.inicio(), janela.fim(), preco);
+        int acima = indice.contarAcima(janela.inicio(), janela.fim(), preco);
+        int iguais = total - abaixo - acima;
+
+        BigDecimal percentil = null;
+        if (total > 0) {
+            // (abaixo + iguais / 2) / total * 100
+            percentil = BigDecimal.valueOf(2L * abaixo + iguais).multiply(BigDecimal.valueOf(50))
+                    .divide(BigDecimal.valueOf(total), 2, RoundingMode.HALF_UP);
+        }
+        return new PosicaoPrecoDto(preco, abaixo, iguais, acima, total, percentil);
+    }
+
+    /**
+     * Converte o preço recebido na URL, aceitando ponto ou vírgula como separador decimal.
+     *
+     * @param preco Preço em texto.
+     * @return Preço convertido.
+     * @throws InvalidPriceException Se o texto não for um número não negativo.
+     */
+    private BigDecimal lerPreco(String preco) {
+        try {
+            BigDecimal valor = new BigDecimal(preco.replace(',', '.'));
+            if (valor.signum() < 0) throw new InvalidPriceException();
+            return valor;
+        } catch (NumberFormatException e) {
+            throw new InvalidPriceException();
+        }
+    }
+
+    /**
+     * Obtém as cotações do período a partir do cache, buscando na API apenas os sub-intervalos que ainda não estão em memória.
+     *
+     * @param startDate A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate   A data de término do período no formato "MM-dd-yyyy".
+     * @return Lista de MoedaDto do período em ordem cronológica.
+     */
+    private List<MoedaDto> obterCotacoesPeriodo(String startDate, String endDate) throws IOException {
+        LocalDate inicio = LocalDate.parse(startDate, FORMATO_ENTRADA);
+        LocalDate fim = LocalDate.parse(endDate, FORMATO_ENTRADA);
+        carregarPeriodo(inicio, fim);
+
+        return cotacaoCache.consultar(inicio, fim);
+    }
+
+    /**
+     * Carrega no cache os sub-intervalos do período que ainda não estão em memória.
+     *
+     * @param inicio Data inicial do período.
+     * @param fim    Data final do período.
+     */
+    private void carregarPeriodo(LocalDate inicio, LocalDate fim) throws IOException {
+        for (Intervalo faltante : cotacaoCache.intervalosFaltantes(inicio, fim)) {
+            carregarIntervalo(faltante);
+        }
+    }
+
+    /**
+     * Carrega no cache um intervalo que não está em memória.
+     * Com o banco primeiro, as cotações salvas são lidas com uma consulta por faixa e a API só é consultada para as
+     * lacunas de dias úteis; se o banco estiver indisponível, o intervalo inteiro é buscado na API.
+     *
+     * @param faltante Intervalo a ser carregado.
+     */
+    private void carregarIntervalo(Intervalo faltante) throws IOException {
+        if (!bancoPrimeiro) {
+            registrarNoCache(faltante, ptaxClient.buscarCotacoesPeriodo(faltante));
+            return;
+        }
+
+        List<CotacaoSalva> salvas;
+        try {
+            salvas = moedaRepository.findByDataBetweenOrderByData(paraDate(faltante.inicio()), paraDate(faltante.fim()));
+        } catch (DataAccessException e) {
+            // Banco indisponível: a API continua sendo a fonte das cotações.
+            registrarNoCache(faltante, ptaxClient.buscarCotacoesPeriodo(faltante));
+            return;
+        }
+
+        NavigableMap<LocalDate, MoedaDto> cotacoes = new TreeMap<LocalDate, MoedaDto>();
+        for (CotacaoSalva salva : salvas) {
+            cotacoes.put(new java.sql.Date(salva.getData().getTime()).toLocalDate(), mapper.mapearDeCotacaoSalvaParaMoedaDto(salva));
+        }
+
+        for (Intervalo lacuna : calendario.lacunasDeDiasUteis(faltante.inicio(), faltante.fim(), cotacoes.keySet())) {
+            for (MoedaDto baixada : ptaxClient.buscarCotacoesPeriodo(lacuna)) {
+                cotacoes.put(LocalDate.parse(baixada.data(), FORMATO_SAIDA), baixada);
+            }
+        }
+
+        registrarNoCache(faltante, new ArrayList<MoedaDto>(cotacoes.values()));
+    }
+
+    /**
+     * Registra no cache as cotações buscadas na API para o intervalo.
+     * Só o dia de hoje ainda pode mudar: se a cotação de hoje já veio, o intervalo todo é definitivo.
+     *
+     * @param intervalo         Intervalo consultado na API.
+     * @param cotacoesBaixadas  Cotações retornadas pela API, em ordem cronológica.
+     */
+    private void registrarNoCache(Intervalo intervalo, List<MoedaDto> cotacoesBaixadas) {
+        LocalDate hoje = LocalDate.now(clock);
+        boolean cotacaoDeHojePublicada = !cotacoesBaixadas.isEmpty()
+                && cotacoesBaixadas.get(cotacoesBaixadas.size() - 1).data().equals(hoje.format(FORMATO_SAIDA));
+        LocalDate limiteCobertura = cotacaoDeHojePublicada ? hoje : hoje.minusDays(1);
+
+        Intervalo alterado = cotacaoCache.registrar(intervalo, cotacoesBaixadas, limiteCobertura);
+        // Só respostas que alcançam dias já em memória e alterados agora podem ter sido serializadas sem as cotações recebidas.
+        if (alterado != null) {
+            respostasCache.invalidar(alterado.inicio(), alterado.fim());
+        }
+    }
+
+    // Cria a exceção de cotação não encontrada; a data é informada no mesmo formato "MM-dd-yyyy" das rotas.
+    private static CotacaoNaoEncontradaException cotacaoNaoEncontrada(LocalDate dia) {
+        return new CotacaoNaoEncontradaException("Não há registro de cotação no banco de dados para o dia '" + dia.format(FORMATO_ENTRADA) + "'.");
+    }
+
+    /**
+     * Converte a data para o java.util.Date usado pela entidade Moeda, no mesmo fuso do MoedaMapper.
+     *
+     * @param data Data a ser convertida.
+     * @return Date no início do dia.
+     */
+    private static Date paraDate(LocalDate data) {
+        return java.sql.Date.valueOf(data);
+    }
+
     /**
      * Verifica se a data fornecida em formato de string é válida no formato "MM-dd-yyyy".
      *
@@ -434,4 +1146,43 @@ public class MoedaService {
         }
     }
 
+    // Repassa as cotações transmitidas de um intervalo faltante e as registra no cache em blocos de
+    // TAMANHO_BLOCO_REGISTRO, em vez de guardar o intervalo inteiro até o fim. Como as cotações chegam em ordem
+    // cronológica e sem lacunas, cada bloco cobre do dia seguinte ao bloco anterior até a data da sua última cotação.
+    private final class RegistroEmBlocos implements Consumer<MoedaDto> {
+        private final Intervalo faltante;
+        private final Consumer<MoedaDto> consumidor;
+        private LocalDate inicioBloco;
+        private List<MoedaDto> bloco = new ArrayList<MoedaDto>();
+
+        private RegistroEmBlocos(Intervalo faltante, Consumer<MoedaDto> consumidor) {
+            this.faltante = faltante;
+            this.consumidor = consumidor;
+            this.inicioBloco = faltante.inicio();
+        }
+
+        @Override
+        public void accept(MoedaDto moedaDto) {
+            consumidor.accept(moedaDto);
+            bloco.add(moedaDto);
+            if (bloco.size() == TAMANHO_BLOCO_REGISTRO) {
+                LocalDate fimBloco = LocalDate.parse(moedaDto.data(), FORMATO_SAIDA);
+                registrarNoCache(new Intervalo(inicioBloco, fimBloco), bloco);
+                inicioBloco = fimBloco.plusDays(1);
+                bloco = new ArrayList<MoedaDto>();
+            }
+        }
+
+        // Registra o último bloco, que cobre até o fim do intervalo; só é chamado se o intervalo foi entregue inteiro.
+        private void concluir() {
+            if (!inicioBloco.isAfter(faltante.fim())) {
+                registrarNoCache(new Intervalo(inicioBloco, faltante.fim()), bloco);
+            }
+        }
+    }
+
+    // Período já carregado no cache, com o índice de preços e, quando pedida, a cotação atual.
+    private record JanelaIndexada(LocalDate inicio, LocalDate fim, IndicePrecos indice, MoedaDto cotacaoAtual) {
+    }
+
 }
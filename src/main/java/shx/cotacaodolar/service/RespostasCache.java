@@ -0,0 +1,207 @@
+package shx.cotacaodolar.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache em memória dos corpos JSON já serializados das respostas de período, para que consultas repetidas sejam
+ * respondidas com uma cópia de bytes, sem montar os DTOs nem serializá-los de novo.
+ * As entradas são indexadas pela rota e pelo período normalizado e podem guardar também o corpo comprimido em gzip, criado
+ * na primeira requisição que o aceita. O tamanho total dos corpos é limitado, e as entradas menos usadas recentemente
+ * são descartadas primeiro. Cotações que alteram dias já em memória no CotacaoCache invalidam as entradas cujo período as
+ * alcança; um corpo serializado enquanto isso só deixa de ser guardado se o seu próprio período foi alcançado.
+ */
+@Component
+public class RespostasCache {
+    private static final DateTimeFormatter FORMATO_ENTRADA = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+    // Estimativa do espaço ocupado por uma entrada além dos corpos.
+    private static final int TAMANHO_FIXO_ENTRADA = 128;
+    // Quantidade de invalidações lembradas para conferir os corpos serializados durante elas.
+    private static final int INVALIDACOES_LEMBRADAS = 256;
+
+    private final long tamanhoMaximo;
+    private final boolean gzipHabilitado;
+    // Em ordem de acesso: a primeira entrada é a menos usada recentemente.
+    private final LinkedHashMap<Chave, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private long tamanhoAtual;
+    // Últimas invalidações, da mais antiga para a mais recente, e o total já feito. Um corpo serializado antes de uma
+    // invalidação que alcança o seu período não é guardado depois dela.
+    private final ArrayDeque<Invalidacao> invalidacoesRecentes = new ArrayDeque<>();
+    private long invalidacoes;
+
+    public RespostasCache(@Value("${respostas.cache.tamanho-maximo-bytes:33554432}") long tamanhoMaximo,
+                          @Value("${respostas.cache.gzip:true}") boolean gzipHabilitado) {
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.gzipHabilitado = gzipHabilitado;
+    }
+
+    public boolean gzipHabilitado() {
+        return gzipHabilitado;
+    }
+
+    /**
+     * Retorna o corpo guardado para a chave, serializando-o e guardando-o se ainda não estiver em memória.
+     *
+     * @param chave      Rota e período da resposta.
+     * @param gzip       Se verdadeiro, retorna o corpo comprimido em gzip.
+     * @param serializar Serializa o corpo em JSON; chamado fora do bloqueio, apenas quando o corpo não está em memória.
+     * @return Corpo JSON, comprimido se solicitado. O array não deve ser alterado.
+     */
+    public byte[] obter(Chave chave, boolean gzip, Supplier<byte[]> serializar) {
+        Entrada entrada;
+        long invalidacoesLidas;
+        synchronized (this) {
+            entrada = entradas.get(chave);
+            invalidacoesLidas = invalidacoes;
+        }
+
+        boolean alterada = false;
+        if (entrada == null) {
+            entrada = new Entrada(serializar.get(), null);
+            alterada = true;
+        }
+        if (gzip && entrada.gzip() == null) {
+            entrada = new Entrada(entrada.json(), comprimir(entrada.json()));
+            alterada = true;
+        }
+        if (alterada) {
+            guardar(chave, entrada, invalidacoesLidas);
+        }
+        return gzip ? entrada.gzip() : entrada.json();
+    }
+
+    /**
+     * Descarta as respostas cujo período alcança o intervalo informado.
+     *
+     * @param inicio Primeiro dia com cotações novas.
+     * @param fim    Último dia com cotações novas.
+     */
+    public synchronized void invalidar(LocalDate inicio, LocalDate fim) {
+        lembrar(new Invalidacao(inicio, fim));
+        Iterator<Map.Entry<Chave, Entrada>> iterador = entradas.entrySet().iterator();
+        while (iterador.hasNext()) {
+            Map.Entry<Chave, Entrada> entrada = iterador.next();
+            if (entrada.getKey().alcanca(inicio, fim)) {
+                tamanhoAtual -= entrada.getValue().tamanho();
+                iterador.remove();
+            }
+        }
+    }
+
+    /**
+     * Descarta todas as respostas.
+     */
+    public synchronized void limpar() {
+        lembrar(new Invalidacao(LocalDate.MIN, LocalDate.MAX));
+        entradas.clear();
+        tamanhoAtual = 0;
+    }
+
+    /**
+     * Soma, em bytes, dos corpos em memória.
+     */
+    public synchronized long tamanhoAtual() {
+        return tamanhoAtual;
+    }
+
+    private synchronized void guardar(Chave chave, Entrada entrada, long invalidacoesLidas) {
+        if (entrada.tamanho() > tamanhoMaximo || invalidadaDesde(chave, invalidacoesLidas)) {
+            return;
+        }
+        Entrada anterior = entradas.put(chave, entrada);
+        if (anterior != null) {
+            tamanhoAtual -= anterior.tamanho();
+        }
+        tamanhoAtual += entrada.tamanho();
+
+        Iterator<Entrada> menosUsadas = entradas.values().iterator();
+        while (tamanhoAtual > tamanhoMaximo && menosUsadas.hasNext()) {
+            tamanhoAtual -= menosUsadas.next().tamanho();
+            menosUsadas.remove();
+        }
+    }
+
+    private void lembrar(Invalidacao invalidacao) {
+        invalidacoes++;
+        invalidacoesRecentes.addLast(invalidacao);
+        if (invalidacoesRecentes.size() > INVALIDACOES_LEMBRADAS) {
+            invalidacoesRecentes.removeFirst();
+        }
+    }
+
+    // Verifica se alguma invalidação feita depois da leitura alcança a chave. Se alguma delas já foi esquecida, considera
+    // que sim.
+    private boolean invalidadaDesde(Chave chave, long invalidacoesLidas) {
+        long desde = invalidacoes - invalidacoesLidas;
+        if (desde > invalidacoesRecentes.size()) {
+            return true;
+        }
+        Iterator<Invalidacao> recentes = invalidacoesRecentes.descendingIterator();
+        for (long i = 0; i < desde; i++) {
+            Invalidacao invalidacao = recentes.next();
+            if (chave.alcanca(invalidacao.inicio(), invalidacao.fim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] comprimir(byte[] json) {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(saida)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return saida.toByteArray();
+    }
+
+    /**
+     * Identifica uma resposta de período.
+     *
+     * @param variante Nome da rota, como "periodo" ou "candles".
+     * @param inicio   Data inicial do período.
+     * @param fim      Data final do período.
+     * @param extra    Demais parâmetros da rota, como o preço ou o agrupamento; vazio se não houver.
+     */
+    public record Chave(String variante, LocalDate inicio, LocalDate fim, String extra) {
+
+        /**
+         * Monta a chave a partir dos parâmetros de uma rota já validados.
+         *
+         * @param startDate A data de início do período no formato "MM-dd-yyyy".
+         * @param endDate   A data de término do período no formato "MM-dd-yyyy".
+         */
+        public static Chave de(String variante, String startDate, String endDate, String extra) {
+            return new Chave(variante, LocalDate.parse(startDate, FORMATO_ENTRADA), LocalDate.parse(endDate, FORMATO_ENTRADA),
+                    extra == null ? "" : extra.toLowerCase(Locale.ROOT));
+        }
+
+        boolean alcanca(LocalDate inicioAlterado, LocalDate fimAlterado) {
+            return !inicio.isAfter(fimAlterado) && !fim.isBefore(inicioAlterado);
+        }
+    }
+
+    private record Invalidacao(LocalDate inicio, LocalDate fim) {
+    }
+
+    private record Entrada(byte[] json, byte[] gzip) {
+        long tamanho() {
+            return TAMANHO_FIXO_ENTRADA + json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package shx.cotacaodolar.service;
+
+import org.springframework.stereotype.Service;
+import shx.cotacaodolar.dto.CandleDto;
+import shx.cotacaodolar.dto.ResultadoIngestaoDto;
+import shx.cotacaodolar.dto.VerificacaoResumosDto;
+import shx.cotacaodolar.infra.IngestaoEmAndamentoException;
+import shx.cotacaodolar.infra.InvalidGroupingException;
+import shx.cotacaodolar.infra.MoedaException;
+import shx.cotacaodolar.model.Agrupamento;
+import shx.cotacaodolar.model.ResumoCotacao;
+import shx.cotacaodolar.repository.ResumoCotacaoRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consulta e manutenção dos resumos mensais e anuais de tb_cotacao_dolar.
+ * Os resumos são atualizados a cada inserção de cotações; a verificação e a reconstrução existem para corrigir resumos
+ * gravados antes dessa manutenção ou alterados fora da aplicação.
+ */
+@Service
+public class ResumoCotacaoService {
+    private static final DateTimeFormatter FORMATO_ENTRADA = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+    private static final DateTimeFormatter FORMATO_SAIDA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final ResumoCotacaoRepository resumoCotacaoRepository;
+    private final MoedaService moedaService;
+    private final CoordenadorIngestao coordenadorIngestao;
+
+    public ResumoCotacaoService(ResumoCotacaoRepository resumoCotacaoRepository, MoedaService moedaService,
+                                CoordenadorIngestao coordenadorIngestao) {
+        this.resumoCotacaoRepository = resumoCotacaoRepository;
+        this.moedaService = moedaService;
+        this.coordenadorIngestao = coordenadorIngestao;
+    }
+
+    /**
+     * Retorna os resumos mensais ou anuais do período, lidos das tabelas de resumo, no mesmo formato dos candles.
+     *
+     * @param startDate   A data de início do período no formato "MM-dd-yyyy".
+     * @param endDate     A data de término do período no formato "MM-dd-yyyy".
+     * @param agrupamento "mes" ou "ano".
+     * @return Lista de CandleDto em ordem cronológica, um por mês ou ano com cotações salvas.
+     * @throws InvalidGroupingException Se o agrupamento não for "mes" nem "ano".
+     * @throws MoedaException Se ocorrer um erro ao consultar o banco de dados.
+     */
+    public List<CandleDto> getResumos(String startDate, String endDate, String agrupamento) {
+        Agrupamento tipo = Agrupamento.de(agrupamento);
+        if (tipo != Agrupamento.MES && tipo != Agrupamento.ANO) {
+            throw new InvalidGroupingException("Os resumos salvos são apenas por 'mes' ou 'ano'.");
+        }
+        moedaService.validarPeriodo(startDate, endDate);
+        try {
+            LocalDate inicio = tipo.inicio(LocalDate.parse(startDate, FORMATO_ENTRADA));
+            LocalDate fim = LocalDate.parse(endDate, FORMATO_ENTRADA);
+
+            List<CandleDto> resumos = new ArrayList<CandleDto>();
+            for (ResumoCotacao resumo : resumoCotacaoRepository.findByAgrupamentoAndInicioBetweenOrderByInicio(tipo, inicio, fim)) {
+                BigDecimal media = resumo.getSoma().divide(BigDecimal.valueOf(resumo.getQuantidade()), 4, RoundingMode.HALF_UP);
+                resumos.add(new CandleDto(resumo.getInicio().format(FORMATO_SAIDA), tipo.fim(resumo.getInicio()).format(FORMATO_SAIDA),
+                        resumo.getAbertura(), resumo.getMaxima(), resumo.getMinima(), resumo.getFechamento(), media,
+                        resumo.getQuantidade()));
+            }
+            return resumos;
+        } catch (Exception e) {
+            throw new MoedaException("Algum erro inesperado aconteceu: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Compara os resumos gravados com os calculados a partir das cotações salvas.
+     *
+     * @return VerificacaoResumosDto com os resumos ausentes, divergentes ou sem cotações.
+     * @throws MoedaException Se ocorrer um erro ao consultar o banco de dados.
+     */
+    public VerificacaoResumosDto verificar() {
+        try {
+            List<String> divergencias = resumoCotacaoRepository.verificar();
+            return new VerificacaoResumosDto(divergencias.isEmpty(), divergencias);
+        } catch (Exception e) {
+            throw new MoedaException("Algum erro inesperado aconteceu: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recalcula todos os resumos a partir das cotações salvas, se nenhuma ingestão estiver em andamento.
+     *
+     * @return ResultadoIngestaoDto com a quantidade de resumos gravados.
+     * @throws IngestaoEmAndamentoException Se outra execução detém a trava de ingestão.
+     */
+    public ResultadoIngestaoDto reconstruir() {
+        return coordenadorIngestao.executarComTrava(() -> {
+            try {
+                return new ResultadoIngestaoDto("Resumos reconstruídos com sucesso", resumoCotacaoRepository.reconstruir(), 0);
+            } catch (Exception e) {
+                throw new MoedaException("Algum erro inesperado aconteceu: " + e.getMessage());
+            }
+        }).orElseThrow(IngestaoEmAndamentoException::new);
+    }
+
+}
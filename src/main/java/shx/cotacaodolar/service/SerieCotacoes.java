@@ -0,0 +1,297 @@
+package shx.cotacaodolar.service;
+
+import shx.cotacaodolar.dto.MoedaDto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Série imutável de cotações em formato colunar, ordenada por data, sem datas repetidas.
+ * Cada cotação ocupa 16 bytes em três arrays primitivos: o dia em epoch-day (int), o preço em ponto fixo com 4 casas
+ * decimais (long) e a hora da cotação em segundos do dia (int). Todo o histórico da PTAX desde 1984 (cerca de 10 mil dias
+ * úteis) cabe em menos de 200 KB, e varreduras por preço percorrem arrays contíguos em vez de BigDecimal e String.
+ * Os MoedaDto só são criados na borda da API, sob demanda, pelas visões retornadas por visao.
+ * Alterações produzem uma nova série (mesclar), então uma série obtida pode ser lida sem bloqueio.
+ */
+public final class SerieCotacoes {
+    public static final int ESCALA_PRECO = 4;
+    public static final SerieCotacoes VAZIA = new SerieCotacoes(new int[0], new long[0], new int[0]);
+
+    private final int[] dias;
+    private final long[] precos;
+    private final int[] segundos;
+
+    private SerieCotacoes(int[] dias, long[] precos, int[] segundos) {
+        this.dias = dias;
+        this.precos = precos;
+        this.segundos = segundos;
+    }
+
+    /**
+     * Monta uma série a partir de cotações em qualquer ordem; em datas repetidas prevalece a última.
+     *
+     * @param cotacoes Cotações a serem convertidas.
+     * @return Série ordenada por data.
+     */
+    public static SerieCotacoes de(List<MoedaDto> cotacoes) {
+        return VAZIA.mesclar(cotacoes);
+    }
+
+    /**
+     * Converte um preço para ponto fixo com 4 casas decimais.
+     *
+     * @param preco          Preço a ser convertido.
+     * @param arredondamento Arredondamento aplicado se o preço tiver mais de 4 casas.
+     * @return Preço multiplicado por 10^4.
+     */
+    public static long paraPontoFixo(BigDecimal preco, RoundingMode arredondamento) {
+        return preco.setScale(ESCALA_PRECO, arredondamento).unscaledValue().longValueExact();
+    }
+
+    public int tamanho() {
+        return dias.length;
+    }
+
+    public int dia(int posicao) {
+        return dias[posicao];
+    }
+
+    public long preco(int posicao) {
+        return precos[posicao];
+    }
+
+    public int segundo(int posicao) {
+        return segundos[posicao];
+    }
+
+    /**
+     * Cria o MoedaDto da posição, com a data em "dd/MM/yyyy" e a hora em "HH:mm:ss".
+     */
+    public MoedaDto cotacao(int posicao) {
+        return new MoedaDto(BigDecimal.valueOf(precos[posicao], ESCALA_PRECO), formatarData(dias[posicao]), formatarHora(segundos[posicao]));
+    }
+
+    /**
+     * Primeira posição cuja data é igual ou posterior à informada.
+     */
+    public int primeiraPosicaoAPartirDe(LocalDate data) {
+        int posicao = Arrays.binarySearch(dias, (int) data.toEpochDay());
+        return posicao >= 0 ? posicao : -posicao - 1;
+    }
+
+    /**
+     * Converte o período no intervalo semiaberto [de, ate) de posições da série.
+     *
+     * @param inicio Data inicial do período.
+     * @param fim    Data final do período.
+     * @return Array {de, ate}.
+     */
+    public int[] faixa(LocalDate inicio, LocalDate fim) {
+        int de = primeiraPosicaoAPartirDe(inicio);
+        int ate = primeiraPosicaoAPartirDe(fim.plusDays(1));
+        return new int[]{de, Math.max(de, ate)};
+    }
+
+    /**
+     * Visão somente leitura das posições [de, ate), que cria cada MoedaDto apenas quando ele é lido.
+     */
+    public List<MoedaDto> visao(int de, int ate) {
+        return new Visao(this, null, de, ate - de);
+    }
+
+    /**
+     * Visão somente leitura das posições informadas, na ordem do array.
+     *
+     * @param posicoes   Posições da série.
+     * @param quantidade Quantidade de posições válidas no início do array.
+     */
+    public List<MoedaDto> visao(int[] posicoes, int quantidade) {
+        return new Visao(this, posicoes, 0, quantidade);
+    }
+
+    /**
+     * Retorna uma nova série com as cotações informadas; em datas já presentes prevalecem as novas.
+     *
+     * @param novas Cotações em qualquer ordem.
+     * @return Nova série, ou esta mesma se não houver cotações novas.
+     */
+    public SerieCotacoes mesclar(List<MoedaDto> novas) {
+        if (novas.isEmpty()) {
+            return this;
+        }
+        return mesclar(ordenar(novas));
+    }
+
+    /**
+     * Retorna uma nova série com as cotações da série informada; em datas presentes nas duas prevalecem as dela.
+     *
+     * @param recebidas Série a ser incorporada.
+     * @return Nova série, ou esta mesma se a série informada estiver vazia.
+     */
+    public SerieCotacoes mesclar(SerieCotacoes recebidas) {
+        if (recebidas.tamanho() == 0) {
+            return this;
+        }
+        int n = dias.length;
+        int m = recebidas.dias.length;
+        int[] novosDias = new int[n + m];
+        long[] novosPrecos = new long[n + m];
+        int[] novosSegundos = new int[n + m];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < n || j < m) {
+            SerieCotacoes origem;
+            int posicao;
+            if (j >= m || (i < n && dias[i] < recebidas.dias[j])) {
+                origem = this;
+                posicao = i++;
+            } else {
+                if (i < n && dias[i] == recebidas.dias[j]) {
+                    i++;
+                }
+                origem = recebidas;
+                posicao = j++;
+            }
+            novosDias[k] = origem.dias[posicao];
+            novosPrecos[k] = origem.precos[posicao];
+            novosSegundos[k] = origem.segundos[posicao];
+            k++;
+        }
+        return new SerieCotacoes(Arrays.copyOf(novosDias, k), Arrays.copyOf(novosPrecos, k), Arrays.copyOf(novosSegundos, k));
+    }
+
+    // Arrays compartilhados com IndicePrecos e ArquivoHistorico, que também não os alteram.
+    int[] dias() {
+        return dias;
+    }
+
+    long[] precos() {
+        return precos;
+    }
+
+    int[] segundos() {
+        return segundos;
+    }
+
+    /**
+     * Monta uma série a partir de colunas em qualquer ordem; em datas repetidas prevalece a última posição.
+     * Os arrays informados não são alterados.
+     */
+    static SerieCotacoes deColunas(int[] dias, long[] precos, int[] segundos) {
+        int m = dias.length;
+        long[] chaves = new long[m];
+        for (int i = 0; i < m; i++) {
+            // Dia na parte alta e posição original na parte baixa: a ordenação mantém a ordem de chegada em empates.
+            chaves[i] = ((long) dias[i] << 32) | i;
+        }
+        Arrays.sort(chaves);
+
+        int[] novosDias = new int[m];
+        long[] novosPrecos = new long[m];
+        int[] novosSegundos = new int[m];
+        int k = 0;
+        for (int i = 0; i < m; i++) {
+            int origem = (int) chaves[i];
+            if (k > 0 && novosDias[k - 1] == dias[origem]) {
+                k--;
+            }
+            novosDias[k] = dias[origem];
+            novosPrecos[k] = precos[origem];
+            novosSegundos[k] = segundos[origem];
+            k++;
+        }
+        return new SerieCotacoes(Arrays.copyOf(novosDias, k), Arrays.copyOf(novosPrecos, k), Arrays.copyOf(novosSegundos, k));
+    }
+
+    // Converte as cotações para colunas ordenadas por data, mantendo a última de cada dia.
+    private static SerieCotacoes ordenar(List<MoedaDto> cotacoes) {
+        int m = cotacoes.size();
+        int[] dias = new int[m];
+        long[] precos = new long[m];
+        int[] segundos = new int[m];
+        for (int i = 0; i < m; i++) {
+            MoedaDto cotacao = cotacoes.get(i);
+            dias[i] = lerData(cotacao.data());
+            // A PTAX publica 4 casas; o arredondamento só protege contra uma resposta fora do padrão.
+            precos[i] = paraPontoFixo(cotacao.preco(), RoundingMode.HALF_UP);
+            segundos[i] = lerHora(cotacao.hora());
+        }
+        return deColunas(dias, precos, segundos);
+    }
+
+    // "dd/MM/yyyy" -> epoch-day
+    private static int lerData(String data) {
+        int dia = (data.charAt(0) - '0') * 10 + (data.charAt(1) - '0');
+        int mes = (data.charAt(3) - '0') * 10 + (data.charAt(4) - '0');
+        int ano = Integer.parseInt(data, 6, 10, 10);
+        return (int) LocalDate.of(ano, mes, dia).toEpochDay();
+    }
+
+    // "HH:mm:ss" -> segundos do dia
+    private static int lerHora(String hora) {
+        int horas = (hora.charAt(0) - '0') * 10 + (hora.charAt(1) - '0');
+        int minutos = (hora.charAt(3) - '0') * 10 + (hora.charAt(4) - '0');
+        int segundos = (hora.charAt(6) - '0') * 10 + (hora.charAt(7) - '0');
+        return horas * 3600 + minutos * 60 + segundos;
+    }
+
+    // epoch-day -> "dd/MM/yyyy"
+    private static String formatarData(int epochDay) {
+        LocalDate data = LocalDate.ofEpochDay(epochDay);
+        int ano = data.getYear();
+        char[] texto = {
+                (char) ('0' + data.getDayOfMonth() / 10), (char) ('0' + data.getDayOfMonth() % 10), '/',
+                (char) ('0' + data.getMonthValue() / 10), (char) ('0' + data.getMonthValue() % 10), '/',
+                (char) ('0' + ano / 1000), (char) ('0' + ano / 100 % 10), (char) ('0' + ano / 10 % 10), (char) ('0' + ano % 10)
+        };
+        return new String(texto);
+    }
+
+    // segundos do dia -> "HH:mm:ss"
+    private static String formatarHora(int segundosDoDia) {
+        int horas = segundosDoDia / 3600;
+        int minutos = segundosDoDia / 60 % 60;
+        int segundos = segundosDoDia % 60;
+        char[] texto = {
+                (char) ('0' + horas / 10), (char) ('0' + horas % 10), ':',
+                (char) ('0' + minutos / 10), (char) ('0' + minutos % 10), ':',
+                (char) ('0' + segundos / 10), (char) ('0' + segundos % 10)
+        };
+        return new String(texto);
+    }
+
+    // Lista somente leitura sobre uma faixa contínua ou um conjunto de posições da série.
+    private static final class Visao extends AbstractList<MoedaDto> implements RandomAccess {
+        private final SerieCotacoes serie;
+        private final int[] posicoes;
+        private final int inicio;
+        private final int tamanho;
+
+        private Visao(SerieCotacoes serie, int[] posicoes, int inicio, int tamanho) {
+            this.serie = serie;
+            this.posicoes = posicoes;
+            this.inicio = inicio;
+            this.tamanho = tamanho;
+        }
+
+        @Override
+        public MoedaDto get(int indice) {
+            if (indice < 0 || indice >= tamanho) {
+                throw new IndexOutOfBoundsException(indice);
+            }
+            return serie.cotacao(posicoes == null ? inicio + indice : posicoes[indice]);
+        }
+
+        @Override
+        public int size() {
+            return tamanho;
+        }
+    }
+
+}
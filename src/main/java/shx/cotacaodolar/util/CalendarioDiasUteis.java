@@ -0,0 +1,176 @@
+package shx.cotacaodolar.util;
+
+import org.springframework.stereotype.Component;
+import shx.cotacaodolar.model.Intervalo;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Calendário de dias úteis bancários do Brasil, usado para saber em quais dias o BCB publica a PTAX.
+ * Considera os fins de semana, os feriados nacionais fixos e os feriados móveis calculados a partir da Páscoa
+ * (Carnaval, Sexta-feira Santa e Corpus Christi).
+ */
+@Component
+public class CalendarioDiasUteis {
+    private static final Set<MonthDay> FERIADOS_FIXOS = Set.of(
+            MonthDay.of(1, 1),   // Confraternização Universal
+            MonthDay.of(4, 21),  // Tiradentes
+            MonthDay.of(5, 1),   // Dia do Trabalho
+            MonthDay.of(9, 7),   // Independência
+            MonthDay.of(10, 12), // Nossa Senhora Aparecida
+            MonthDay.of(11, 2),  // Finados
+            MonthDay.of(11, 15), // Proclamação da República
+            MonthDay.of(12, 25)  // Natal
+    );
+    // Dia Nacional de Zumbi e da Consciência Negra, feriado nacional a partir de 2024 (Lei 14.759/2023).
+    private static final MonthDay CONSCIENCIA_NEGRA = MonthDay.of(11, 20);
+    private static final int INICIO_CONSCIENCIA_NEGRA = 2024;
+
+    private final Map<Integer, Set<LocalDate>> feriadosPorAno = new ConcurrentHashMap<>();
+
+    /**
+     * Verifica se a data é um dia útil bancário.
+     *
+     * @param data Data a ser verificada.
+     * @return true se não for fim de semana nem feriado nacional.
+     */
+    public boolean ehDiaUtil(LocalDate data) {
+        DayOfWeek diaDaSemana = data.getDayOfWeek();
+        if (diaDaSemana == DayOfWeek.SATURDAY || diaDaSemana == DayOfWeek.SUNDAY) {
+            return false;
+        }
+        return !feriados(data.getYear()).contains(data);
+    }
+
+    /**
+     * Retorna o último dia útil igual ou anterior à data informada.
+     */
+    public LocalDate ultimoDiaUtilAte(LocalDate data) {
+        LocalDate cursor = data;
+        while (!ehDiaUtil(cursor)) {
+            cursor = cursor.minusDays(1);
+        }
+        return cursor;
+    }
+
+    /**
+     * Retorna o primeiro dia útil estritamente posterior à data informada.
+     */
+    public LocalDate proximoDiaUtil(LocalDate data) {
+        LocalDate cursor = data.plusDays(1);
+        while (!ehDiaUtil(cursor)) {
+            cursor = cursor.plusDays(1);
+        }
+        return cursor;
+    }
+
+    /**
+     * Recua a quantidade informada de dias úteis a partir do último dia útil até a data.
+     *
+     * @param data       Data de referência.
+     * @param diasUteis  Quantidade de dias úteis a recuar.
+     * @return O dia útil encontrado.
+     */
+    public LocalDate subtrairDiasUteis(LocalDate data, int diasUteis) {
+        LocalDate cursor = ultimoDiaUtilAte(data);
+        for (int i = 0; i < diasUteis; i++) {
+            cursor = ultimoDiaUtilAte(cursor.minusDays(1));
+        }
+        return cursor;
+    }
+
+    /**
+     * Agrupa em intervalos os dias úteis do período que não estão entre as datas informadas.
+     * Dias não úteis entre dois dias úteis faltantes não interrompem a lacuna, então cada lacuna pode ser buscada com
+     * uma única consulta de período.
+     *
+     * @param inicio    Data inicial do período.
+     * @param fim       Data final do período.
+     * @param presentes Datas que já estão disponíveis.
+     * @return Lacunas em ordem cronológica, cada uma começando e terminando em um dia útil faltante.
+     */
+    public List<Intervalo> lacunasDeDiasUteis(LocalDate inicio, LocalDate fim, Set<LocalDate> presentes) {
+        List<Intervalo> lacunas = new ArrayList<>();
+        LocalDate inicioLacuna = null;
+        LocalDate ultimoFaltante = null;
+        for (LocalDate dia = inicio; !dia.isAfter(fim); dia = dia.plusDays(1)) {
+            if (!ehDiaUtil(dia)) {
+                continue;
+            }
+            if (!presentes.contains(dia)) {
+                if (inicioLacuna == null) {
+                    inicioLacuna = dia;
+                }
+                ultimoFaltante = dia;
+            } else if (inicioLacuna != null) {
+                lacunas.add(new Intervalo(inicioLacuna, ultimoFaltante));
+                inicioLacuna = null;
+            }
+        }
+        if (inicioLacuna != null) {
+            lacunas.add(new Intervalo(inicioLacuna, ultimoFaltante));
+        }
+        return lacunas;
+    }
+
+    /**
+     * Retorna os feriados nacionais do ano, fixos e móveis.
+     *
+     * @param ano Ano desejado.
+     * @return Conjunto ordenado com as datas dos feriados.
+     */
+    public Set<LocalDate> feriados(int ano) {
+        return feriadosPorAno.computeIfAbsent(ano, CalendarioDiasUteis::calcularFeriados);
+    }
+
+    /**
+     * Calcula o domingo de Páscoa do ano pelo algoritmo de Meeus/Jones/Butcher (calendário gregoriano).
+     *
+     * @param ano Ano desejado.
+     * @return Data do domingo de Páscoa.
+     */
+    public static LocalDate pascoa(int ano) {
+        int a = ano % 19;
+        int b = ano / 100;
+        int c = ano % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int mes = (h + l - 7 * m + 114) / 31;
+        int dia = ((h + l - 7 * m + 114) % 31) + 1;
+        return LocalDate.of(ano, mes, dia);
+    }
+
+    private static Set<LocalDate> calcularFeriados(int ano) {
+        Set<LocalDate> feriados = new TreeSet<>();
+        for (MonthDay feriadoFixo : FERIADOS_FIXOS) {
+            feriados.add(feriadoFixo.atYear(ano));
+        }
+        if (ano >= INICIO_CONSCIENCIA_NEGRA) {
+            feriados.add(CONSCIENCIA_NEGRA.atYear(ano));
+        }
+
+        LocalDate pascoa = pascoa(ano);
+        feriados.add(pascoa.minusDays(48)); // Segunda-feira de Carnaval
+        feriados.add(pascoa.minusDays(47)); // Terça-feira de Carnaval
+        feriados.add(pascoa.minusDays(2));  // Sexta-feira Santa
+        feriados.add(pascoa.plusDays(60));  // Corpus Christi
+        return Collections.unmodifiableSet(feriados);
+    }
+
+}
@@ -3,6 +3,7 @@ package shx.cotacaodolar.util;
 import org.springframework.stereotype.Service;
 import shx.cotacaodolar.dto.MoedaDto;
 import shx.cotacaodolar.model.Moeda;
+import shx.cotacaodolar.repository.CotacaoSalva;
 
 import java.math.BigDecimal;
 import java.text.ParseException;
@@ -58,4 +59,16 @@ public class MoedaMapper {
         return moedaDto;
     }
 
+    /**
+     * Método responsável por converter uma cotação salva (projeção do repositório) para MoedaDto
+     *
+     * @param cotacaoSalva
+     * @return MoedaDto
+     */
+    public MoedaDto mapearDeCotacaoSalvaParaMoedaDto(CotacaoSalva cotacaoSalva) {
+        String dataConvertida = new SimpleDateFormat("dd/MM/yyyy").format(cotacaoSalva.getData());
+        String horaConvertida = cotacaoSalva.getHora().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+        return new MoedaDto(cotacaoSalva.getPreco(), dataConvertida, horaConvertida);
+    }
+
 }
@@ -0,0 +1,11 @@
+-- Tabela de cotações como era criada pelo spring.jpa.hibernate.ddl-auto=update, antes das migrações versionadas.
+-- Bancos que já têm essa tabela recebem esta versão como linha de base (spring.flyway.baseline-on-migrate) e seguem a
+-- partir da V2.
+CREATE TABLE IF NOT EXISTS tb_cotacao_dolar (
+    id      bigserial NOT NULL,
+    cotacao numeric(19, 2),
+    data    date,
+    hora    time,
+    CONSTRAINT tb_cotacao_dolar_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_cotacao_dolar_data UNIQUE (data)
+);
@@ -0,0 +1,29 @@
+-- Tabelas auxiliares; IF NOT EXISTS porque em bancos antigos elas já foram criadas pelo ddl-auto.
+CREATE TABLE IF NOT EXISTS tb_estado_ingestao (
+    chave                varchar(255) NOT NULL,
+    ultima_data_ingerida date,
+    backfill_ate         date,
+    atualizado_em        timestamp,
+    CONSTRAINT tb_estado_ingestao_pkey PRIMARY KEY (chave)
+);
+
+CREATE TABLE IF NOT EXISTS tb_trava_ingestao (
+    nome      varchar(255) NOT NULL,
+    dono      varchar(255) NOT NULL,
+    expira_em timestamp    NOT NULL,
+    CONSTRAINT tb_trava_ingestao_pkey PRIMARY KEY (nome)
+);
+
+CREATE TABLE IF NOT EXISTS tb_resumo_cotacao (
+    agrupamento   varchar(16)    NOT NULL,
+    inicio        date           NOT NULL,
+    minima        numeric(10, 4) NOT NULL,
+    maxima        numeric(10, 4) NOT NULL,
+    soma          numeric(16, 4) NOT NULL,
+    quantidade    integer        NOT NULL,
+    primeira_data date           NOT NULL,
+    abertura      numeric(10, 4) NOT NULL,
+    ultima_data   date           NOT NULL,
+    fechamento    numeric(10, 4) NOT NULL,
+    CONSTRAINT tb_resumo_cotacao_pkey PRIMARY KEY (agrupamento, inicio)
+);
@@ -0,0 +1,48 @@
+-- Reorganiza tb_cotacao_dolar como série temporal: uma linha por dia, com a data como chave primária.
+
+-- A PTAX tem 4 casas decimais. Cotações gravadas com a escala padrão do Hibernate (numeric(19,2)) já foram arredondadas,
+-- e como nenhuma gravação sobrescreve uma data salva (INSERT ... ON CONFLICT DO NOTHING), elas nunca seriam corrigidas.
+-- Nesse caso as datas dessas cotações são anotadas em tb_cotacao_a_corrigir. As cotações, os resumos e o progresso da
+-- ingestão são mantidos e continuam sendo servidos; a correção (agendada, ou pela rota POST /moeda/cotacoes/corrigir)
+-- busca essas datas de novo na API, um bloco de meses por vez, e regrava apenas elas com 4 casas.
+CREATE TABLE tb_cotacao_a_corrigir (
+    data date NOT NULL,
+    CONSTRAINT pk_cotacao_a_corrigir PRIMARY KEY (data)
+);
+DO $$
+BEGIN
+    IF (SELECT numeric_scale FROM information_schema.columns
+        WHERE table_schema = current_schema() AND table_name = 'tb_cotacao_dolar' AND column_name = 'cotacao') < 4 THEN
+        INSERT INTO tb_cotacao_a_corrigir (data) SELECT DISTINCT data FROM tb_cotacao_dolar WHERE data IS NOT NULL;
+    END IF;
+END
+$$;
+ALTER TABLE tb_cotacao_dolar ALTER COLUMN cotacao TYPE numeric(10, 4);
+
+-- Remove a chave substituta (IDENTITY) e a restrição única da data, que tem nome gerado pelo Hibernate em bancos antigos.
+ALTER TABLE tb_cotacao_dolar DROP CONSTRAINT IF EXISTS tb_cotacao_dolar_pkey;
+DO $$
+DECLARE
+    restricao record;
+BEGIN
+    FOR restricao IN
+        SELECT conname FROM pg_constraint WHERE conrelid = 'tb_cotacao_dolar'::regclass AND contype = 'u'
+    LOOP
+        EXECUTE format('ALTER TABLE tb_cotacao_dolar DROP CONSTRAINT %I', restricao.conname);
+    END LOOP;
+END
+$$;
+ALTER TABLE tb_cotacao_dolar DROP COLUMN IF EXISTS id;
+
+ALTER TABLE tb_cotacao_dolar
+    ALTER COLUMN data SET NOT NULL,
+    ALTER COLUMN cotacao SET NOT NULL,
+    ALTER COLUMN hora SET NOT NULL;
+
+-- A chave primária inclui cotacao e hora, as colunas lidas pelas consultas por faixa (data between ? and ? order by data):
+-- elas são respondidas com index-only scans sem manter um segundo B-tree sobre a data. INCLUDE exige PostgreSQL 11.
+ALTER TABLE tb_cotacao_dolar ADD CONSTRAINT pk_cotacao_dolar PRIMARY KEY (data) INCLUDE (cotacao, hora);
+
+-- Índice BRIN: poucos kilobytes para a tabela inteira, eficiente enquanto as linhas forem gravadas em ordem de data.
+-- O backfill grava blocos de meses de trás para frente, então cada faixa de 32 páginas ainda cobre poucos meses.
+CREATE INDEX IF NOT EXISTS ix_cotacao_dolar_data_brin ON tb_cotacao_dolar USING brin (data) WITH (pages_per_range = 32);
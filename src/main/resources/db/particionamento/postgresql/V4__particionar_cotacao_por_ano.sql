@@ -0,0 +1,33 @@
+-- Migração opcional: particiona tb_cotacao_dolar por ano. Aplicada apenas se classpath:db/particionamento/{vendor} for
+-- acrescentado a spring.flyway.locations. Exige PostgreSQL 11 ou superior.
+-- As consultas por faixa de datas passam a ler só as partições dos anos envolvidos, e cada ano pode ser mantido (VACUUM,
+-- REINDEX, arquivamento) separadamente.
+
+ALTER TABLE tb_cotacao_dolar RENAME TO tb_cotacao_dolar_antiga;
+ALTER TABLE tb_cotacao_dolar_antiga RENAME CONSTRAINT pk_cotacao_dolar TO pk_cotacao_dolar_antiga;
+DROP INDEX IF EXISTS ix_cotacao_dolar_data_brin;
+
+CREATE TABLE tb_cotacao_dolar (
+    data    date           NOT NULL,
+    cotacao numeric(10, 4) NOT NULL,
+    hora    time           NOT NULL,
+    CONSTRAINT pk_cotacao_dolar PRIMARY KEY (data) INCLUDE (cotacao, hora)
+) PARTITION BY RANGE (data);
+
+-- Uma partição por ano, do início da PTAX até 2040; datas fora dessa faixa ficam na partição padrão.
+DO $$
+BEGIN
+    FOR ano IN 1984..2040 LOOP
+        EXECUTE format('CREATE TABLE tb_cotacao_dolar_%s PARTITION OF tb_cotacao_dolar FOR VALUES FROM (%L) TO (%L)',
+                       ano, make_date(ano, 1, 1), make_date(ano + 1, 1, 1));
+    END LOOP;
+END
+$$;
+CREATE TABLE tb_cotacao_dolar_padrao PARTITION OF tb_cotacao_dolar DEFAULT;
+
+INSERT INTO tb_cotacao_dolar (data, cotacao, hora)
+SELECT data, cotacao, hora FROM tb_cotacao_dolar_antiga;
+DROP TABLE tb_cotacao_dolar_antiga;
+
+-- Criados na tabela particionada, a chave primária (com as colunas incluídas) e o índice BRIN são replicados em cada partição.
+CREATE INDEX ix_cotacao_dolar_data_brin ON tb_cotacao_dolar USING brin (data) WITH (pages_per_range = 32);
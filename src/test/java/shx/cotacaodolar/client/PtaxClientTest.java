@@ -0,0 +1,192 @@
+package shx.cotacaodolar.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import shx.cotacaodolar.dto.MoedaDto;
+import shx.cotacaodolar.model.Intervalo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+public class PtaxClientTest {
+    private static final String RESPOSTA = "{\"@odata.context\":\"https://olinda.bcb.gov.br/olinda/servico/PTAX/versao/v1/odata$metadata#_CotacaoDolarPeriodo\",\"value\":["
+            + "{\"cotacaoCompra\":4.9471,\"cotacaoVenda\":4.9477,\"dataHoraCotacao\":\"2023-10-18 13:02:31.116\"},"
+            + "{\"cotacaoCompra\":5.0342,\"cotacaoVenda\":5.0348,\"dataHoraCotacao\":\"2023-10-19 13:04:29.253\"}]}";
+    private static final DateTimeFormatter FORMATO_DATA_API = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+    private static final Intervalo INTERVALO = new Intervalo(LocalDate.of(2023, 10, 18), LocalDate.of(2023, 10, 19));
+
+    private HttpServer servidor;
+    private final AtomicInteger requisicoes = new AtomicInteger();
+    private final AtomicReference<String> ultimaQuery = new AtomicReference<>();
+
+    @BeforeEach
+    private void setUp() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        servidor.start();
+    }
+
+    @AfterEach
+    private void tearDown() {
+        servidor.stop(0);
+    }
+
+    @Test
+    public void deveConverterARespostaCompactadaDoPeriodo() throws IOException {
+        servidor.createContext("/", exchange -> {
+            ultimaQuery.set(exchange.getRequestURI().getRawQuery());
+            responderGzip(exchange);
+        });
+
+        List<MoedaDto> cotacoes = criarCliente(1).buscarCotacoesPeriodo(INTERVALO);
+
+        Assertions.assertEquals(List.of(
+                new MoedaDto(new BigDecimal("4.9471"), "18/10/2023", "13:02:31"),
+                new MoedaDto(new BigDecimal("5.0342"), "19/10/2023", "13:04:29")
+        ), cotacoes);
+        Assertions.assertTrue(ultimaQuery.get().contains("%40dataInicial='10-18-2023'"));
+        Assertions.assertTrue(ultimaQuery.get().contains("%24top=2"));
+    }
+
+    @Test
+    public void deveRepetirARequisicaoAposErroDoServidor() throws IOException {
+        servidor.createContext("/", exchange -> {
+            if (requisicoes.incrementAndGet() < 3) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+            responderGzip(exchange);
+        });
+
+        List<MoedaDto> cotacoes = criarCliente(3).buscarCotacoesPeriodo(INTERVALO);
+
+        Assertions.assertEquals(2, cotacoes.size());
+        Assertions.assertEquals(3, requisicoes.get());
+    }
+
+    @Test
+    public void naoDeveRepetirARequisicaoAposErroDoCliente() {
+        servidor.createContext("/", exchange -> {
+            requisicoes.incrementAndGet();
+            exchange.sendResponseHeaders(400, -1);
+            exchange.close();
+        });
+
+        Assertions.assertThrows(IOException.class, () -> criarCliente(3).buscarCotacoesPeriodo(INTERVALO));
+        Assertions.assertEquals(1, requisicoes.get());
+    }
+
+    @Test
+    public void periodoLongoDeveSerBuscadoEmBlocosEEntregueEmOrdem() throws IOException {
+        servidor.createContext("/", exchange -> {
+            requisicoes.incrementAndGet();
+            responderDiasDoIntervalo(exchange);
+        });
+        Intervalo tresAnos = new Intervalo(LocalDate.of(2020, 6, 1), LocalDate.of(2022, 5, 31));
+
+        List<MoedaDto> cotacoes = criarCliente(1, 12, 1000).buscarCotacoesPeriodo(tresAnos);
+
+        Assertions.assertEquals(3, requisicoes.get());
+        Assertions.assertEquals(tresAnos.dias(), cotacoes.size());
+        Assertions.assertEquals("01/06/2020", cotacoes.get(0).data());
+        Assertions.assertEquals("01/01/2021", cotacoes.get(214).data());
+        Assertions.assertEquals("31/05/2022", cotacoes.get(cotacoes.size() - 1).data());
+    }
+
+    @Test
+    public void blocoMaiorQueAPaginaDeveSerPaginadoComSkip() throws IOException {
+        servidor.createContext("/", exchange -> {
+            requisicoes.incrementAndGet();
+            responderDiasDoIntervalo(exchange);
+        });
+        Intervalo janeiro = new Intervalo(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 31));
+
+        List<MoedaDto> cotacoes = criarCliente(1, 12, 10).buscarCotacoesPeriodo(janeiro);
+
+        Assertions.assertEquals(4, requisicoes.get());
+        Assertions.assertEquals(31, cotacoes.size());
+        Assertions.assertEquals("31/01/2023", cotacoes.get(30).data());
+    }
+
+    @Test
+    public void particionarPorTrimestreDeveAlinharOsBlocosAoCalendario() {
+        List<Intervalo> blocos = criarCliente(1, 3, 1000).particionar(new Intervalo(LocalDate.of(2023, 2, 15), LocalDate.of(2023, 7, 10)));
+
+        Assertions.assertEquals(List.of(
+                new Intervalo(LocalDate.of(2023, 2, 15), LocalDate.of(2023, 3, 31)),
+                new Intervalo(LocalDate.of(2023, 4, 1), LocalDate.of(2023, 6, 30)),
+                new Intervalo(LocalDate.of(2023, 7, 1), LocalDate.of(2023, 7, 10))
+        ), blocos);
+    }
+
+    // métodos auxiliares
+
+    private PtaxClient criarCliente(int tentativas) {
+        return criarCliente(tentativas, 12, 1000);
+    }
+
+    private PtaxClient criarCliente(int tentativas, int mesesPorBloco, int tamanhoPagina) {
+        String baseUrl = "http://localhost:" + servidor.getAddress().getPort() + "/";
+        return new PtaxClient(baseUrl, 1000, 1000, tentativas, 1, mesesPorBloco, 2, tamanhoPagina);
+    }
+
+    // Responde com uma cotação por dia do intervalo pedido, respeitando $skip e $top.
+    private static void responderDiasDoIntervalo(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        LocalDate inicio = LocalDate.parse(parametro(query, "%40dataInicial"), FORMATO_DATA_API);
+        LocalDate fim = LocalDate.parse(parametro(query, "%40dataFinalCotacao"), FORMATO_DATA_API);
+        int skip = Integer.parseInt(parametro(query, "%24skip"));
+        int top = Integer.parseInt(parametro(query, "%24top"));
+
+        StringBuilder json = new StringBuilder("{\"value\":[");
+        LocalDate dia = inicio.plusDays(skip);
+        for (int i = 0; i < top && !dia.isAfter(fim); i++, dia = dia.plusDays(1)) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"cotacaoCompra\":5.0000,\"dataHoraCotacao\":\"").append(dia).append(" 13:00:00.000\"}");
+        }
+        byte[] corpo = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, corpo.length);
+        try (OutputStream saida = exchange.getResponseBody()) {
+            saida.write(corpo);
+        }
+    }
+
+    private static String parametro(String query, String nome) {
+        for (String par : query.split("&")) {
+            if (par.startsWith(nome + "=")) {
+                return par.substring(nome.length() + 1).replace("'", "");
+            }
+        }
+        throw new IllegalArgumentException(nome);
+    }
+
+    private static void responderGzip(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream compactado = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compactado)) {
+            gzip.write(RESPOSTA.getBytes(StandardCharsets.UTF_8));
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(200, compactado.size());
+        try (OutputStream corpo = exchange.getResponseBody()) {
+            corpo.write(compactado.toByteArray());
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package shx.cotacaodolar.client;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import shx.cotacaodolar.dto.MoedaDto;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Compara a alocação de memória por cotação entre a decodificação antiga (árvore de JsonElement + SimpleDateFormat) e o
+ * PtaxJsonDecoder em streaming. Não é executado pelos testes; rode o método main pela IDE ou, após "./mvnw test-compile",
+ * com o classpath de teste.
+ */
+public class PtaxJsonDecoderBenchmark {
+    private static final int COTACOES = 10_000;
+    private static final int AQUECIMENTO = 20;
+    private static final int RODADAS = 20;
+
+    public static void main(String[] args) throws Exception {
+        String resposta = gerarResposta(COTACOES);
+
+        for (int i = 0; i < AQUECIMENTO; i++) {
+            decodificarComArvore(resposta);
+            decodificarEmStreaming(resposta);
+        }
+
+        long bytesArvore = medirAlocacao(() -> decodificarComArvore(resposta));
+        long bytesStreaming = medirAlocacao(() -> decodificarEmStreaming(resposta));
+
+        System.out.printf("Cotações por resposta: %d%n", COTACOES);
+        System.out.printf("Árvore JsonElement + SimpleDateFormat: %,d bytes/cotação%n", bytesArvore / ((long) RODADAS * COTACOES));
+        System.out.printf("PtaxJsonDecoder (streaming):           %,d bytes/cotação%n", bytesStreaming / ((long) RODADAS * COTACOES));
+    }
+
+    private static long medirAlocacao(Tarefa tarefa) throws Exception {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long antes = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < RODADAS; i++) {
+            tarefa.executar();
+        }
+        return threadMXBean.getThreadAllocatedBytes(threadId) - antes;
+    }
+
+    // Reproduz a decodificação feita antes do PtaxJsonDecoder.
+    private static List<MoedaDto> decodificarComArvore(String resposta) throws ParseException {
+        JsonElement response = JsonParser.parseReader(new StringReader(resposta));
+        JsonArray cotacoesArray = response.getAsJsonObject().getAsJsonArray("value");
+
+        List<MoedaDto> moedasLista = new ArrayList<MoedaDto>();
+        for (JsonElement obj : cotacoesArray) {
+            Date data = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(obj.getAsJsonObject().get("dataHoraCotacao").getAsString());
+            BigDecimal preco = obj.getAsJsonObject().get("cotacaoCompra").getAsBigDecimal();
+            String dataRecebida = new SimpleDateFormat("dd/MM/yyyy").format(data);
+            String hora = new SimpleDateFormat("HH:mm:ss").format(data);
+            moedasLista.add(new MoedaDto(preco, dataRecebida, hora));
+        }
+        return moedasLista;
+    }
+
+    private static List<MoedaDto> decodificarEmStreaming(String resposta) throws Exception {
+        List<MoedaDto> moedasLista = new ArrayList<MoedaDto>();
+        PtaxJsonDecoder.decodificar(new StringReader(resposta), moedasLista::add);
+        return moedasLista;
+    }
+
+    private static String gerarResposta(int quantidade) {
+        StringBuilder json = new StringBuilder("{\"@odata.context\":\"$metadata#_CotacaoDolarPeriodo\",\"value\":[");
+        LocalDate dia = LocalDate.of(1984, 11, 28);
+        for (int i = 0; i < quantidade; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"cotacaoCompra\":").append(4 + (i % 10_000) / 10_000.0)
+                    .append(",\"cotacaoVenda\":").append(4.0006 + (i % 10_000) / 10_000.0)
+                    .append(",\"dataHoraCotacao\":\"").append(dia.plusDays(i)).append(" 13:04:29.253\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    @FunctionalInterface
+    private interface Tarefa {
+        void executar() throws Exception;
+    }
+
+}
@@ -0,0 +1,49 @@
+package shx.cotacaodolar.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import shx.cotacaodolar.dto.MoedaDto;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PtaxJsonDecoderTest {
+
+    @Test
+    public void deveDecodificarAsCotacoesIgnorandoCamposDesconhecidos() throws IOException {
+        String resposta = "{\"@odata.context\":\"$metadata#_CotacaoDolarPeriodo\",\"value\":["
+                + "{\"cotacaoCompra\":4.9471,\"cotacaoVenda\":4.9477,\"dataHoraCotacao\":\"2023-10-18 13:02:31.116\"},"
+                + "{\"dataHoraCotacao\":\"2023-10-19 13:04:29.253\",\"extra\":{\"a\":[1,2]},\"cotacaoCompra\":5.03}]}";
+        List<MoedaDto> cotacoes = new ArrayList<>();
+
+        int quantidade = PtaxJsonDecoder.decodificar(new StringReader(resposta), cotacoes::add);
+
+        Assertions.assertEquals(2, quantidade);
+        Assertions.assertEquals(List.of(
+                new MoedaDto(new BigDecimal("4.9471"), "18/10/2023", "13:02:31"),
+                new MoedaDto(new BigDecimal("5.03"), "19/10/2023", "13:04:29")
+        ), cotacoes);
+    }
+
+    @Test
+    public void respostaSemCotacoesNaoDeveEntregarNada() throws IOException {
+        List<MoedaDto> cotacoes = new ArrayList<>();
+
+        int quantidade = PtaxJsonDecoder.decodificar(new StringReader("{\"value\":[]}"), cotacoes::add);
+
+        Assertions.assertEquals(0, quantidade);
+        Assertions.assertTrue(cotacoes.isEmpty());
+    }
+
+    @Test
+    public void cotacaoSemPrecoDeveLancarExcecao() {
+        String resposta = "{\"value\":[{\"dataHoraCotacao\":\"2023-10-18 13:02:31.116\"}]}";
+
+        Assertions.assertThrows(IOException.class, () -> PtaxJsonDecoder.decodificar(new StringReader(resposta), moeda -> {
+        }));
+    }
+
+}
@@ -0,0 +1,104 @@
+package shx.cotacaodolar.infra;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+public class PoliticaCacheHttpTest {
+    private static final ZoneId FUSO = ZoneId.of("America/Sao_Paulo");
+    private final PoliticaCacheHttp politica = new PoliticaCacheHttp(
+            Clock.fixed(ZonedDateTime.of(2023, 10, 18, 10, 0, 0, 0, FUSO).toInstant(), FUSO), 31536000, 60);
+
+    @Test
+    public void periodoHistoricoDeveTerValidadoresECacheLongo() {
+        PoliticaCacheHttp.Cabecalhos cache = politica.periodo("periodo-json", "01-02-2023", "10-17-2023");
+        HttpHeaders cabecalhos = cache.ok().build().getHeaders();
+
+        Assertions.assertNotNull(cabecalhos.getETag());
+        Assertions.assertFalse(cabecalhos.getETag().startsWith("W/"));
+        Assertions.assertEquals(LocalDate.of(2023, 10, 18).atStartOfDay(FUSO).toInstant().toEpochMilli(), cabecalhos.getLastModified());
+        Assertions.assertEquals("max-age=31536000, public", cabecalhos.getCacheControl());
+        Assertions.assertEquals(cache.etag(), politica.periodo("periodo-json", "01-02-2023", "10-17-2023").etag());
+    }
+
+    @Test
+    public void etagDeveMudarComAVarianteEOsParametros() {
+        String etag = politica.periodo("periodo-json", "01-02-2023", "10-17-2023").etag();
+
+        Assertions.assertNotEquals(etag, politica.periodo("periodo-ndjson", "01-02-2023", "10-17-2023").etag());
+        Assertions.assertNotEquals(etag, politica.periodo("periodo-json", "01-03-2023", "10-17-2023").etag());
+        Assertions.assertNotEquals(politica.periodo("posicao", "01-02-2023", "10-17-2023", "5.0").etag(),
+                politica.periodo("posicao", "01-02-2023", "10-17-2023", "5.1").etag());
+    }
+
+    @Test
+    public void periodoQueIncluiHojeDeveTerApenasCacheCurto() {
+        PoliticaCacheHttp.Cabecalhos cache = politica.periodo("periodo-json", "10-02-2023", "10-18-2023");
+        HttpHeaders cabecalhos = cache.ok().build().getHeaders();
+
+        Assertions.assertNull(cabecalhos.getETag());
+        Assertions.assertEquals(-1, cabecalhos.getLastModified());
+        Assertions.assertEquals("max-age=60, public", cabecalhos.getCacheControl());
+        Assertions.assertFalse(cache.clienteAtualizado(new ServletWebRequest(new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse())));
+    }
+
+    @Test
+    public void ifNoneMatchCorrespondenteDeveResultarEm304() {
+        PoliticaCacheHttp.Cabecalhos cache = politica.periodo("estatisticas", "01-02-2023", "10-17-2023");
+        MockHttpServletRequest requisicao = new MockHttpServletRequest("GET", "/moeda/01-02-2023&10-17-2023/estatisticas");
+        requisicao.addHeader(HttpHeaders.IF_NONE_MATCH, cache.etag());
+        MockHttpServletResponse resposta = new MockHttpServletResponse();
+
+        Assertions.assertTrue(cache.clienteAtualizado(new ServletWebRequest(requisicao, resposta)));
+        Assertions.assertEquals(HttpStatus.NOT_MODIFIED.value(), resposta.getStatus());
+        Assertions.assertEquals(cache.etag(), resposta.getHeader(HttpHeaders.ETAG));
+        ResponseEntity<Object> naoModificada = cache.respostaNaoModificada();
+        Assertions.assertEquals(HttpStatus.NOT_MODIFIED, naoModificada.getStatusCode());
+        Assertions.assertEquals("max-age=31536000, public", naoModificada.getHeaders().getCacheControl());
+    }
+
+    @Test
+    public void ifNoneMatchDiferenteNaoDeveResultarEm304() {
+        PoliticaCacheHttp.Cabecalhos cache = politica.periodo("estatisticas", "01-02-2023", "10-17-2023");
+        MockHttpServletRequest requisicao = new MockHttpServletRequest("GET", "/moeda/01-02-2023&10-17-2023/estatisticas");
+        requisicao.addHeader(HttpHeaders.IF_NONE_MATCH, "\"outro\"");
+        MockHttpServletResponse resposta = new MockHttpServletResponse();
+
+        Assertions.assertFalse(cache.clienteAtualizado(new ServletWebRequest(requisicao, resposta)));
+        Assertions.assertEquals(HttpStatus.OK.value(), resposta.getStatus());
+    }
+
+    @Test
+    public void aceitaGzipDeveRespeitarOsValoresQ() {
+        Assertions.assertTrue(PoliticaCacheHttp.aceitaGzip(comAcceptEncoding("gzip, deflate, br")));
+        Assertions.assertTrue(PoliticaCacheHttp.aceitaGzip(comAcceptEncoding("br;q=1.0, GZIP;q=0.5")));
+        Assertions.assertTrue(PoliticaCacheHttp.aceitaGzip(comAcceptEncoding("*")));
+        Assertions.assertFalse(PoliticaCacheHttp.aceitaGzip(comAcceptEncoding("gzip;q=0")));
+        Assertions.assertFalse(PoliticaCacheHttp.aceitaGzip(comAcceptEncoding("deflate, gzip; q=0.000")));
+        Assertions.assertFalse(PoliticaCacheHttp.aceitaGzip(comAcceptEncoding("*, gzip;q=0")));
+        Assertions.assertFalse(PoliticaCacheHttp.aceitaGzip(comAcceptEncoding("*;q=0")));
+        Assertions.assertFalse(PoliticaCacheHttp.aceitaGzip(comAcceptEncoding("identity")));
+        Assertions.assertFalse(PoliticaCacheHttp.aceitaGzip(comAcceptEncoding(null)));
+    }
+
+    // métodos auxiliares
+
+    private static ServletWebRequest comAcceptEncoding(String codificacoes) {
+        MockHttpServletRequest requisicao = new MockHttpServletRequest("GET", "/moeda/01-02-2023&10-17-2023");
+        if (codificacoes != null) {
+            requisicao.addHeader(HttpHeaders.ACCEPT_ENCODING, codificacoes);
+        }
+        return new ServletWebRequest(requisicao, new MockHttpServletResponse());
+    }
+
+}
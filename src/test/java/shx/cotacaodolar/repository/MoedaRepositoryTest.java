@@ -0,0 +1,155 @@
+package shx.cotacaodolar.repository;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import shx.cotacaodolar.model.Moeda;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// Usa o H2 configurado em modo PostgreSQL nos recursos de teste, em vez do banco embarcado padrão.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class MoedaRepositoryTest {
+    @Autowired
+    private MoedaRepository moedaRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void inserirIgnorandoExistentesDeveContarApenasAsDatasNovas() throws ParseException {
+        int primeiraGravacao = moedaRepository.inserirIgnorandoExistentes(List.of(
+                moeda("4.9400", "18/10/2023"),
+                moeda("5.0300", "19/10/2023")
+        ));
+        int segundaGravacao = moedaRepository.inserirIgnorandoExistentes(List.of(
+                moeda("5.9900", "19/10/2023"),
+                moeda("5.0600", "20/10/2023")
+        ));
+
+        Assertions.assertEquals(2, primeiraGravacao);
+        Assertions.assertEquals(1, segundaGravacao);
+        Assertions.assertEquals(3, moedaRepository.count());
+        // A cotação já salva não é sobrescrita.
+        Assertions.assertEquals(0, new BigDecimal("5.0300").compareTo(
+                moedaRepository.findByData(new SimpleDateFormat("dd/MM/yyyy").parse("19/10/2023")).orElseThrow().getPreco()));
+    }
+
+    @Test
+    public void findDatasSalvasEntreDeveRetornarApenasAsDatasDaFaixaEmOrdem() throws ParseException {
+        SimpleDateFormat formato = new SimpleDateFormat("dd/MM/yyyy");
+        moedaRepository.inserirIgnorandoExistentes(List.of(
+                moeda("5.0600", "20/10/2023"),
+                moeda("4.9400", "18/10/2023"),
+                moeda("5.1000", "23/10/2023")
+        ));
+
+        List<Date> datas = moedaRepository.findDatasSalvasEntre(formato.parse("18/10/2023"), formato.parse("20/10/2023"));
+
+        Assertions.assertEquals(List.of("18/10/2023", "20/10/2023"), datas.stream().map(formato::format).toList());
+    }
+
+    @Test
+    public void findByDataBetweenOrderByDataDeveRetornarAsCotacoesDaFaixaComQuatroCasas() throws ParseException {
+        SimpleDateFormat formato = new SimpleDateFormat("dd/MM/yyyy");
+        moedaRepository.inserirIgnorandoExistentes(List.of(
+                moeda("5.0612", "20/10/2023"),
+                moeda("4.9471", "18/10/2023"),
+                moeda("5.1000", "23/10/2023")
+        ));
+
+        List<CotacaoSalva> cotacoes = moedaRepository.findByDataBetweenOrderByData(formato.parse("18/10/2023"), formato.parse("20/10/2023"));
+
+        Assertions.assertEquals(2, cotacoes.size());
+        Assertions.assertEquals("18/10/2023", formato.format(cotacoes.get(0).getData()));
+        Assertions.assertEquals(0, new BigDecimal("4.9471").compareTo(cotacoes.get(0).getPreco()));
+        Assertions.assertEquals(LocalTime.of(13, 4, 29), cotacoes.get(1).getHora());
+    }
+
+    @Test
+    public void percorrerEntreDeveEntregarAsCotacoesDaFaixaEmOrdem() throws ParseException {
+        SimpleDateFormat formato = new SimpleDateFormat("dd/MM/yyyy");
+        moedaRepository.inserirIgnorandoExistentes(List.of(
+                moeda("5.0612", "20/10/2023"),
+                moeda("4.9471", "18/10/2023"),
+                moeda("5.1000", "23/10/2023")
+        ));
+
+        List<CotacaoSalva> cotacoes = new ArrayList<>();
+        moedaRepository.percorrerEntre(formato.parse("18/10/2023"), formato.parse("20/10/2023"), cotacoes::add);
+
+        Assertions.assertEquals(List.of("18/10/2023", "20/10/2023"), cotacoes.stream().map(c -> formato.format(c.getData())).toList());
+        Assertions.assertEquals(0, new BigDecimal("5.0612").compareTo(cotacoes.get(1).getPreco()));
+        Assertions.assertEquals(LocalTime.of(13, 4, 29), cotacoes.get(1).getHora());
+    }
+
+    @Test
+    public void percorrerEnquantoDevePararNaPrimeiraCotacaoRecusada() throws ParseException {
+        SimpleDateFormat formato = new SimpleDateFormat("dd/MM/yyyy");
+        moedaRepository.inserirIgnorandoExistentes(List.of(
+                moeda("4.9471", "18/10/2023"),
+                moeda("5.0612", "20/10/2023"),
+                moeda("5.1000", "23/10/2023")
+        ));
+
+        List<String> lidas = new ArrayList<>();
+        boolean completa = moedaRepository.percorrerEnquanto(formato.parse("18/10/2023"), formato.parse("23/10/2023"), cotacao -> {
+            lidas.add(formato.format(cotacao.getData()));
+            return lidas.size() < 2;
+        });
+
+        Assertions.assertFalse(completa);
+        Assertions.assertEquals(List.of("18/10/2023", "20/10/2023"), lidas);
+        Assertions.assertTrue(moedaRepository.percorrerEnquanto(formato.parse("18/10/2023"), formato.parse("23/10/2023"), cotacao -> true));
+    }
+
+    @Test
+    public void corrigirCotacoesDeveRegravarApenasAsDatasAnotadasERecalcularOsResumosNoFim() throws ParseException {
+        SimpleDateFormat formato = new SimpleDateFormat("dd/MM/yyyy");
+        moedaRepository.inserirIgnorandoExistentes(List.of(
+                moeda("4.9500", "18/10/2023"),
+                moeda("5.0600", "19/10/2023"),
+                moeda("5.1000", "20/10/2023")
+        ));
+        // Como a migração V3 faz com as cotações arredondadas para 2 casas.
+        jdbcTemplate.update("INSERT INTO tb_cotacao_a_corrigir (data) VALUES (DATE '2023-10-18'), (DATE '2023-10-19'), (DATE '2023-10-23')");
+
+        int primeiroBloco = moedaRepository.corrigirCotacoes(List.of(moeda("4.9471", "18/10/2023"), moeda("5.9999", "20/10/2023")),
+                formato.parse("16/10/2023"), formato.parse("20/10/2023"));
+
+        Assertions.assertEquals(1, primeiroBloco);
+        Assertions.assertEquals(0, new BigDecimal("4.9471").compareTo(moedaRepository.findByData(formato.parse("18/10/2023")).orElseThrow().getPreco()));
+        // 20/10 não estava anotada, e 19/10 sai da tabela mesmo sem vir da API.
+        Assertions.assertEquals(0, new BigDecimal("5.1000").compareTo(moedaRepository.findByData(formato.parse("20/10/2023")).orElseThrow().getPreco()));
+        Assertions.assertEquals(List.of("23/10/2023"), moedaRepository.findDatasACorrigirEntre(formato.parse("01/10/2023"), formato.parse("31/10/2023"))
+                .stream().map(formato::format).toList());
+        // Os resumos só são recalculados depois da última correção.
+        Assertions.assertEquals(0, new BigDecimal("4.9500").compareTo(minimaDeOutubro()));
+
+        moedaRepository.corrigirCotacoes(List.of(), formato.parse("23/10/2023"), formato.parse("23/10/2023"));
+
+        Assertions.assertTrue(moedaRepository.findPrimeiraDataACorrigir().isEmpty());
+        Assertions.assertEquals(0, new BigDecimal("4.9471").compareTo(minimaDeOutubro()));
+    }
+
+    // métodos auxiliares
+
+    // Lida por JDBC: a reconstrução dos resumos não passa pelo contexto de persistência do JPA.
+    private BigDecimal minimaDeOutubro() {
+        return jdbcTemplate.queryForObject("SELECT minima FROM tb_resumo_cotacao WHERE agrupamento = 'MES' AND inicio = DATE '2023-10-01'", BigDecimal.class);
+    }
+
+    private static Moeda moeda(String preco, String data) throws ParseException {
+        return new Moeda(new BigDecimal(preco), new SimpleDateFormat("dd/MM/yyyy").parse(data), LocalTime.of(13, 4, 29));
+    }
+
+}
@@ -0,0 +1,90 @@
+package shx.cotacaodolar.repository;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import shx.cotacaodolar.model.Agrupamento;
+import shx.cotacaodolar.model.Moeda;
+import shx.cotacaodolar.model.ResumoCotacao;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+// Usa o H2 configurado em modo PostgreSQL nos recursos de teste, em vez do banco embarcado padrão.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class ResumoCotacaoRepositoryTest {
+    @Autowired
+    private MoedaRepository moedaRepository;
+    @Autowired
+    private ResumoCotacaoRepository resumoCotacaoRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void inserirCotacoesDeveAtualizarOsResumosDoMesEDoAno() throws ParseException {
+        moedaRepository.inserirIgnorandoExistentes(List.of(
+                moeda("5.0300", "19/10/2023"),
+                moeda("4.9400", "18/10/2023"),
+                moeda("4.8000", "29/09/2023")
+        ));
+        // Uma data já salva não pode ser contada de novo; as novas estendem o mês e o ano.
+        moedaRepository.inserirIgnorandoExistentes(List.of(
+                moeda("5.9900", "19/10/2023"),
+                moeda("5.1000", "20/10/2023"),
+                moeda("4.9000", "17/10/2023")
+        ));
+
+        List<ResumoCotacao> outubro = resumoCotacaoRepository.findByAgrupamentoAndInicioBetweenOrderByInicio(
+                Agrupamento.MES, LocalDate.of(2023, 10, 1), LocalDate.of(2023, 10, 1));
+        ResumoCotacao mes = outubro.get(0);
+        Assertions.assertAll("Verificar o resumo de outubro",
+                () -> Assertions.assertEquals(4, mes.getQuantidade()),
+                () -> Assertions.assertEquals(0, new BigDecimal("4.9000").compareTo(mes.getMinima())),
+                () -> Assertions.assertEquals(0, new BigDecimal("5.1000").compareTo(mes.getMaxima())),
+                () -> Assertions.assertEquals(0, new BigDecimal("19.9700").compareTo(mes.getSoma())),
+                () -> Assertions.assertEquals(LocalDate.of(2023, 10, 17), mes.getPrimeiraData()),
+                () -> Assertions.assertEquals(0, new BigDecimal("4.9000").compareTo(mes.getAbertura())),
+                () -> Assertions.assertEquals(LocalDate.of(2023, 10, 20), mes.getUltimaData()),
+                () -> Assertions.assertEquals(0, new BigDecimal("5.1000").compareTo(mes.getFechamento()))
+        );
+
+        ResumoCotacao ano = resumoCotacaoRepository.findByAgrupamentoAndInicioBetweenOrderByInicio(
+                Agrupamento.ANO, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 1)).get(0);
+        Assertions.assertEquals(5, ano.getQuantidade());
+        Assertions.assertEquals(0, new BigDecimal("4.8000").compareTo(ano.getAbertura()));
+        Assertions.assertTrue(resumoCotacaoRepository.verificar().isEmpty());
+    }
+
+    @Test
+    public void verificarDeveApontarResumosDivergentesEReconstruirDeveCorrigilos() throws ParseException {
+        moedaRepository.inserirIgnorandoExistentes(List.of(
+                moeda("5.0300", "19/10/2023"),
+                moeda("4.8000", "29/09/2023")
+        ));
+        jdbcTemplate.update("UPDATE tb_resumo_cotacao SET maxima = 9 WHERE agrupamento = 'MES' AND inicio = DATE '2023-10-01'");
+        jdbcTemplate.update("DELETE FROM tb_resumo_cotacao WHERE agrupamento = 'MES' AND inicio = DATE '2023-09-01'");
+        jdbcTemplate.update("INSERT INTO tb_resumo_cotacao (agrupamento, inicio, minima, maxima, soma, quantidade, primeira_data, "
+                + "abertura, ultima_data, fechamento) VALUES ('ANO', DATE '2020-01-01', 5, 5, 5, 1, DATE '2020-01-02', 5, DATE '2020-01-02', 5)");
+
+        Assertions.assertEquals(List.of("MES 2023-09-01: ausente", "MES 2023-10-01: divergente", "ANO 2020-01-01: sem cotações"),
+                resumoCotacaoRepository.verificar());
+
+        Assertions.assertEquals(3, resumoCotacaoRepository.reconstruir());
+        Assertions.assertTrue(resumoCotacaoRepository.verificar().isEmpty());
+    }
+
+    // métodos auxiliares
+
+    private static Moeda moeda(String preco, String data) throws ParseException {
+        return new Moeda(new BigDecimal(preco), new SimpleDateFormat("dd/MM/yyyy").parse(data), LocalTime.of(13, 4, 29));
+    }
+
+}
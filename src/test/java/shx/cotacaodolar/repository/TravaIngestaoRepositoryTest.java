@@ -0,0 +1,61 @@
+package shx.cotacaodolar.repository;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// Usa o H2 configurado em modo PostgreSQL nos recursos de teste, em vez do banco embarcado padrão.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class TravaIngestaoRepositoryTest {
+    private static final String TRAVA = "ingestao-ptax";
+    private static final Instant AGORA = Instant.parse("2023-10-20T16:00:00Z");
+    private static final Duration DURACAO = Duration.ofMinutes(10);
+
+    @Autowired
+    private TravaIngestaoRepository travaIngestaoRepository;
+
+    @Test
+    public void travaValidaNaoDeveSerAdquiridaPorOutroDono() {
+        Assertions.assertTrue(travaIngestaoRepository.adquirir(TRAVA, "a", AGORA, AGORA.plus(DURACAO)));
+        Assertions.assertFalse(travaIngestaoRepository.adquirir(TRAVA, "b", AGORA.plusSeconds(60), AGORA.plusSeconds(60).plus(DURACAO)));
+    }
+
+    @Test
+    public void travaExpiradaDeveSerTomadaPorOutroDono() {
+        travaIngestaoRepository.adquirir(TRAVA, "a", AGORA, AGORA.plus(DURACAO));
+        Instant depoisDaExpiracao = AGORA.plus(DURACAO).plusSeconds(1);
+
+        Assertions.assertTrue(travaIngestaoRepository.adquirir(TRAVA, "b", depoisDaExpiracao, depoisDaExpiracao.plus(DURACAO)));
+        Assertions.assertEquals("b", travaIngestaoRepository.findById(TRAVA).orElseThrow().getDono());
+    }
+
+    @Test
+    public void renovarSoDeveProrrogarATravaDoProprioDono() {
+        travaIngestaoRepository.adquirir(TRAVA, "a", AGORA, AGORA.plus(DURACAO));
+        Instant prorrogada = AGORA.plus(DURACAO).plus(DURACAO);
+
+        Assertions.assertFalse(travaIngestaoRepository.renovar(TRAVA, "b", prorrogada));
+        Assertions.assertTrue(travaIngestaoRepository.renovar(TRAVA, "a", prorrogada));
+        // Depois da duração original, a trava prorrogada continua valendo.
+        Instant depoisDaDuracaoOriginal = AGORA.plus(DURACAO).plusSeconds(1);
+        Assertions.assertFalse(travaIngestaoRepository.adquirir(TRAVA, "b", depoisDaDuracaoOriginal, depoisDaDuracaoOriginal.plus(DURACAO)));
+    }
+
+    @Test
+    public void liberarSoDeveRemoverATravaDoProprioDono() {
+        travaIngestaoRepository.adquirir(TRAVA, "a", AGORA, AGORA.plus(DURACAO));
+
+        travaIngestaoRepository.liberar(TRAVA, "b");
+        Assertions.assertFalse(travaIngestaoRepository.adquirir(TRAVA, "c", AGORA, AGORA.plus(DURACAO)));
+
+        travaIngestaoRepository.liberar(TRAVA, "a");
+        Assertions.assertTrue(travaIngestaoRepository.adquirir(TRAVA, "c", AGORA, AGORA.plus(DURACAO)));
+    }
+
+}
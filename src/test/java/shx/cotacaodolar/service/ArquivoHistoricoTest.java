@@ -0,0 +1,160 @@
+package shx.cotacaodolar.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import shx.cotacaodolar.dto.MoedaDto;
+import shx.cotacaodolar.model.Intervalo;
+import shx.cotacaodolar.repository.CotacaoSalva;
+import shx.cotacaodolar.repository.MoedaRepository;
+import shx.cotacaodolar.util.CalendarioDiasUteis;
+import shx.cotacaodolar.util.MoedaMapper;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+public class ArquivoHistoricoTest {
+    private static final Clock CLOCK = Clock.fixed(ZonedDateTime.of(2023, 10, 20, 15, 0, 0, 0, ZoneId.of("America/Sao_Paulo")).toInstant(),
+            ZoneId.of("America/Sao_Paulo"));
+
+    @TempDir
+    Path diretorio;
+
+    private Path caminho;
+    private MoedaRepository moedaRepository;
+    private CotacaoCache cotacaoCache;
+
+    @BeforeEach
+    public void setUp() {
+        caminho = diretorio.resolve("historico.bin");
+        moedaRepository = Mockito.mock(MoedaRepository.class);
+        cotacaoCache = new CotacaoCache();
+        List<CotacaoSalva> salvas = List.of(
+                cotacaoSalva("4.9471", LocalDate.of(2023, 10, 16)),
+                cotacaoSalva("5.0342", LocalDate.of(2023, 10, 17)),
+                cotacaoSalva("5.0612", LocalDate.of(2023, 10, 18)));
+        Mockito.when(moedaRepository.findAllByOrderByData()).thenReturn(salvas);
+    }
+
+    @Test
+    public void deveReconstruirDoBancoQuandoOArquivoNaoExiste() {
+        SerieCotacoes historico = novoArquivo().abrir();
+
+        Assertions.assertEquals(3, historico.tamanho());
+        Assertions.assertTrue(Files.exists(caminho));
+        Assertions.assertEquals(ArquivoHistorico.TAMANHO_CABECALHO + 3 * ArquivoHistorico.TAMANHO_REGISTRO, caminho.toFile().length());
+        Mockito.verify(moedaRepository).findAllByOrderByData();
+    }
+
+    @Test
+    public void deveLerOArquivoExistenteSemConsultarOBanco() {
+        novoArquivo().abrir();
+        Mockito.clearInvocations(moedaRepository);
+
+        SerieCotacoes historico = novoArquivo().abrir();
+
+        Assertions.assertEquals(new MoedaDto(new BigDecimal("5.0342"), "17/10/2023", "13:04:29"), historico.cotacao(1));
+        Mockito.verify(moedaRepository, Mockito.never()).findAllByOrderByData();
+    }
+
+    @Test
+    public void deveReconstruirQuandoUmRegistroEstaCorrompido() throws IOException {
+        novoArquivo().abrir();
+        try (RandomAccessFile arquivo = new RandomAccessFile(caminho.toFile(), "rw")) {
+            // Altera um byte do preço do segundo registro sem atualizar o CRC.
+            long posicao = ArquivoHistorico.TAMANHO_CABECALHO + ArquivoHistorico.TAMANHO_REGISTRO + 10;
+            arquivo.seek(posicao);
+            int original = arquivo.read();
+            arquivo.seek(posicao);
+            arquivo.write(original ^ 0xFF);
+        }
+        Mockito.clearInvocations(moedaRepository);
+
+        SerieCotacoes historico = novoArquivo().abrir();
+
+        Assertions.assertEquals(50342L, historico.preco(1));
+        Mockito.verify(moedaRepository).findAllByOrderByData();
+    }
+
+    @Test
+    public void deveReconstruirQuandoOUltimoRegistroEstaIncompleto() throws IOException {
+        novoArquivo().abrir();
+        try (RandomAccessFile arquivo = new RandomAccessFile(caminho.toFile(), "rw")) {
+            arquivo.setLength(arquivo.length() - 3);
+        }
+        Mockito.clearInvocations(moedaRepository);
+
+        Assertions.assertEquals(3, novoArquivo().abrir().tamanho());
+        Mockito.verify(moedaRepository).findAllByOrderByData();
+    }
+
+    @Test
+    public void acrescentarDeveGravarApenasCotacoesNovasOuAlteradas() {
+        ArquivoHistorico arquivoHistorico = novoArquivo();
+        arquivoHistorico.abrir();
+        long tamanhoInicial = caminho.toFile().length();
+
+        arquivoHistorico.acrescentar(List.of(
+                new MoedaDto(new BigDecimal("5.0342"), "17/10/2023", "13:04:29"),
+                new MoedaDto(new BigDecimal("5.0700"), "18/10/2023", "13:10:00"),
+                new MoedaDto(new BigDecimal("4.9800"), "13/10/2023", "13:03:00")));
+
+        Assertions.assertEquals(tamanhoInicial + 2 * ArquivoHistorico.TAMANHO_REGISTRO, caminho.toFile().length());
+        SerieCotacoes relido = novoArquivo().abrir();
+        Assertions.assertEquals(4, relido.tamanho());
+        Assertions.assertEquals(new MoedaDto(new BigDecimal("5.0700"), "18/10/2023", "13:10:00"), relido.cotacao(3));
+    }
+
+    @Test
+    public void aquecerCacheDeveCobrirApenasDiasUteisConsecutivos() {
+        List<CotacaoSalva> salvasComLacuna = List.of(
+                cotacaoSalva("4.9471", LocalDate.of(2023, 10, 16)),
+                cotacaoSalva("5.0342", LocalDate.of(2023, 10, 17)),
+                cotacaoSalva("5.0612", LocalDate.of(2023, 10, 19)));
+        Mockito.when(moedaRepository.findAllByOrderByData()).thenReturn(salvasComLacuna);
+
+        novoArquivo().aquecerCache();
+
+        Assertions.assertEquals(3, cotacaoCache.consultar(LocalDate.of(2023, 10, 1), LocalDate.of(2023, 10, 31)).size());
+        Assertions.assertTrue(cotacaoCache.intervalosFaltantes(LocalDate.of(2023, 10, 16), LocalDate.of(2023, 10, 17)).isEmpty());
+        Assertions.assertEquals(List.of(new Intervalo(LocalDate.of(2023, 10, 18), LocalDate.of(2023, 10, 18))),
+                cotacaoCache.intervalosFaltantes(LocalDate.of(2023, 10, 16), LocalDate.of(2023, 10, 19)));
+    }
+
+    @Test
+    public void desabilitadoNaoDeveCriarOArquivo() {
+        ArquivoHistorico arquivoHistorico = new ArquivoHistorico(moedaRepository, new MoedaMapper(), cotacaoCache,
+                new CalendarioDiasUteis(), CLOCK, false, caminho.toString());
+
+        Assertions.assertEquals(0, arquivoHistorico.abrir().tamanho());
+        Assertions.assertFalse(Files.exists(caminho));
+        Mockito.verifyNoInteractions(moedaRepository);
+    }
+
+    // métodos auxiliares
+
+    private ArquivoHistorico novoArquivo() {
+        return new ArquivoHistorico(moedaRepository, new MoedaMapper(), cotacaoCache, new CalendarioDiasUteis(), CLOCK, true,
+                caminho.toString());
+    }
+
+    private static CotacaoSalva cotacaoSalva(String preco, LocalDate data) {
+        CotacaoSalva cotacaoSalva = Mockito.mock(CotacaoSalva.class);
+        Mockito.when(cotacaoSalva.getPreco()).thenReturn(new BigDecimal(preco));
+        Mockito.when(cotacaoSalva.getData()).thenReturn(java.sql.Date.valueOf(data));
+        Mockito.when(cotacaoSalva.getHora()).thenReturn(data.getDayOfMonth() == 17 ? LocalTime.of(13, 4, 29) : LocalTime.of(13, 2, 31));
+        return cotacaoSalva;
+    }
+
+}
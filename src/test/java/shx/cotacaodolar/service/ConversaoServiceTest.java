@@ -0,0 +1,165 @@
+package shx.cotacaodolar.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import shx.cotacaodolar.dto.ConversaoDto;
+import shx.cotacaodolar.dto.ConversaoSolicitadaDto;
+import shx.cotacaodolar.repository.CotacaoSalva;
+import shx.cotacaodolar.repository.MoedaRepository;
+import shx.cotacaodolar.util.CalendarioDiasUteis;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class ConversaoServiceTest {
+    private MoedaRepository moedaRepository;
+    private ConversaoService conversaoService;
+
+    @BeforeEach
+    public void setUp() {
+        moedaRepository = Mockito.mock(MoedaRepository.class);
+        List<CotacaoSalva> salvas = List.of(
+                cotacaoSalva("4.9500", LocalDate.of(2023, 9, 14)),
+                cotacaoSalva("4.9717", LocalDate.of(2023, 9, 15)),
+                cotacaoSalva("4.8800", LocalDate.of(2023, 9, 18)));
+        Mockito.doAnswer(invocacao -> {
+            Date inicio = invocacao.getArgument(0);
+            Date fim = invocacao.getArgument(1);
+            Consumer<CotacaoSalva> consumidor = invocacao.getArgument(2);
+            salvas.stream()
+                    .filter(salva -> !salva.getData().before(inicio) && !salva.getData().after(fim))
+                    .forEach(consumidor);
+            return null;
+        }).when(moedaRepository).percorrerEntre(Mockito.any(), Mockito.any(), Mockito.any());
+        conversaoService = new ConversaoService(moedaRepository, new CalendarioDiasUteis());
+    }
+
+    @Test
+    public void deveConverterNosDoisSentidosComDuasCasasArredondadas() {
+        List<ConversaoDto> convertidas = conversaoService.converter(List.of(
+                new ConversaoSolicitadaDto("09-15-2023", new BigDecimal("100.00"), "usd-brl"),
+                new ConversaoSolicitadaDto("09-14-2023", new BigDecimal("1000"), "BRL-USD"),
+                new ConversaoSolicitadaDto("09-18-2023", new BigDecimal("0.01"), "usd-brl")), false);
+
+        Assertions.assertEquals(new BigDecimal("497.17"), convertidas.get(0).valorConvertido());
+        Assertions.assertEquals("15/09/2023", convertidas.get(0).dataCotacao());
+        Assertions.assertEquals(new BigDecimal("4.9717"), convertidas.get(0).cotacao());
+        // 1000 / 4.95 = 202.0202...
+        Assertions.assertEquals(new BigDecimal("202.02"), convertidas.get(1).valorConvertido());
+        // 0.01 * 4.88 = 0.0488
+        Assertions.assertEquals(new BigDecimal("0.05"), convertidas.get(2).valorConvertido());
+        Assertions.assertTrue(convertidas.stream().allMatch(conversao -> conversao.erro() == null));
+    }
+
+    @Test
+    public void deveResponderCadaSolicitacaoNaOrdemRecebidaComUmaUnicaLeitura() {
+        List<ConversaoSolicitadaDto> solicitacoes = List.of(
+                new ConversaoSolicitadaDto("09-18-2023", BigDecimal.ONE, "usd-brl"),
+                new ConversaoSolicitadaDto("09-14-2023", BigDecimal.ONE, "usd-brl"),
+                new ConversaoSolicitadaDto("09-16-2023", BigDecimal.ONE, "usd-brl"),
+                new ConversaoSolicitadaDto("09-15-2023", BigDecimal.ONE, "usd-brl"),
+                new ConversaoSolicitadaDto("09-15-2023", BigDecimal.ONE, "usd-brl"));
+
+        List<ConversaoDto> convertidas = new ArrayList<>();
+        conversaoService.converter(solicitacoes.iterator(), false, convertidas::add);
+
+        Assertions.assertEquals(List.of("18/09/2023", "14/09/2023", "15/09/2023", "15/09/2023"),
+                convertidas.stream().map(ConversaoDto::dataCotacao).filter(data -> data != null).toList());
+        Assertions.assertNull(convertidas.get(2).valorConvertido());
+        Assertions.assertEquals("Não há cotação salva para o dia '09-16-2023'.", convertidas.get(2).erro());
+        Mockito.verify(moedaRepository, Mockito.times(1)).percorrerEntre(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void loteEmListaDeveLerApenasAFaixaEntreAMenorEAMaiorData() {
+        List<ConversaoDto> convertidas = conversaoService.converter(List.of(
+                new ConversaoSolicitadaDto("09-17-2023", BigDecimal.ONE, "usd-brl"),
+                new ConversaoSolicitadaDto("13-01-2023", BigDecimal.ONE, "usd-brl"),
+                new ConversaoSolicitadaDto("09-14-2023", BigDecimal.ONE, "usd-brl")), true);
+
+        Assertions.assertEquals("15/09/2023", convertidas.get(0).dataCotacao());
+        Assertions.assertNotNull(convertidas.get(1).erro());
+        Assertions.assertEquals("14/09/2023", convertidas.get(2).dataCotacao());
+        // 17/09 é domingo e vira 15/09: a faixa lida vai de 14/09 a 15/09.
+        Mockito.verify(moedaRepository).percorrerEntre(
+                Mockito.eq(java.sql.Date.valueOf(LocalDate.of(2023, 9, 14))),
+                Mockito.eq(java.sql.Date.valueOf(LocalDate.of(2023, 9, 15))),
+                Mockito.any());
+        Mockito.verify(moedaRepository, Mockito.never()).findAllByOrderByData();
+    }
+
+    @Test
+    public void loteEmListaSemDataValidaNaoDeveConsultarOBanco() {
+        List<ConversaoDto> convertidas = conversaoService.converter(List.of(
+                new ConversaoSolicitadaDto("02-30-2023", BigDecimal.ONE, "usd-brl")), false);
+
+        Assertions.assertNotNull(convertidas.get(0).erro());
+        Mockito.verifyNoInteractions(moedaRepository);
+    }
+
+    @Test
+    public void deveUsarOUltimoDiaUtilAnteriorQuandoSolicitado() {
+        List<ConversaoDto> convertidas = conversaoService.converter(List.of(
+                new ConversaoSolicitadaDto("09-17-2023", new BigDecimal("10"), "usd-brl")), true);
+
+        Assertions.assertEquals("15/09/2023", convertidas.get(0).dataCotacao());
+        Assertions.assertEquals(new BigDecimal("49.72"), convertidas.get(0).valorConvertido());
+        Assertions.assertEquals("09-17-2023", convertidas.get(0).data());
+    }
+
+    @Test
+    public void deveInformarOErroDeCadaSolicitacaoInvalidaSemInterromperAsDemais() {
+        List<ConversaoDto> convertidas = conversaoService.converter(List.of(
+                new ConversaoSolicitadaDto("02-30-2023", BigDecimal.ONE, "usd-brl"),
+                new ConversaoSolicitadaDto("09-15-2023", null, "usd-brl"),
+                new ConversaoSolicitadaDto("09-15-2023", BigDecimal.ONE, "eur-brl"),
+                new ConversaoSolicitadaDto("09-15-2023", BigDecimal.ONE, "usd-brl")), false);
+
+        Assertions.assertNotNull(convertidas.get(0).erro());
+        Assertions.assertNotNull(convertidas.get(1).erro());
+        Assertions.assertNotNull(convertidas.get(2).erro());
+        Assertions.assertEquals(new BigDecimal("4.97"), convertidas.get(3).valorConvertido());
+    }
+
+    @Test
+    public void deveEntregarCadaConversaoAntesDeLerAProximaSolicitacao() {
+        List<ConversaoDto> entregues = new ArrayList<>();
+        Iterator<ConversaoSolicitadaDto> solicitacoes = new Iterator<>() {
+            private int lidas;
+
+            @Override
+            public boolean hasNext() {
+                return lidas < 1000;
+            }
+
+            @Override
+            public ConversaoSolicitadaDto next() {
+                // Tudo o que já foi lido já foi entregue: nada fica acumulado entre as solicitações.
+                Assertions.assertEquals(lidas, entregues.size());
+                lidas++;
+                return new ConversaoSolicitadaDto("09-15-2023", BigDecimal.ONE, "usd-brl");
+            }
+        };
+
+        conversaoService.converter(solicitacoes, false, entregues::add);
+
+        Assertions.assertEquals(1000, entregues.size());
+    }
+
+    private static CotacaoSalva cotacaoSalva(String preco, LocalDate data) {
+        CotacaoSalva cotacaoSalva = Mockito.mock(CotacaoSalva.class);
+        Mockito.when(cotacaoSalva.getPreco()).thenReturn(new BigDecimal(preco));
+        Mockito.when(cotacaoSalva.getData()).thenReturn(java.sql.Date.valueOf(data));
+        Mockito.when(cotacaoSalva.getHora()).thenReturn(LocalTime.of(13, 4, 29));
+        return cotacaoSalva;
+    }
+
+}
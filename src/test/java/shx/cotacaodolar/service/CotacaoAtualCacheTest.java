@@ -0,0 +1,96 @@
+package shx.cotacaodolar.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import shx.cotacaodolar.dto.MoedaDto;
+import shx.cotacaodolar.util.CalendarioDiasUteis;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CotacaoAtualCacheTest {
+    private static final ZoneId FUSO = ZoneId.of("America/Sao_Paulo");
+
+    @Test
+    public void cotacaoDeHojeDeveValerAteAPublicacaoDoDiaSeguinte() {
+        CotacaoAtualCache cache = criarCache(ZonedDateTime.of(2023, 10, 19, 14, 0, 0, 0, FUSO));
+        MoedaDto moeda = new MoedaDto(new BigDecimal("5.0342"), "19/10/2023", "13:04:29");
+
+        Assertions.assertEquals(ZonedDateTime.of(2023, 10, 20, 13, 0, 0, 0, FUSO).toInstant(), cache.calcularValidade(moeda));
+    }
+
+    @Test
+    public void cotacaoAnteriorDeveValerAteAPublicacaoDeHoje() {
+        CotacaoAtualCache cache = criarCache(ZonedDateTime.of(2023, 10, 19, 9, 0, 0, 0, FUSO));
+        MoedaDto moeda = new MoedaDto(new BigDecimal("5.0342"), "18/10/2023", "13:04:29");
+
+        Assertions.assertEquals(ZonedDateTime.of(2023, 10, 19, 13, 0, 0, 0, FUSO).toInstant(), cache.calcularValidade(moeda));
+    }
+
+    @Test
+    public void boletimAtrasadoDeveSerConsultadoNovamenteAposOIntervalo() {
+        CotacaoAtualCache cache = criarCache(ZonedDateTime.of(2023, 10, 19, 13, 30, 0, 0, FUSO));
+        MoedaDto moeda = new MoedaDto(new BigDecimal("5.0342"), "18/10/2023", "13:04:29");
+
+        Assertions.assertEquals(ZonedDateTime.of(2023, 10, 19, 13, 35, 0, 0, FUSO).toInstant(), cache.calcularValidade(moeda));
+    }
+
+    @Test
+    public void chamadasSimultaneasDevemAguardarUmaUnicaBusca() throws Exception {
+        CotacaoAtualCache cache = criarCache(ZonedDateTime.of(2023, 10, 19, 14, 0, 0, 0, FUSO));
+        MoedaDto moeda = new MoedaDto(new BigDecimal("5.0342"), "19/10/2023", "13:04:29");
+        AtomicInteger buscas = new AtomicInteger();
+        CountDownLatch liberarBusca = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] chamadas = new Future<?>[8];
+            for (int i = 0; i < chamadas.length; i++) {
+                chamadas[i] = executor.submit(() -> cache.obter(() -> {
+                    buscas.incrementAndGet();
+                    try {
+                        liberarBusca.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return moeda;
+                }));
+            }
+            Thread.sleep(100);
+            liberarBusca.countDown();
+            for (Future<?> chamada : chamadas) {
+                Assertions.assertEquals(moeda, chamada.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertEquals(1, buscas.get());
+        Assertions.assertEquals(moeda, cache.obter(() -> {
+            throw new AssertionError("A cotação válida deveria vir da memória");
+        }));
+    }
+
+    @Test
+    public void cotacaoDeSextaFeiraDeveValerAtePublicacaoDaSegundaFeira() {
+        CotacaoAtualCache cache = criarCache(ZonedDateTime.of(2023, 10, 21, 10, 0, 0, 0, FUSO));
+        MoedaDto moeda = new MoedaDto(new BigDecimal("5.0342"), "20/10/2023", "13:04:29");
+
+        Assertions.assertEquals(ZonedDateTime.of(2023, 10, 23, 13, 0, 0, 0, FUSO).toInstant(), cache.calcularValidade(moeda));
+    }
+
+    // métodos auxiliares
+
+    private CotacaoAtualCache criarCache(ZonedDateTime agora) {
+        return new CotacaoAtualCache(Clock.fixed(agora.toInstant(), FUSO), new CalendarioDiasUteis(), 13, 5);
+    }
+
+}
@@ -0,0 +1,107 @@
+package shx.cotacaodolar.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import shx.cotacaodolar.dto.MoedaDto;
+import shx.cotacaodolar.model.Intervalo;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public class CotacaoCacheTest {
+    private CotacaoCache cotacaoCache;
+
+    @BeforeEach
+    private void setUp() {
+        cotacaoCache = new CotacaoCache();
+    }
+
+    @Test
+    public void cacheVazioDeveRetornarOPeriodoInteiroComoFaltante() {
+        LocalDate inicio = LocalDate.of(2023, 1, 1);
+        LocalDate fim = LocalDate.of(2023, 1, 31);
+        Assertions.assertEquals(List.of(new Intervalo(inicio, fim)), cotacaoCache.intervalosFaltantes(inicio, fim));
+    }
+
+    @Test
+    public void deveRetornarApenasOsSubIntervalosNaoCobertos() {
+        registrar(LocalDate.of(2023, 1, 10), LocalDate.of(2023, 1, 20));
+
+        List<Intervalo> faltantes = cotacaoCache.intervalosFaltantes(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 31));
+
+        Assertions.assertEquals(List.of(
+                new Intervalo(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 9)),
+                new Intervalo(LocalDate.of(2023, 1, 21), LocalDate.of(2023, 1, 31))
+        ), faltantes);
+    }
+
+    @Test
+    public void intervalosAdjacentesDevemSerMesclados() {
+        registrar(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 10));
+        registrar(LocalDate.of(2023, 1, 11), LocalDate.of(2023, 1, 20));
+
+        Assertions.assertTrue(cotacaoCache.intervalosFaltantes(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 20)).isEmpty());
+    }
+
+    @Test
+    public void diasAposOLimiteDeCoberturaNaoDevemSerMarcadosComoCobertos() {
+        Intervalo consultado = new Intervalo(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 10));
+        cotacaoCache.registrar(consultado, List.of(), LocalDate.of(2023, 1, 5));
+
+        Assertions.assertEquals(List.of(new Intervalo(LocalDate.of(2023, 1, 6), LocalDate.of(2023, 1, 10))),
+                cotacaoCache.intervalosFaltantes(consultado.inicio(), consultado.fim()));
+    }
+
+    @Test
+    public void consultarDeveRetornarAsCotacoesDoPeriodoEmOrdem() {
+        Intervalo consultado = new Intervalo(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 10));
+        MoedaDto segunda = new MoedaDto(new BigDecimal("5.3000"), "02/01/2023", "13:00:00");
+        MoedaDto terca = new MoedaDto(new BigDecimal("5.3500"), "03/01/2023", "13:00:00");
+        cotacaoCache.registrar(consultado, List.of(terca, segunda), consultado.fim());
+
+        Assertions.assertEquals(List.of(segunda, terca), cotacaoCache.consultar(consultado.inicio(), consultado.fim()));
+        Assertions.assertEquals(List.of(terca), cotacaoCache.consultar(LocalDate.of(2023, 1, 3), LocalDate.of(2023, 1, 3)));
+    }
+
+    @Test
+    public void indiceDePrecosDeveSerReaproveitadoAteONovoRegistro() {
+        Intervalo janeiro = new Intervalo(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 10));
+        cotacaoCache.registrar(janeiro, List.of(new MoedaDto(new BigDecimal("5.3000"), "02/01/2023", "13:00:00")), janeiro.fim());
+        IndicePrecos indice = cotacaoCache.indicePrecos();
+
+        Assertions.assertSame(indice, cotacaoCache.indicePrecos());
+
+        Intervalo fevereiro = new Intervalo(LocalDate.of(2023, 2, 1), LocalDate.of(2023, 2, 10));
+        cotacaoCache.registrar(fevereiro, List.of(new MoedaDto(new BigDecimal("5.1000"), "01/02/2023", "13:00:00")), fevereiro.fim());
+
+        Assertions.assertNotSame(indice, cotacaoCache.indicePrecos());
+        Assertions.assertEquals(2, cotacaoCache.indicePrecos().tamanho());
+    }
+
+    @Test
+    public void registrarDeveInformarApenasOsDiasJaCobertosAlterados() {
+        Intervalo janeiro = new Intervalo(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 10));
+        MoedaDto segunda = new MoedaDto(new BigDecimal("5.3000"), "02/01/2023", "13:00:00");
+        MoedaDto terca = new MoedaDto(new BigDecimal("5.3500"), "03/01/2023", "13:00:00");
+        MoedaDto quinta = new MoedaDto(new BigDecimal("5.4000"), "05/01/2023", "13:00:00");
+
+        // Nada estava em memória: nenhuma resposta pode ter sido montada sem essas cotações.
+        Assertions.assertNull(cotacaoCache.registrar(janeiro, List.of(segunda, terca), janeiro.fim()));
+        // As mesmas cotações de novo não alteram nada.
+        Assertions.assertNull(cotacaoCache.registrar(janeiro, List.of(segunda, terca), janeiro.fim()));
+        // Dia 5 já estava coberto sem cotação, e dia 12 ainda não estava coberto.
+        Intervalo janela = new Intervalo(LocalDate.of(2023, 1, 2), LocalDate.of(2023, 1, 12));
+        MoedaDto dia12 = new MoedaDto(new BigDecimal("5.2000"), "12/01/2023", "13:00:00");
+        Assertions.assertEquals(new Intervalo(LocalDate.of(2023, 1, 5), LocalDate.of(2023, 1, 5)),
+                cotacaoCache.registrar(janela, List.of(segunda, terca, quinta, dia12), janela.fim()));
+    }
+
+    // métodos auxiliares
+
+    private void registrar(LocalDate inicio, LocalDate fim) {
+        cotacaoCache.registrar(new Intervalo(inicio, fim), List.of(), fim);
+    }
+
+}
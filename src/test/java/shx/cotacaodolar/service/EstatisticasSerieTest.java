@@ -0,0 +1,93 @@
+package shx.cotacaodolar.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import shx.cotacaodolar.dto.EstatisticasDto;
+import shx.cotacaodolar.dto.MoedaDto;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class EstatisticasSerieTest {
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final LocalDate PRIMEIRO_DIA = LocalDate.of(2020, 1, 1);
+
+    private List<MoedaDto> cotacoes;
+    private EstatisticasSerie estatisticas;
+
+    @BeforeEach
+    private void setUp() {
+        // 1000 dias com lacunas e preços repetidos, para exercitar janelas parciais e empates.
+        Random random = new Random(42);
+        cotacoes = new ArrayList<>();
+        LocalDate dia = PRIMEIRO_DIA;
+        for (int i = 0; i < 1000; i++) {
+            BigDecimal preco = BigDecimal.valueOf(48000 + random.nextInt(400), 4);
+            cotacoes.add(new MoedaDto(preco, dia.format(FORMATO_DATA), "13:00:00"));
+            dia = dia.plusDays(1 + random.nextInt(3));
+        }
+        estatisticas = EstatisticasSerie.construir(SerieCotacoes.de(cotacoes));
+    }
+
+    @Test
+    public void estatisticasDevemCoincidirComAVarreduraLinear() {
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            LocalDate inicio = PRIMEIRO_DIA.plusDays(random.nextInt(2200) - 50);
+            LocalDate fim = inicio.plusDays(random.nextInt(1500));
+            List<MoedaDto> janela = cotacoes.stream()
+                    .filter(c -> !data(c).isBefore(inicio) && !data(c).isAfter(fim))
+                    .collect(Collectors.toList());
+
+            EstatisticasDto resultado = estatisticas.calcular(inicio, fim);
+
+            Assertions.assertEquals(janela.size(), resultado.totalDias());
+            if (janela.isEmpty()) {
+                Assertions.assertNull(resultado.media());
+                continue;
+            }
+            // Em empates prevalece a cotação mais antiga, que é a primeira encontrada por min/max.
+            Assertions.assertEquals(janela.stream().min(Comparator.comparing(MoedaDto::preco)).get(), resultado.minima());
+            Assertions.assertEquals(janela.stream().max(Comparator.comparing(MoedaDto::preco).thenComparing(c -> -janela.indexOf(c))).get(),
+                    resultado.maxima());
+
+            BigDecimal soma = janela.stream().map(MoedaDto::preco).reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal media = soma.divide(BigDecimal.valueOf(janela.size()), MathContext.DECIMAL128);
+            BigDecimal variancia = janela.stream().map(c -> c.preco().subtract(media).pow(2)).reduce(BigDecimal.ZERO, BigDecimal::add)
+                    .divide(BigDecimal.valueOf(janela.size()), MathContext.DECIMAL128);
+            Assertions.assertEquals(media.setScale(4, RoundingMode.HALF_UP), resultado.media());
+            Assertions.assertEquals(variancia.sqrt(MathContext.DECIMAL128).setScale(4, RoundingMode.HALF_UP), resultado.desvioPadrao());
+        }
+    }
+
+    @Test
+    public void serieVaziaDeveRetornarEstatisticasVazias() {
+        EstatisticasDto resultado = EstatisticasSerie.construir(SerieCotacoes.VAZIA).calcular(PRIMEIRO_DIA, PRIMEIRO_DIA.plusDays(10));
+
+        Assertions.assertEquals(new EstatisticasDto(0, null, null, null, null), resultado);
+    }
+
+    @Test
+    public void cotacaoUnicaDeveTerDesvioPadraoZero() {
+        MoedaDto cotacao = new MoedaDto(new BigDecimal("5.0342"), "17/10/2023", "13:04:29");
+
+        EstatisticasDto resultado = EstatisticasSerie.construir(SerieCotacoes.de(List.of(cotacao)))
+                .calcular(LocalDate.of(2023, 10, 1), LocalDate.of(2023, 10, 31));
+
+        Assertions.assertEquals(new EstatisticasDto(1, cotacao, cotacao, new BigDecimal("5.0342"), new BigDecimal("0.0000")), resultado);
+    }
+
+    private static LocalDate data(MoedaDto cotacao) {
+        return LocalDate.parse(cotacao.data(), FORMATO_DATA);
+    }
+
+}
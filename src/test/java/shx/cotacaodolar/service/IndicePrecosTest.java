@@ -0,0 +1,100 @@
+package shx.cotacaodolar.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import shx.cotacaodolar.dto.MoedaDto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class IndicePrecosTest {
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final LocalDate PRIMEIRO_DIA = LocalDate.of(2020, 1, 1);
+
+    private List<MoedaDto> cotacoes;
+    private IndicePrecos indice;
+
+    @BeforeEach
+    private void setUp() {
+        // 1000 dias com lacunas e preços repetidos, para exercitar blocos parciais e empates.
+        Random random = new Random(42);
+        cotacoes = new ArrayList<>();
+        LocalDate dia = PRIMEIRO_DIA;
+        for (int i = 0; i < 1000; i++) {
+            BigDecimal preco = BigDecimal.valueOf(48000 + random.nextInt(400), 4);
+            cotacoes.add(new MoedaDto(preco, dia.format(FORMATO_DATA), "13:00:00"));
+            dia = dia.plusDays(1 + random.nextInt(3));
+        }
+        indice = IndicePrecos.construir(SerieCotacoes.de(cotacoes));
+    }
+
+    @Test
+    public void consultasDevemCoincidirComAVarreduraLinear() {
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            LocalDate inicio = PRIMEIRO_DIA.plusDays(random.nextInt(2200) - 50);
+            LocalDate fim = inicio.plusDays(random.nextInt(1500));
+            BigDecimal preco = BigDecimal.valueOf(47990 + random.nextInt(420), 4);
+
+            List<MoedaDto> janela = cotacoes.stream()
+                    .filter(c -> !data(c).isBefore(inicio) && !data(c).isAfter(fim))
+                    .collect(Collectors.toList());
+            List<MoedaDto> abaixo = janela.stream().filter(c -> c.preco().compareTo(preco) < 0).collect(Collectors.toList());
+            List<MoedaDto> acima = janela.stream().filter(c -> c.preco().compareTo(preco) > 0).collect(Collectors.toList());
+
+            Assertions.assertEquals(janela.size(), indice.contar(inicio, fim));
+            Assertions.assertEquals(abaixo.size(), indice.contarAbaixo(inicio, fim, preco));
+            Assertions.assertEquals(acima.size(), indice.contarAcima(inicio, fim, preco));
+            Assertions.assertEquals(abaixo, indice.listarAbaixo(inicio, fim, preco));
+            Assertions.assertEquals(acima, indice.listarAcima(inicio, fim, preco));
+        }
+    }
+
+    @Test
+    public void precoComMaisDeQuatroCasasDeveManterAComparacaoEstrita() {
+        MoedaDto cotacao = new MoedaDto(new BigDecimal("5.1234"), "02/01/2023", "13:00:00");
+        IndicePrecos indiceUnico = IndicePrecos.construir(SerieCotacoes.de(List.of(cotacao)));
+        LocalDate dia = LocalDate.of(2023, 1, 2);
+
+        Assertions.assertEquals(1, indiceUnico.contarAbaixo(dia, dia, new BigDecimal("5.12341")));
+        Assertions.assertEquals(0, indiceUnico.contarAcima(dia, dia, new BigDecimal("5.12341")));
+        Assertions.assertEquals(1, indiceUnico.contarAcima(dia, dia, new BigDecimal("5.12339")));
+        Assertions.assertEquals(0, indiceUnico.contarAbaixo(dia, dia, new BigDecimal("5.1234")));
+    }
+
+    @Test
+    public void listagemDeSerieMonotonaDeveSairInteiraEmOrdemCronologica() {
+        List<MoedaDto> crescentes = new ArrayList<>();
+        LocalDate dia = PRIMEIRO_DIA;
+        for (int i = 0; i < 20000; i++) {
+            crescentes.add(new MoedaDto(BigDecimal.valueOf(40000 + i, 4), dia.format(FORMATO_DATA), "13:00:00"));
+            dia = dia.plusDays(1);
+        }
+        IndicePrecos indiceCrescente = IndicePrecos.construir(SerieCotacoes.de(crescentes));
+
+        Assertions.assertEquals(crescentes, indiceCrescente.listarAbaixo(PRIMEIRO_DIA, dia, new BigDecimal("9")));
+        Assertions.assertEquals(crescentes.subList(10000, 20000), indiceCrescente.listarAcima(PRIMEIRO_DIA, dia, new BigDecimal("4.9999")));
+    }
+
+    @Test
+    public void indiceVazioDeveResponderSemCotacoes() {
+        IndicePrecos vazio = IndicePrecos.construir(SerieCotacoes.VAZIA);
+        LocalDate dia = LocalDate.of(2023, 1, 2);
+
+        Assertions.assertEquals(0, vazio.contar(dia, dia.plusDays(10)));
+        Assertions.assertTrue(vazio.listarAcima(dia, dia.plusDays(10), BigDecimal.ONE).isEmpty());
+    }
+
+    // métodos auxiliares
+
+    private static LocalDate data(MoedaDto moedaDto) {
+        return LocalDate.parse(moedaDto.data(), FORMATO_DATA);
+    }
+
+}
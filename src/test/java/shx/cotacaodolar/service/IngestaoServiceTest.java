@@ -0,0 +1,231 @@
+package shx.cotacaodolar.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import shx.cotacaodolar.dto.ResultadoIngestaoDto;
+import shx.cotacaodolar.infra.IngestaoEmAndamentoException;
+import shx.cotacaodolar.infra.MoedaException;
+import shx.cotacaodolar.model.EstadoIngestao;
+import shx.cotacaodolar.repository.EstadoIngestaoRepository;
+import shx.cotacaodolar.repository.MoedaRepository;
+import shx.cotacaodolar.repository.TravaIngestaoRepository;
+
+import java.sql.Date;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public class IngestaoServiceTest {
+    private static final ZoneId FUSO = ZoneId.of("America/Sao_Paulo");
+    // Sexta-feira, 20/10/2023, depois da publicação do boletim.
+    private static final LocalDate HOJE = LocalDate.of(2023, 10, 20);
+
+    private IngestaoService ingestaoService;
+    private MoedaService moedaService;
+    private MoedaRepository moedaRepository;
+    private EstadoIngestaoRepository estadoIngestaoRepository;
+    private TravaIngestaoRepository travaIngestaoRepository;
+
+    @BeforeEach
+    private void setUp() {
+        moedaService = Mockito.mock(MoedaService.class);
+        moedaRepository = Mockito.mock(MoedaRepository.class);
+        estadoIngestaoRepository = Mockito.mock(EstadoIngestaoRepository.class);
+        travaIngestaoRepository = Mockito.mock(TravaIngestaoRepository.class);
+        Mockito.when(travaIngestaoRepository.adquirir(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(true);
+        Mockito.when(travaIngestaoRepository.renovar(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(true);
+        Mockito.when(moedaService.sincronizarNoBd(Mockito.any(), Mockito.any()))
+                .thenReturn(new ResultadoIngestaoDto("Cotações sincronizadas com sucesso", 1, 0));
+        Clock clock = Clock.fixed(ZonedDateTime.of(HOJE.atTime(14, 0), FUSO).toInstant(), FUSO);
+        CoordenadorIngestao coordenadorIngestao = new CoordenadorIngestao(travaIngestaoRepository, clock, 600);
+        ingestaoService = new IngestaoService(moedaService, moedaRepository, estadoIngestaoRepository, coordenadorIngestao,
+                clock, 30, "2023-01-01", 3);
+    }
+
+    @Test
+    public void ingestaoIncrementalDeveComecarNaMarcaDaguaEAvancarAteAUltimaDataSalva() {
+        estadoSalvo(new EstadoIngestao(IngestaoService.CHAVE, LocalDate.of(2023, 10, 17), LocalDate.of(2023, 9, 1), null));
+        Mockito.when(moedaRepository.findDatasSalvasEntre(Mockito.any(), Mockito.any()))
+                .thenReturn(List.of(Date.valueOf("2023-10-18"), Date.valueOf("2023-10-19"), Date.valueOf("2023-10-20")));
+
+        ingestaoService.ingerirNovasCotacoes();
+
+        Mockito.verify(moedaService).sincronizarNoBd(LocalDate.of(2023, 10, 18), HOJE);
+        Assertions.assertEquals(HOJE, estadoGravado().getUltimaDataIngerida());
+    }
+
+    @Test
+    public void ingestaoIncrementalSemCotacaoNovaNaoDeveAvancarAMarcaDagua() {
+        estadoSalvo(new EstadoIngestao(IngestaoService.CHAVE, LocalDate.of(2023, 10, 19), LocalDate.of(2023, 9, 1), null));
+        Mockito.when(moedaRepository.findDatasSalvasEntre(Mockito.any(), Mockito.any())).thenReturn(List.of());
+
+        ingestaoService.ingerirNovasCotacoes();
+
+        Assertions.assertEquals(LocalDate.of(2023, 10, 19), estadoGravado().getUltimaDataIngerida());
+    }
+
+    @Test
+    public void primeiraIngestaoDeveUsarAJanelaInicialEPosicionarOBackfill() {
+        Mockito.when(estadoIngestaoRepository.findById(IngestaoService.CHAVE)).thenReturn(Optional.empty());
+        Mockito.when(moedaRepository.findDatasSalvasEntre(Mockito.any(), Mockito.any())).thenReturn(List.of(Date.valueOf("2023-10-20")));
+
+        ingestaoService.ingerirNovasCotacoes();
+
+        Mockito.verify(moedaService).sincronizarNoBd(HOJE.minusDays(30), HOJE);
+        Assertions.assertEquals(HOJE.minusDays(30), estadoGravado().getBackfillAte());
+    }
+
+    @Test
+    public void backfillAntesDaPrimeiraIngestaoIncrementalNaoDeveDeixarLacunaNoHistorico() {
+        // O backfill roda primeiro, e a ingestão incremental só roda dois dias depois.
+        Mockito.when(estadoIngestaoRepository.findById(IngestaoService.CHAVE)).thenReturn(Optional.empty());
+        ingestaoService.avancarBackfill();
+        EstadoIngestao aposBackfill = estadoGravado();
+
+        Mockito.verify(moedaService).sincronizarNoBd(HOJE.minusDays(30).minusMonths(3), HOJE.minusDays(31));
+        Assertions.assertEquals(HOJE.minusDays(31), aposBackfill.getUltimaDataIngerida());
+
+        Clock doisDiasDepois = Clock.fixed(ZonedDateTime.of(HOJE.plusDays(2).atTime(14, 0), FUSO).toInstant(), FUSO);
+        IngestaoService depois = new IngestaoService(moedaService, moedaRepository, estadoIngestaoRepository,
+                new CoordenadorIngestao(travaIngestaoRepository, doisDiasDepois, 600), doisDiasDepois, 30, "2023-01-01", 3);
+        estadoSalvo(aposBackfill);
+        Mockito.when(moedaRepository.findDatasSalvasEntre(Mockito.any(), Mockito.any())).thenReturn(List.of());
+
+        depois.ingerirNovasCotacoes();
+
+        // A janela incremental começa no dia seguinte ao fim do primeiro bloco do backfill.
+        Mockito.verify(moedaService).sincronizarNoBd(HOJE.minusDays(30), HOJE.plusDays(2));
+    }
+
+    @Test
+    public void backfillDeveRecuarUmBlocoPorExecucao() {
+        estadoSalvo(new EstadoIngestao(IngestaoService.CHAVE, HOJE, LocalDate.of(2023, 9, 1), null));
+
+        ingestaoService.avancarBackfill();
+
+        Mockito.verify(moedaService).sincronizarNoBd(LocalDate.of(2023, 6, 1), LocalDate.of(2023, 8, 31));
+        Assertions.assertEquals(LocalDate.of(2023, 6, 1), estadoGravado().getBackfillAte());
+    }
+
+    @Test
+    public void backfillNaoDeveUltrapassarADataInicial() {
+        estadoSalvo(new EstadoIngestao(IngestaoService.CHAVE, HOJE, LocalDate.of(2023, 2, 15), null));
+
+        ingestaoService.avancarBackfill();
+
+        Mockito.verify(moedaService).sincronizarNoBd(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 2, 14));
+        Assertions.assertEquals(LocalDate.of(2023, 1, 1), estadoGravado().getBackfillAte());
+    }
+
+    @Test
+    public void backfillCompletoNaoDeveConsultarAApi() {
+        estadoSalvo(new EstadoIngestao(IngestaoService.CHAVE, HOJE, LocalDate.of(2023, 1, 1), null));
+
+        ingestaoService.avancarBackfill();
+
+        Mockito.verify(moedaService, Mockito.never()).sincronizarNoBd(Mockito.any(), Mockito.any());
+        Mockito.verify(estadoIngestaoRepository, Mockito.never()).save(Mockito.any());
+    }
+
+    @Test
+    public void semATravaNenhumaIngestaoDeveConsultarAApi() {
+        Mockito.when(travaIngestaoRepository.adquirir(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(false);
+
+        ingestaoService.ingerirNovasCotacoes();
+        ingestaoService.avancarBackfill();
+
+        Assertions.assertThrows(IngestaoEmAndamentoException.class, () -> ingestaoService.salvarPeriodo("10-02-2023", "10-20-2023"));
+        Assertions.assertThrows(IngestaoEmAndamentoException.class, () -> ingestaoService.sincronizarPeriodo("10-02-2023", "10-20-2023"));
+        Mockito.verifyNoInteractions(moedaService);
+        Mockito.verify(estadoIngestaoRepository, Mockito.never()).save(Mockito.any());
+    }
+
+    @Test
+    public void travaDeveSerLiberadaMesmoQuandoAIngestaoFalha() {
+        Mockito.when(moedaService.salvarNoBdCotacoesDeDolarPorPeriodo(Mockito.any(), Mockito.any())).thenThrow(new MoedaException("falha"));
+
+        Assertions.assertThrows(MoedaException.class, () -> ingestaoService.salvarPeriodo("10-02-2023", "10-20-2023"));
+
+        ArgumentCaptor<String> dono = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(travaIngestaoRepository).adquirir(Mockito.eq(CoordenadorIngestao.TRAVA), dono.capture(), Mockito.any(), Mockito.any());
+        Mockito.verify(travaIngestaoRepository).liberar(CoordenadorIngestao.TRAVA, dono.getValue());
+    }
+
+    @Test
+    public void travaDeveSerProrrogadaEnquantoAIngestaoExecuta() {
+        // Trava de 1 segundo, prorrogada a cada terço de segundo, e uma tarefa que dura mais que ela.
+        CoordenadorIngestao coordenador = new CoordenadorIngestao(travaIngestaoRepository, Clock.systemUTC(), 1);
+
+        Optional<String> resultado = coordenador.executarComTrava(() -> {
+            dormir(1500);
+            return "concluida";
+        });
+
+        Assertions.assertEquals(Optional.of("concluida"), resultado);
+        Mockito.verify(travaIngestaoRepository, Mockito.atLeast(2)).renovar(Mockito.eq(CoordenadorIngestao.TRAVA), Mockito.any(), Mockito.any());
+        Mockito.verify(travaIngestaoRepository).liberar(Mockito.eq(CoordenadorIngestao.TRAVA), Mockito.any());
+        coordenador.encerrar();
+    }
+
+    @Test
+    public void travaTomadaPorOutraInstanciaDeveInterromperAIngestao() {
+        Mockito.when(travaIngestaoRepository.renovar(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(false);
+        CoordenadorIngestao coordenador = new CoordenadorIngestao(travaIngestaoRepository, Clock.systemUTC(), 1);
+
+        Assertions.assertThrows(IngestaoEmAndamentoException.class, () -> coordenador.executarComTrava(() -> {
+            dormir(5000);
+            return "concluida";
+        }));
+        // A interrupção não vaza para a thread depois da execução.
+        Assertions.assertFalse(Thread.currentThread().isInterrupted());
+        coordenador.encerrar();
+    }
+
+    @Test
+    public void correcaoDeveAvancarUmBlocoAPartirDaDataMaisAntigaACorrigir() {
+        Mockito.when(moedaRepository.findPrimeiraDataACorrigir()).thenReturn(Optional.of(Date.valueOf("2001-02-05")));
+
+        ingestaoService.avancarCorrecao();
+
+        Mockito.verify(moedaService).corrigirCotacoes(LocalDate.of(2001, 2, 5), LocalDate.of(2001, 5, 4));
+    }
+
+    @Test
+    public void correcaoSemDatasACorrigirNaoDeveConsultarAApi() {
+        Mockito.when(moedaRepository.findPrimeiraDataACorrigir()).thenReturn(Optional.empty());
+
+        ResultadoIngestaoDto resultado = ingestaoService.avancarCorrecao();
+
+        Assertions.assertEquals(0, resultado.inseridas());
+        Mockito.verify(moedaService, Mockito.never()).corrigirCotacoes(Mockito.any(), Mockito.any());
+    }
+
+    // métodos auxiliares
+
+    // Simula uma ingestão longa; a interrupção vira uma falha da tarefa, como em uma chamada de rede interrompida.
+    private static void dormir(long milissegundos) {
+        try {
+            Thread.sleep(milissegundos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MoedaException("interrompida");
+        }
+    }
+
+    private void estadoSalvo(EstadoIngestao estado) {
+        Mockito.when(estadoIngestaoRepository.findById(IngestaoService.CHAVE)).thenReturn(Optional.of(estado));
+    }
+
+    private EstadoIngestao estadoGravado() {
+        ArgumentCaptor<EstadoIngestao> captor = ArgumentCaptor.forClass(EstadoIngestao.class);
+        Mockito.verify(estadoIngestaoRepository).save(captor.capture());
+        return captor.getValue();
+    }
+
+}
@@ -7,31 +7,63 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mockito;
+import shx.cotacaodolar.client.PtaxClient;
+import shx.cotacaodolar.dto.CandleDto;
+import shx.cotacaodolar.dto.ComparacaoDto;
+import shx.cotacaodolar.dto.CotacaoPorDataDto;
+import shx.cotacaodolar.dto.EstatisticasDto;
 import shx.cotacaodolar.dto.MoedaDto;
+import shx.cotacaodolar.dto.PosicaoPrecoDto;
+import shx.cotacaodolar.dto.ResultadoIngestaoDto;
 import shx.cotacaodolar.infra.InvalidDateException;
+import shx.cotacaodolar.infra.InvalidGroupingException;
+import shx.cotacaodolar.infra.InvalidPriceException;
+import shx.cotacaodolar.model.Agrupamento;
+import shx.cotacaodolar.model.Intervalo;
 import shx.cotacaodolar.model.Moeda;
+import shx.cotacaodolar.repository.CotacaoSalva;
 import shx.cotacaodolar.repository.MoedaRepository;
+import shx.cotacaodolar.util.CalendarioDiasUteis;
 import shx.cotacaodolar.util.MoedaMapper;
 
 import javax.persistence.EntityNotFoundException;
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class MoedaServiceTest {
     private MoedaService moedaService;
     private MoedaRepository moedaRepository;
     private MoedaMapper mapper;
+    private PtaxClient ptaxClient;
+    private ArquivoHistorico arquivoHistorico;
 
     @BeforeEach
-    private void setUp() {
+    private void setUp() throws IOException {
         moedaRepository = Mockito.mock(MoedaRepository.class);
+        arquivoHistorico = Mockito.mock(ArquivoHistorico.class);
         mapper = Mockito.mock(MoedaMapper.class);
-        this.moedaService = new MoedaService(moedaRepository, mapper);
+        // A API do BCB é simulada para que os testes não dependam de rede.
+        ptaxClient = Mockito.mock(PtaxClient.class);
+        Mockito.when(ptaxClient.buscarCotacoesPeriodo(Mockito.any()))
+                .thenAnswer(invocation -> cotacoesSimuladas(invocation.getArgument(0)));
+        this.moedaService = criarServico(mapper, new CandleCache(), new RespostasCache(1 << 20, true));
     }
 
     @Test
@@ -57,6 +89,21 @@ public class MoedaServiceTest {
         Assertions.assertThrows(InvalidDateException.class, () -> moedaService.getCotacoesPeriodo(startDate, endDate));
     }
 
+    @ParameterizedTest
+    @MethodSource(value = "dataProviderValidsDates")
+    public void transmitirCotacoesPeriodoDeveEntregarAsMesmasCotacoesDaLista(String startDate, String endDate) {
+        List<MoedaDto> transmitidas = new ArrayList<>();
+        moedaService.transmitirCotacoesPeriodo(startDate, endDate, transmitidas::add);
+        Assertions.assertEquals(moedaService.getCotacoesPeriodo(startDate, endDate), transmitidas);
+    }
+
+    @ParameterizedTest
+    @MethodSource(value = "dataProviderInvalidsDates")
+    public void transmitirCotacoesPeriodoDeveLancarExcecaoParaDatasInvalidas(String startDate, String endDate) {
+        Assertions.assertThrows(InvalidDateException.class, () -> moedaService.transmitirCotacoesPeriodo(startDate, endDate, moedaDto -> {
+        }));
+    }
+
     @ParameterizedTest
     @MethodSource(value = "dataProviderValidsDates")
     public void getCotacoesMenoresAtualDeveRetornarUmaListaMoedaDtoParaDatasValidas(String startDate, String endDate) {
@@ -93,12 +140,275 @@ public class MoedaServiceTest {
         Assertions.assertThrows(InvalidDateException.class, () -> moedaService.getCotacoesMaioresAtual(startDate, endDate));
     }
 
+    @ParameterizedTest
+    @MethodSource(value = "dataProviderValidsDates")
+    public void getComparacaoCotacaoAtualDeveSepararTodasAsCotacoesDoPeriodo(String startDate, String endDate) {
+        ComparacaoDto comparacaoDto = moedaService.getComparacaoCotacaoAtual(startDate, endDate);
+        BigDecimal cotacaoAtual = comparacaoDto.cotacaoAtual().preco();
+        Assertions.assertAll("Verificar as partições",
+                () -> Assertions.assertTrue(comparacaoDto.menores().stream().allMatch(m -> m.preco().compareTo(cotacaoAtual) < 0)),
+                () -> Assertions.assertTrue(comparacaoDto.iguais().stream().allMatch(m -> m.preco().compareTo(cotacaoAtual) == 0)),
+                () -> Assertions.assertTrue(comparacaoDto.maiores().stream().allMatch(m -> m.preco().compareTo(cotacaoAtual) > 0)),
+                () -> Assertions.assertEquals(moedaService.getCotacoesPeriodo(startDate, endDate).size(),
+                        comparacaoDto.menores().size() + comparacaoDto.iguais().size() + comparacaoDto.maiores().size())
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource(value = "dataProviderInvalidsDates")
+    public void getComparacaoCotacaoAtualDeveLancarExcecaoParaDatasInvalidas(String startDate, String endDate) {
+        Assertions.assertThrows(InvalidDateException.class, () -> moedaService.getComparacaoCotacaoAtual(startDate, endDate));
+    }
+
+    @ParameterizedTest
+    @MethodSource(value = "dataProviderValidsDates")
+    public void getPosicaoPrecoDeveCoincidirComAsCotacoesDoPeriodo(String startDate, String endDate) {
+        BigDecimal preco = new BigDecimal("5.0500");
+        List<MoedaDto> periodo = moedaService.getCotacoesPeriodo(startDate, endDate);
+
+        PosicaoPrecoDto posicao = moedaService.getPosicaoPreco(startDate, endDate, "5.05");
+
+        Assertions.assertAll("Verificar as contagens",
+                () -> Assertions.assertEquals(periodo.size(), posicao.totalDias()),
+                () -> Assertions.assertEquals(periodo.stream().filter(m -> m.preco().compareTo(preco) < 0).count(), posicao.diasAbaixo()),
+                () -> Assertions.assertEquals(periodo.stream().filter(m -> m.preco().compareTo(preco) > 0).count(), posicao.diasAcima()),
+                () -> Assertions.assertEquals(moedaService.getCotacoesAcimaDe(startDate, endDate, "5,05").size(), posicao.diasAcima())
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource(value = "dataProviderValidsDates")
+    public void getPosicaoCotacaoAtualDeveRetornarPercentilEntreZeroECem(String startDate, String endDate) {
+        PosicaoPrecoDto posicao = moedaService.getPosicaoCotacaoAtual(startDate, endDate);
+        Assertions.assertTrue(posicao.percentil().compareTo(BigDecimal.ZERO) >= 0);
+        Assertions.assertTrue(posicao.percentil().compareTo(BigDecimal.valueOf(100)) <= 0);
+    }
+
+    @ParameterizedTest
+    @MethodSource(value = "dataProviderValidsDates")
+    public void getEstatisticasPeriodoDeveCoincidirComAsCotacoesDoPeriodo(String startDate, String endDate) {
+        List<MoedaDto> periodo = moedaService.getCotacoesPeriodo(startDate, endDate);
+
+        EstatisticasDto estatisticas = moedaService.getEstatisticasPeriodo(startDate, endDate);
+
+        Assertions.assertAll("Verificar as estatísticas",
+                () -> Assertions.assertEquals(periodo.size(), estatisticas.totalDias()),
+                () -> Assertions.assertEquals(periodo.stream().map(MoedaDto::preco).min(BigDecimal::compareTo).get(), estatisticas.minima().preco()),
+                () -> Assertions.assertEquals(periodo.stream().map(MoedaDto::preco).max(BigDecimal::compareTo).get(), estatisticas.maxima().preco())
+        );
+    }
+
+    @Test
+    public void getEstatisticasPeriodoDeveLancarExcecaoParaDatasInvalidas() {
+        Assertions.assertThrows(InvalidDateException.class, () -> moedaService.getEstatisticasPeriodo("05-01-2023", "01-01-2023"));
+    }
+
+    @Test
+    public void getCandlesDeveAgruparAsCotacoesPorMes() {
+        List<MoedaDto> diarias = moedaService.getCotacoesPeriodo("01-01-2023", "05-31-2023");
+
+        List<CandleDto> candles = moedaService.getCandles("01-15-2023", "05-10-2023", "mes");
+
+        Assertions.assertEquals(5, candles.size());
+        for (CandleDto candle : candles) {
+            List<MoedaDto> doMes = diarias.stream().filter(m -> m.data().endsWith(candle.inicio().substring(2))).collect(Collectors.toList());
+            Assertions.assertAll("Verificar o candle de " + candle.inicio(),
+                    () -> Assertions.assertEquals(doMes.size(), candle.dias()),
+                    () -> Assertions.assertEquals(doMes.get(0).preco(), candle.abertura()),
+                    () -> Assertions.assertEquals(doMes.get(doMes.size() - 1).preco(), candle.fechamento()),
+                    () -> Assertions.assertEquals(doMes.stream().map(MoedaDto::preco).max(BigDecimal::compareTo).get(), candle.maxima()),
+                    () -> Assertions.assertEquals(doMes.stream().map(MoedaDto::preco).min(BigDecimal::compareTo).get(), candle.minima())
+            );
+        }
+        Assertions.assertEquals("01/01/2023", candles.get(0).inicio());
+        Assertions.assertEquals("31/05/2023", candles.get(4).fim());
+    }
+
+    @Test
+    public void getCandlesDeveReaproveitarCandlesDeGruposEncerrados() throws IOException {
+        CandleCache candleCache = new CandleCache();
+        MoedaService primeiro = criarServico(mapper, candleCache, new RespostasCache(1 << 20, true));
+        List<CandleDto> candles = primeiro.getCandles("01-02-2023", "03-31-2023", "semana");
+        Mockito.clearInvocations(ptaxClient);
+
+        // Outro serviço, com o cache de cotações vazio, mas o mesmo cache de candles.
+        MoedaService segundo = criarServico(mapper, candleCache, new RespostasCache(1 << 20, true));
+
+        Assertions.assertEquals(candles, segundo.getCandles("01-02-2023", "03-31-2023", "semana"));
+        Assertions.assertNotNull(candleCache.consultar(Agrupamento.SEMANA, LocalDate.of(2023, 1, 2)));
+        Mockito.verify(ptaxClient, Mockito.never()).buscarCotacoesPeriodo(Mockito.any());
+    }
+
+    @Test
+    public void getCandlesDeveLancarExcecaoParaAgrupamentoInvalido() {
+        Assertions.assertThrows(InvalidGroupingException.class, () -> moedaService.getCandles("01-01-2023", "05-01-2023", "dia"));
+    }
+
+    @Test
+    public void getCotacoesAbaixoDeDeveLancarExcecaoParaPrecoInvalido() {
+        Assertions.assertThrows(InvalidPriceException.class, () -> moedaService.getCotacoesAbaixoDe("01-01-2023", "05-01-2023", "abc"));
+        Assertions.assertThrows(InvalidPriceException.class, () -> moedaService.getCotacoesAbaixoDe("01-01-2023", "05-01-2023", "-1"));
+    }
+
     @ParameterizedTest
     @MethodSource(value = "dataProviderValidsDates")
     public void salvarNoBdCotacoesDeDolarPorPeriodoDeveSalvarComSucessoParaDatasValidas(String startDate, String endDate) {
-        String message = moedaService.salvarNoBdCotacoesDeDolarPorPeriodo(startDate, endDate);
-        Assertions.assertEquals("Cotações salvas com sucesso", message);
-        Mockito.verify(moedaRepository, Mockito.atLeastOnce()).save(Mockito.any());
+        // Simula uma cotação do período já salva anteriormente.
+        Mockito.when(moedaRepository.inserirIgnorandoExistentes(Mockito.anyList()))
+                .thenAnswer(invocation -> invocation.<List<Moeda>>getArgument(0).size() - 1);
+        int totalPeriodo = moedaService.getCotacoesPeriodo(startDate, endDate).size();
+
+        ResultadoIngestaoDto resultado = moedaService.salvarNoBdCotacoesDeDolarPorPeriodo(startDate, endDate);
+
+        Assertions.assertEquals("Cotações salvas com sucesso", resultado.mensagem());
+        Assertions.assertEquals(totalPeriodo - 1, resultado.inseridas());
+        Assertions.assertEquals(1, resultado.ignoradas());
+        Mockito.verify(moedaRepository, Mockito.times(1)).inserirIgnorandoExistentes(Mockito.anyList());
+        Mockito.verify(moedaRepository, Mockito.never()).save(Mockito.any());
+    }
+
+    @Test
+    public void getCotacoesPeriodoDeveLerOBancoEBuscarNaApiApenasAsLacunas() throws IOException {
+        MoedaService servicoComMapper = criarServicoComMapperReal();
+        Intervalo janeiro = new Intervalo(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 31));
+        List<CotacaoSalva> salvas = new ArrayList<>();
+        for (MoedaDto dto : cotacoesSimuladas(janeiro)) {
+            LocalDate dia = LocalDate.parse(dto.data(), DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+            if (!dia.equals(LocalDate.of(2023, 1, 17))) {
+                salvas.add(cotacaoSalva(dto.preco(), dia));
+            }
+        }
+        Mockito.when(moedaRepository.findByDataBetweenOrderByData(Mockito.any(), Mockito.any())).thenReturn(salvas);
+
+        List<MoedaDto> cotacoes = servicoComMapper.getCotacoesPeriodo("01-01-2023", "01-31-2023");
+
+        Assertions.assertEquals(cotacoesSimuladas(janeiro).size(), cotacoes.size());
+        Assertions.assertEquals("17/01/2023", cotacoes.get(11).data());
+        Mockito.verify(ptaxClient).buscarCotacoesPeriodo(new Intervalo(LocalDate.of(2023, 1, 17), LocalDate.of(2023, 1, 17)));
+        Mockito.verify(ptaxClient, Mockito.times(1)).buscarCotacoesPeriodo(Mockito.any());
+    }
+
+    @Test
+    public void transmitirCotacoesPeriodoDeveEntregarCadaLinhaDoBancoEAsLacunasEmOrdemSemChamarAApiComOCursorAberto() throws IOException {
+        Intervalo janeiro = new Intervalo(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 31));
+        DateTimeFormatter formatoData = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+        boolean[] cursorAberto = {false};
+        Mockito.when(ptaxClient.buscarCotacoesPeriodo(Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+            // A conexão do banco já foi liberada antes da chamada à API.
+            Assertions.assertFalse(cursorAberto[0]);
+            List<MoedaDto> baixadas = cotacoesSimuladas(invocation.getArgument(0));
+            baixadas.forEach(invocation.<Consumer<MoedaDto>>getArgument(1));
+            return baixadas.size();
+        });
+        List<MoedaDto> transmitidas = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            LocalDate inicio = new java.sql.Date(invocation.<Date>getArgument(0).getTime()).toLocalDate();
+            Predicate<CotacaoSalva> consumidor = invocation.getArgument(2);
+            cursorAberto[0] = true;
+            try {
+                for (MoedaDto dto : cotacoesSimuladas(janeiro)) {
+                    LocalDate dia = LocalDate.parse(dto.data(), formatoData);
+                    if (dia.isBefore(inicio) || dia.equals(LocalDate.of(2023, 1, 17)) || dia.equals(LocalDate.of(2023, 1, 24))) {
+                        continue;
+                    }
+                    if (!consumidor.test(cotacaoSalva(dto.preco(), dia))) {
+                        return false;
+                    }
+                    // A linha lida já foi entregue antes de a próxima ser lida.
+                    Assertions.assertEquals(dto, transmitidas.get(transmitidas.size() - 1));
+                }
+                return true;
+            } finally {
+                cursorAberto[0] = false;
+            }
+        }).when(moedaRepository).percorrerEnquanto(Mockito.any(), Mockito.any(), Mockito.any());
+
+        criarServicoComMapperReal().transmitirCotacoesPeriodo("01-01-2023", "01-31-2023", transmitidas::add);
+
+        Assertions.assertEquals(cotacoesSimuladas(janeiro), transmitidas);
+        Mockito.verify(ptaxClient).buscarCotacoesPeriodo(Mockito.eq(new Intervalo(LocalDate.of(2023, 1, 17), LocalDate.of(2023, 1, 17))), Mockito.any());
+        Mockito.verify(ptaxClient).buscarCotacoesPeriodo(Mockito.eq(new Intervalo(LocalDate.of(2023, 1, 24), LocalDate.of(2023, 1, 24))), Mockito.any());
+        // Uma leitura até cada lacuna e a última até o fim do período.
+        Mockito.verify(moedaRepository, Mockito.times(3)).percorrerEnquanto(Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.verify(moedaRepository, Mockito.never()).findByDataBetweenOrderByData(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void transmitirUmPeriodoLongoDeveRegistrarNoCacheEmBlocosDuranteAEntrega() throws IOException {
+        Mockito.when(ptaxClient.buscarCotacoesPeriodo(Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+            List<MoedaDto> baixadas = cotacoesSimuladas(invocation.getArgument(0));
+            baixadas.forEach(invocation.<Consumer<MoedaDto>>getArgument(1));
+            return baixadas.size();
+        });
+        MoedaService servico = criarServicoComMapperReal();
+        DateTimeFormatter formatoData = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+        DateTimeFormatter formatoEntrada = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+        List<MoedaDto> transmitidas = new ArrayList<>();
+
+        servico.transmitirCotacoesPeriodo("01-01-2019", "12-31-2022", moedaDto -> {
+            transmitidas.add(moedaDto);
+            if (transmitidas.size() == MoedaService.TAMANHO_BLOCO_REGISTRO + 1) {
+                // O primeiro bloco já está no cache antes de o período terminar: consultá-lo não chama a API.
+                String fimBloco = LocalDate.parse(transmitidas.get(MoedaService.TAMANHO_BLOCO_REGISTRO - 1).data(), formatoData).format(formatoEntrada);
+                Assertions.assertEquals(transmitidas.subList(0, MoedaService.TAMANHO_BLOCO_REGISTRO), servico.getCotacoesPeriodo("01-01-2019", fimBloco));
+            }
+        });
+
+        Assertions.assertTrue(transmitidas.size() > 3 * MoedaService.TAMANHO_BLOCO_REGISTRO);
+        Assertions.assertEquals(transmitidas, servico.getCotacoesPeriodo("01-01-2019", "12-31-2022"));
+        Mockito.verify(ptaxClient, Mockito.never()).buscarCotacoesPeriodo(Mockito.any());
+    }
+
+    @Test
+    public void periodoSoDeveEstarEmMemoriaDepoisDeCarregadoInteiro() {
+        Assertions.assertFalse(moedaService.periodoEmMemoria("01-02-2023", "01-31-2023"));
+
+        moedaService.getCotacoesPeriodo("01-02-2023", "01-20-2023");
+
+        Assertions.assertTrue(moedaService.periodoEmMemoria("01-05-2023", "01-20-2023"));
+        Assertions.assertFalse(moedaService.periodoEmMemoria("01-02-2023", "01-31-2023"));
+    }
+
+    @Test
+    public void sincronizarDeveBuscarApenasOsDiasUteisFaltantes() throws IOException {
+        Intervalo periodo = new Intervalo(LocalDate.of(2023, 1, 2), LocalDate.of(2023, 3, 31));
+        List<Date> salvas = new ArrayList<>();
+        for (MoedaDto dto : cotacoesSimuladas(periodo)) {
+            LocalDate dia = LocalDate.parse(dto.data(), DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+            boolean faltante = (dia.isAfter(LocalDate.of(2023, 1, 8)) && dia.isBefore(LocalDate.of(2023, 1, 14)))
+                    || dia.equals(LocalDate.of(2023, 3, 1));
+            if (!faltante) {
+                salvas.add(java.sql.Date.valueOf(dia));
+            }
+        }
+        Mockito.when(moedaRepository.findDatasSalvasEntre(Mockito.any(), Mockito.any())).thenReturn(salvas);
+        Mockito.when(moedaRepository.inserirIgnorandoExistentes(Mockito.anyList()))
+                .thenAnswer(invocation -> invocation.<List<Moeda>>getArgument(0).size());
+
+        ResultadoIngestaoDto resultado = moedaService.sincronizarNoBdCotacoesDeDolarPorPeriodo("01-02-2023", "03-31-2023");
+
+        Assertions.assertEquals(6, resultado.inseridas());
+        Mockito.verify(ptaxClient).buscarCotacoesPeriodo(new Intervalo(LocalDate.of(2023, 1, 9), LocalDate.of(2023, 1, 13)));
+        Mockito.verify(ptaxClient).buscarCotacoesPeriodo(new Intervalo(LocalDate.of(2023, 3, 1), LocalDate.of(2023, 3, 1)));
+        Mockito.verify(ptaxClient, Mockito.times(2)).buscarCotacoesPeriodo(Mockito.any());
+        Mockito.verify(arquivoHistorico).acrescentar(Mockito.argThat(cotacoes -> cotacoes.size() == 6));
+    }
+
+    @Test
+    public void sincronizarPeriodoCompletoNaoDeveConsultarAApi() throws IOException {
+        Intervalo periodo = new Intervalo(LocalDate.of(2023, 1, 2), LocalDate.of(2023, 3, 31));
+        List<Date> salvas = new ArrayList<>();
+        for (MoedaDto dto : cotacoesSimuladas(periodo)) {
+            salvas.add(java.sql.Date.valueOf(LocalDate.parse(dto.data(), DateTimeFormatter.ofPattern("dd/MM/yyyy"))));
+        }
+        Mockito.when(moedaRepository.findDatasSalvasEntre(Mockito.any(), Mockito.any())).thenReturn(salvas);
+
+        ResultadoIngestaoDto resultado = moedaService.sincronizarNoBdCotacoesDeDolarPorPeriodo("01-02-2023", "03-31-2023");
+
+        Assertions.assertEquals(0, resultado.inseridas());
+        Mockito.verify(ptaxClient, Mockito.never()).buscarCotacoesPeriodo(Mockito.any());
+        Mockito.verify(moedaRepository, Mockito.never()).inserirIgnorandoExistentes(Mockito.anyList());
+        Mockito.verify(arquivoHistorico, Mockito.never()).acrescentar(Mockito.anyList());
     }
 
     @ParameterizedTest
@@ -137,8 +447,199 @@ public class MoedaServiceTest {
         Assertions.assertThrows(InvalidDateException.class, () -> moedaService.retornaCotacaoJaSalvaPorData(date));
     }
 
+    @Test
+    public void retornaCotacaoJaSalvaPorDataNaoDeveConsultarDeNovoUmaDataSemCotacao() {
+        Mockito.when(moedaRepository.findByData(Mockito.any())).thenReturn(Optional.empty());
+
+        Assertions.assertThrows(EntityNotFoundException.class, () -> moedaService.retornaCotacaoJaSalvaPorData("09-16-2023"));
+        EntityNotFoundException excecao = Assertions.assertThrows(EntityNotFoundException.class,
+                () -> moedaService.retornaCotacaoJaSalvaPorData("09-16-2023"));
+
+        Assertions.assertEquals("Não há registro de cotação no banco de dados para o dia '09-16-2023'.", excecao.getMessage());
+        Mockito.verify(moedaRepository, Mockito.times(1)).findByData(Mockito.any());
+    }
+
+    @Test
+    public void retornaCotacaoJaSalvaPorDataDeveConsultarDeNovoUmDiaUtilSemCotacao() {
+        Moeda segundaFeira = new Moeda(new BigDecimal("4.9000"), java.sql.Date.valueOf(LocalDate.of(2023, 9, 18)), LocalTime.of(13, 4, 30));
+        // Na primeira consulta a cotação ainda não foi gravada; na segunda, outra instância já a gravou.
+        Mockito.when(moedaRepository.findByData(Mockito.any())).thenReturn(Optional.empty(), Optional.of(segundaFeira));
+        MoedaService servico = criarServicoComMapperReal();
+
+        Assertions.assertThrows(EntityNotFoundException.class, () -> servico.retornaCotacaoJaSalvaPorData("09-18-2023"));
+
+        Assertions.assertEquals("18/09/2023", servico.retornaCotacaoJaSalvaPorData("09-18-2023").data());
+        Mockito.verify(moedaRepository, Mockito.times(2)).findByData(Mockito.any());
+    }
+
+    @Test
+    public void retornaCotacaoJaSalvaPorDataDeveUsarOUltimoDiaUtilAnteriorQuandoSolicitado() {
+        Moeda sextaFeira = new Moeda(new BigDecimal("4.9717"), java.sql.Date.valueOf(LocalDate.of(2023, 9, 15)), LocalTime.of(13, 4, 30));
+        Mockito.when(moedaRepository.findByData(java.sql.Date.valueOf(LocalDate.of(2023, 9, 15)))).thenReturn(Optional.of(sextaFeira));
+        MoedaService servico = criarServicoComMapperReal();
+
+        // Sábado e domingo são resolvidos para a sexta-feira; o dia útil em si é mantido.
+        for (String data : List.of("09-16-2023", "09-17-2023", "09-15-2023")) {
+            MoedaDto moedaDto = servico.retornaCotacaoJaSalvaPorData(data, true);
+            Assertions.assertEquals("15/09/2023", moedaDto.data());
+            Assertions.assertEquals(new BigDecimal("4.9717"), moedaDto.preco());
+        }
+        Mockito.verify(moedaRepository, Mockito.times(3)).findByData(Mockito.any());
+        Mockito.verify(moedaRepository, Mockito.never()).findByData(java.sql.Date.valueOf(LocalDate.of(2023, 9, 16)));
+    }
+
+    @Test
+    public void getCotacoesPorDatasDeveCasarAsDatasComUmaUnicaLeituraPorFaixa() {
+        List<CotacaoSalva> salvas = List.of(
+                cotacaoSalva(new BigDecimal("4.9500"), LocalDate.of(2023, 9, 14)),
+                cotacaoSalva(new BigDecimal("4.9717"), LocalDate.of(2023, 9, 15)),
+                cotacaoSalva(new BigDecimal("4.8800"), LocalDate.of(2023, 9, 18)));
+        Mockito.when(moedaRepository.findByDataBetweenOrderByData(Mockito.any(), Mockito.any())).thenReturn(salvas);
+        MoedaService servico = criarServicoComMapperReal();
+
+        // Fora de ordem, com repetição e com um sábado sem cotação.
+        List<CotacaoPorDataDto> cotacoes = servico.getCotacoesPorDatas(List.of("09-18-2023", "09-16-2023", "09-14-2023", "09-18-2023"), false);
+
+        Assertions.assertEquals(List.of("09-18-2023", "09-16-2023", "09-14-2023", "09-18-2023"),
+                cotacoes.stream().map(CotacaoPorDataDto::data).collect(Collectors.toList()));
+        Assertions.assertEquals(new BigDecimal("4.8800"), cotacoes.get(0).cotacao().preco());
+        Assertions.assertNull(cotacoes.get(1).cotacao());
+        Assertions.assertEquals("14/09/2023", cotacoes.get(2).cotacao().data());
+        Assertions.assertEquals(cotacoes.get(0).cotacao(), cotacoes.get(3).cotacao());
+        Mockito.verify(moedaRepository).findByDataBetweenOrderByData(
+                java.sql.Date.valueOf(LocalDate.of(2023, 9, 14)), java.sql.Date.valueOf(LocalDate.of(2023, 9, 18)));
+        Mockito.verify(moedaRepository, Mockito.never()).findByData(Mockito.any());
+    }
+
+    @Test
+    public void getCotacoesPorDatasDeveUsarOUltimoDiaUtilAnteriorQuandoSolicitado() {
+        List<CotacaoSalva> salvas = List.of(cotacaoSalva(new BigDecimal("4.9717"), LocalDate.of(2023, 9, 15)));
+        Mockito.when(moedaRepository.findByDataBetweenOrderByData(Mockito.any(), Mockito.any())).thenReturn(salvas);
+
+        List<CotacaoPorDataDto> cotacoes = criarServicoComMapperReal().getCotacoesPorDatas(List.of("09-17-2023", "09-16-2023"), true);
+
+        Assertions.assertEquals("15/09/2023", cotacoes.get(0).cotacao().data());
+        Assertions.assertEquals("15/09/2023", cotacoes.get(1).cotacao().data());
+        Assertions.assertEquals("09-17-2023", cotacoes.get(0).data());
+    }
+
+    @Test
+    public void getCotacoesPorDatasDeveLancarExcecaoParaDataInvalida() {
+        Assertions.assertThrows(InvalidDateException.class, () -> moedaService.getCotacoesPorDatas(List.of("09-15-2023", "02-30-2023"), false));
+        Mockito.verify(moedaRepository, Mockito.never()).findByDataBetweenOrderByData(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void cotacaoQueChegaDepoisParaUmDiaJaEmMemoriaDeveInvalidarAsRespostasSerializadasDoPeriodo() throws IOException {
+        LocalDate hoje = LocalDate.now(ZoneId.of("America/Sao_Paulo"));
+        LocalDate atrasado = new CalendarioDiasUteis().ultimoDiaUtilAte(hoje.minusDays(1));
+        String atrasadoFormatado = atrasado.format(DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+        // O boletim do último dia útil ainda não tinha sido publicado na primeira consulta.
+        boolean[] publicado = {false};
+        Mockito.doAnswer(invocation -> cotacoesSimuladas(invocation.getArgument(0)).stream()
+                .filter(moedaDto -> publicado[0] || !moedaDto.data().equals(atrasadoFormatado))
+                .collect(Collectors.toList())).when(ptaxClient).buscarCotacoesPeriodo(Mockito.any());
+        RespostasCache respostasCache = new RespostasCache(1 << 20, false);
+        MoedaService servico = criarServico(mapper, new CandleCache(), respostasCache);
+        DateTimeFormatter formatoEntrada = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+        RespostasCache.Chave recente = RespostasCache.Chave.de("periodo", atrasado.minusDays(14).format(formatoEntrada), atrasado.format(formatoEntrada), null);
+        RespostasCache.Chave marco = RespostasCache.Chave.de("periodo", "03-01-2023", "03-31-2023", null);
+        respostasCache.obter(recente, false, () -> {
+            servico.getCotacoesPeriodo(atrasado.minusDays(14).format(formatoEntrada), atrasado.format(formatoEntrada));
+            return new byte[10];
+        });
+        respostasCache.obter(marco, false, () -> {
+            servico.getCotacoesPeriodo("03-01-2023", "03-31-2023");
+            return new byte[10];
+        });
+
+        publicado[0] = true;
+        servico.getCotacaoAtual();
+
+        // Março não foi alcançado e continua em memória; o período recente foi descartado e é serializado de novo.
+        Assertions.assertEquals(10, respostasCache.obter(marco, false, () -> new byte[20]).length);
+        Assertions.assertEquals(20, respostasCache.obter(recente, false, () -> new byte[20]).length);
+    }
+
+    @Test
+    public void consultaDeUmPeriodoAindaForaDaMemoriaDeveGuardarOProprioCorpo() {
+        RespostasCache respostasCache = new RespostasCache(1 << 20, false);
+        MoedaService servico = criarServico(mapper, new CandleCache(), respostasCache);
+        RespostasCache.Chave janeiro = RespostasCache.Chave.de("periodo", "01-01-2023", "01-31-2023", null);
+
+        byte[] corpo = respostasCache.obter(janeiro, false, () -> {
+            servico.getCotacoesPeriodo("01-01-2023", "01-31-2023");
+            return new byte[10];
+        });
+        // A atualização da cotação atual não altera dias de janeiro.
+        servico.getCotacaoAtual();
+
+        Assertions.assertSame(corpo, respostasCache.obter(janeiro, false, () -> new byte[20]));
+    }
+
+    @Test
+    public void corrigirCotacoesDeveBuscarNaApiMesmoComOPeriodoEmMemoriaESubstituirAsArredondadas() throws IOException {
+        Intervalo janeiro = new Intervalo(LocalDate.of(2023, 1, 2), LocalDate.of(2023, 1, 31));
+        MoedaService servico = criarServicoComMapperReal();
+        List<MoedaDto> exatas = cotacoesSimuladas(janeiro);
+        // Primeiro o cache recebe as cotações arredondadas que estavam no banco.
+        List<CotacaoSalva> arredondadas = exatas.stream()
+                .map(dto -> cotacaoSalva(dto.preco().setScale(2, java.math.RoundingMode.HALF_UP), LocalDate.parse(dto.data(), DateTimeFormatter.ofPattern("dd/MM/yyyy"))))
+                .collect(Collectors.toList());
+        Mockito.when(moedaRepository.findByDataBetweenOrderByData(Mockito.any(), Mockito.any())).thenReturn(arredondadas);
+        servico.getCotacoesPeriodo("01-02-2023", "01-31-2023");
+        Mockito.when(moedaRepository.findDatasACorrigirEntre(Mockito.any(), Mockito.any()))
+                .thenReturn(List.of(java.sql.Date.valueOf(janeiro.inicio()), java.sql.Date.valueOf(janeiro.fim())));
+        Mockito.when(moedaRepository.corrigirCotacoes(Mockito.anyList(), Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> invocation.<List<Moeda>>getArgument(0).size());
+
+        ResultadoIngestaoDto resultado = servico.corrigirCotacoes(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 3, 31));
+
+        Mockito.verify(ptaxClient).buscarCotacoesPeriodo(janeiro);
+        Mockito.verify(moedaRepository).corrigirCotacoes(Mockito.anyList(),
+                Mockito.eq(java.sql.Date.valueOf(janeiro.inicio())), Mockito.eq(java.sql.Date.valueOf(janeiro.fim())));
+        Assertions.assertEquals(exatas.size(), resultado.inseridas());
+        Assertions.assertEquals(exatas, servico.getCotacoesPeriodo("01-02-2023", "01-31-2023"));
+        Mockito.verify(arquivoHistorico).acrescentar(exatas);
+    }
+
     // métodos auxiliares
 
+    private MoedaService criarServicoComMapperReal() {
+        return criarServico(new MoedaMapper(), new CandleCache(), new RespostasCache(1 << 20, true));
+    }
+
+    // Único ponto que conhece o construtor do serviço; os demais colaboradores são novos a cada chamada.
+    private MoedaService criarServico(MoedaMapper mapper, CandleCache candleCache, RespostasCache respostasCache) {
+        Clock clock = Clock.system(ZoneId.of("America/Sao_Paulo"));
+        CalendarioDiasUteis calendario = new CalendarioDiasUteis();
+        return new MoedaService(moedaRepository, mapper, ptaxClient, new CotacaoCache(),
+                new CotacaoAtualCache(clock, calendario, 13, 5), candleCache, new DatasSemCotacaoCache(), respostasCache,
+                calendario, clock, ForkJoinPool.commonPool(), arquivoHistorico, true);
+    }
+
+    private static CotacaoSalva cotacaoSalva(BigDecimal preco, LocalDate data) {
+        CotacaoSalva cotacaoSalva = Mockito.mock(CotacaoSalva.class);
+        Mockito.when(cotacaoSalva.getPreco()).thenReturn(preco);
+        Mockito.when(cotacaoSalva.getData()).thenReturn(java.sql.Date.valueOf(data));
+        Mockito.when(cotacaoSalva.getHora()).thenReturn(LocalTime.of(13, 4, 29));
+        return cotacaoSalva;
+    }
+
+    // Gera uma cotação por dia útil do intervalo, com preços oscilando em torno de R$ 5,00.
+    private static List<MoedaDto> cotacoesSimuladas(Intervalo intervalo) {
+        CalendarioDiasUteis calendario = new CalendarioDiasUteis();
+        DateTimeFormatter formatoData = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+        List<MoedaDto> cotacoes = new ArrayList<>();
+        for (LocalDate dia = intervalo.inicio(); !dia.isAfter(intervalo.fim()); dia = dia.plusDays(1)) {
+            if (calendario.ehDiaUtil(dia)) {
+                BigDecimal preco = new BigDecimal("5.0000").add(BigDecimal.valueOf(dia.getDayOfYear() % 50 - 25, 2));
+                cotacoes.add(new MoedaDto(preco, dia.format(formatoData), "13:04:29"));
+            }
+        }
+        return cotacoes;
+    }
+
     private static Stream<Arguments> dataProviderValidsDates() {
         return Stream.of(
                 Arguments.of("12-01-2020", "11-01-2023"),
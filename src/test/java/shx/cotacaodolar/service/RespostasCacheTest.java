@@ -0,0 +1,118 @@
+package shx.cotacaodolar.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+public class RespostasCacheTest {
+    private static final RespostasCache.Chave JANEIRO = RespostasCache.Chave.de("periodo", "01-01-2023", "01-31-2023", null);
+    private static final RespostasCache.Chave FEVEREIRO = RespostasCache.Chave.de("periodo", "02-01-2023", "02-28-2023", null);
+
+    @Test
+    public void deveSerializarApenasNaPrimeiraConsulta() {
+        RespostasCache cache = new RespostasCache(1 << 20, true);
+        AtomicInteger serializacoes = new AtomicInteger();
+
+        byte[] primeira = cache.obter(JANEIRO, false, () -> corpo("[1]", serializacoes));
+        byte[] segunda = cache.obter(JANEIRO, false, () -> corpo("[2]", serializacoes));
+
+        Assertions.assertSame(primeira, segunda);
+        Assertions.assertEquals(1, serializacoes.get());
+    }
+
+    @Test
+    public void chaveDeveSerNormalizada() {
+        Assertions.assertEquals(RespostasCache.Chave.de("candles", "01-01-2023", "01-31-2023", "Semana"),
+                RespostasCache.Chave.de("candles", "01-01-2023", "01-31-2023", "semana"));
+        Assertions.assertEquals(LocalDate.of(2023, 1, 31), JANEIRO.fim());
+    }
+
+    @Test
+    public void deveGuardarTambemOCorpoComprimido() throws IOException {
+        RespostasCache cache = new RespostasCache(1 << 20, true);
+        AtomicInteger serializacoes = new AtomicInteger();
+        cache.obter(JANEIRO, false, () -> corpo("[{\"preco\":4.9717}]", serializacoes));
+
+        byte[] gzip = cache.obter(JANEIRO, true, () -> corpo("[]", serializacoes));
+
+        Assertions.assertEquals("[{\"preco\":4.9717}]", new String(new GZIPInputStream(new ByteArrayInputStream(gzip)).readAllBytes(), StandardCharsets.UTF_8));
+        Assertions.assertSame(gzip, cache.obter(JANEIRO, true, () -> corpo("[]", serializacoes)));
+        Assertions.assertEquals(1, serializacoes.get());
+    }
+
+    @Test
+    public void deveDescartarAsMenosUsadasAoPassarDoLimite() {
+        // Cabem duas entradas de 200 bytes (mais o tamanho fixo de cada uma), mas não três.
+        RespostasCache cache = new RespostasCache(700, false);
+        RespostasCache.Chave marco = RespostasCache.Chave.de("periodo", "03-01-2023", "03-31-2023", null);
+        AtomicInteger serializacoes = new AtomicInteger();
+        cache.obter(JANEIRO, false, () -> new byte[200]);
+        cache.obter(FEVEREIRO, false, () -> new byte[200]);
+        cache.obter(JANEIRO, false, () -> new byte[200]);
+
+        cache.obter(marco, false, () -> new byte[200]);
+
+        Assertions.assertTrue(cache.tamanhoAtual() <= 700);
+        cache.obter(JANEIRO, false, () -> corpo("[]", serializacoes));
+        Assertions.assertEquals(0, serializacoes.get());
+        cache.obter(FEVEREIRO, false, () -> corpo("[]", serializacoes));
+        Assertions.assertEquals(1, serializacoes.get());
+    }
+
+    @Test
+    public void invalidarDeveDescartarApenasOsPeriodosQueAlcancamOIntervalo() {
+        RespostasCache cache = new RespostasCache(1 << 20, false);
+        AtomicInteger serializacoes = new AtomicInteger();
+        cache.obter(JANEIRO, false, () -> corpo("[]", serializacoes));
+        cache.obter(FEVEREIRO, false, () -> corpo("[]", serializacoes));
+
+        cache.invalidar(LocalDate.of(2023, 2, 28), LocalDate.of(2023, 3, 2));
+
+        cache.obter(JANEIRO, false, () -> corpo("[]", serializacoes));
+        cache.obter(FEVEREIRO, false, () -> corpo("[]", serializacoes));
+        Assertions.assertEquals(3, serializacoes.get());
+    }
+
+    @Test
+    public void naoDeveGuardarUmCorpoSerializadoAntesDeUmaInvalidacao() {
+        RespostasCache cache = new RespostasCache(1 << 20, false);
+        AtomicInteger serializacoes = new AtomicInteger();
+
+        cache.obter(JANEIRO, false, () -> {
+            cache.invalidar(LocalDate.of(2023, 1, 10), LocalDate.of(2023, 1, 10));
+            return corpo("[]", serializacoes);
+        });
+
+        Assertions.assertEquals(0, cache.tamanhoAtual());
+        cache.obter(JANEIRO, false, () -> corpo("[]", serializacoes));
+        Assertions.assertEquals(2, serializacoes.get());
+    }
+
+    @Test
+    public void invalidacaoDeOutroPeriodoNaoDeveImpedirQueOCorpoSejaGuardado() {
+        RespostasCache cache = new RespostasCache(1 << 20, false);
+        AtomicInteger serializacoes = new AtomicInteger();
+
+        byte[] corpo = cache.obter(JANEIRO, false, () -> {
+            cache.invalidar(LocalDate.of(2023, 2, 10), LocalDate.of(2023, 2, 10));
+            return corpo("[]", serializacoes);
+        });
+
+        Assertions.assertSame(corpo, cache.obter(JANEIRO, false, () -> corpo("[]", serializacoes)));
+        Assertions.assertEquals(1, serializacoes.get());
+    }
+
+    // métodos auxiliares
+
+    private static byte[] corpo(String json, AtomicInteger serializacoes) {
+        serializacoes.incrementAndGet();
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
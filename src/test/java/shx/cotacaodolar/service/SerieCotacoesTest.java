@@ -0,0 +1,49 @@
+package shx.cotacaodolar.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import shx.cotacaodolar.dto.MoedaDto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public class SerieCotacoesTest {
+    private static final MoedaDto SEGUNDA = new MoedaDto(new BigDecimal("4.9471"), "16/10/2023", "13:02:31");
+    private static final MoedaDto TERCA = new MoedaDto(new BigDecimal("5.0342"), "17/10/2023", "13:04:29");
+    private static final MoedaDto QUARTA = new MoedaDto(new BigDecimal("5.0612"), "18/10/2023", "09:05:00");
+
+    @Test
+    public void deveOrdenarPorDataEReconstruirOsMoedaDto() {
+        SerieCotacoes serie = SerieCotacoes.de(List.of(QUARTA, SEGUNDA, TERCA));
+
+        Assertions.assertEquals(List.of(SEGUNDA, TERCA, QUARTA), serie.visao(0, serie.tamanho()));
+        Assertions.assertEquals(50342L, serie.preco(1));
+        Assertions.assertEquals(9 * 3600 + 5 * 60, serie.segundo(2));
+        Assertions.assertEquals((int) LocalDate.of(2023, 10, 16).toEpochDay(), serie.dia(0));
+    }
+
+    @Test
+    public void mesclarDevePreservarASerieOriginalESubstituirDatasRepetidas() {
+        SerieCotacoes original = SerieCotacoes.de(List.of(SEGUNDA, QUARTA));
+        MoedaDto tercaCorrigida = new MoedaDto(new BigDecimal("5.0300"), "17/10/2023", "13:10:00");
+        MoedaDto quartaCorrigida = new MoedaDto(new BigDecimal("5.0700"), "18/10/2023", "13:10:00");
+
+        SerieCotacoes mesclada = original.mesclar(List.of(quartaCorrigida, TERCA, tercaCorrigida));
+
+        Assertions.assertEquals(List.of(SEGUNDA, QUARTA), original.visao(0, original.tamanho()));
+        Assertions.assertEquals(List.of(SEGUNDA, tercaCorrigida, quartaCorrigida), mesclada.visao(0, mesclada.tamanho()));
+    }
+
+    @Test
+    public void faixaDeveConsiderarDatasSemCotacao() {
+        SerieCotacoes serie = SerieCotacoes.de(List.of(SEGUNDA, QUARTA));
+
+        int[] faixa = serie.faixa(LocalDate.of(2023, 10, 17), LocalDate.of(2023, 10, 20));
+
+        Assertions.assertEquals(List.of(QUARTA), serie.visao(faixa[0], faixa[1]));
+        int[] semCotacao = serie.faixa(LocalDate.of(2023, 10, 19), LocalDate.of(2023, 10, 20));
+        Assertions.assertTrue(serie.visao(semCotacao[0], semCotacao[1]).isEmpty());
+    }
+
+}
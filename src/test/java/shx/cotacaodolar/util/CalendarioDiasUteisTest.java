@@ -0,0 +1,85 @@
+package shx.cotacaodolar.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import shx.cotacaodolar.model.Intervalo;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class CalendarioDiasUteisTest {
+    private final CalendarioDiasUteis calendario = new CalendarioDiasUteis();
+
+    @ParameterizedTest
+    @MethodSource(value = "dataProviderPascoa")
+    public void deveCalcularADataDaPascoa(int ano, LocalDate pascoa) {
+        Assertions.assertEquals(pascoa, CalendarioDiasUteis.pascoa(ano));
+    }
+
+    @ParameterizedTest
+    @MethodSource(value = "dataProviderFeriados")
+    public void feriadosNaoDevemSerDiasUteis(LocalDate feriado) {
+        Assertions.assertFalse(calendario.ehDiaUtil(feriado));
+    }
+
+    @Test
+    public void lacunasDevemIgnorarDiasNaoUteisEntreDiasFaltantes() {
+        // Semana do Carnaval de 2024: 12 e 13/02 não são dias úteis.
+        Set<LocalDate> presentes = Set.of(LocalDate.of(2024, 2, 5), LocalDate.of(2024, 2, 6), LocalDate.of(2024, 2, 15));
+
+        List<Intervalo> lacunas = calendario.lacunasDeDiasUteis(LocalDate.of(2024, 2, 3), LocalDate.of(2024, 2, 18), presentes);
+
+        Assertions.assertEquals(List.of(
+                new Intervalo(LocalDate.of(2024, 2, 7), LocalDate.of(2024, 2, 14)),
+                new Intervalo(LocalDate.of(2024, 2, 16), LocalDate.of(2024, 2, 16))
+        ), lacunas);
+    }
+
+    @Test
+    public void conscienciaNegraSoDeveSerFeriadoAPartirDe2024() {
+        Assertions.assertTrue(calendario.ehDiaUtil(LocalDate.of(2023, 11, 20)));
+        Assertions.assertFalse(calendario.ehDiaUtil(LocalDate.of(2024, 11, 20)));
+    }
+
+    @Test
+    public void ultimoDiaUtilAposCarnavalDeveSerASextaFeiraAnterior() {
+        // Quarta-feira de Cinzas de 2024 foi 14/02; segunda e terça de Carnaval não são dias úteis.
+        Assertions.assertEquals(LocalDate.of(2024, 2, 9), calendario.ultimoDiaUtilAte(LocalDate.of(2024, 2, 13)));
+        Assertions.assertEquals(LocalDate.of(2024, 2, 14), calendario.proximoDiaUtil(LocalDate.of(2024, 2, 9)));
+    }
+
+    @Test
+    public void subtrairDiasUteisDevePularFinsDeSemana() {
+        // Segunda-feira, 23/10/2023, menos dois dias úteis: quinta-feira, 19/10/2023.
+        Assertions.assertEquals(LocalDate.of(2023, 10, 19), calendario.subtrairDiasUteis(LocalDate.of(2023, 10, 23), 2));
+    }
+
+    // métodos auxiliares
+
+    private static Stream<Arguments> dataProviderPascoa() {
+        return Stream.of(
+                Arguments.of(1984, LocalDate.of(1984, 4, 22)),
+                Arguments.of(2019, LocalDate.of(2019, 4, 21)),
+                Arguments.of(2023, LocalDate.of(2023, 4, 9)),
+                Arguments.of(2024, LocalDate.of(2024, 3, 31)),
+                Arguments.of(2025, LocalDate.of(2025, 4, 20))
+        );
+    }
+
+    private static Stream<Arguments> dataProviderFeriados() {
+        return Stream.of(
+                Arguments.of(LocalDate.of(2023, 2, 20)),  // Segunda-feira de Carnaval
+                Arguments.of(LocalDate.of(2023, 2, 21)),  // Terça-feira de Carnaval
+                Arguments.of(LocalDate.of(2023, 4, 7)),   // Sexta-feira Santa
+                Arguments.of(LocalDate.of(2023, 6, 8)),   // Corpus Christi
+                Arguments.of(LocalDate.of(2023, 9, 7)),   // Independência
+                Arguments.of(LocalDate.of(2023, 12, 25))  // Natal
+        );
+    }
+
+}